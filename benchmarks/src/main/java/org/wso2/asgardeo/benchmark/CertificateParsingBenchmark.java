@@ -0,0 +1,59 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.asgardeo.benchmark.support.BenchmarkCertificates;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of parsing a PEM certificate and initializing a cipher for its public key, as paid by
+ * {@link EncryptionUtils#initializeCipherPoolUsingCertString(String)} on every run.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CertificateParsingBenchmark {
+
+    @Param({"2048", "4096"})
+    public int keySize;
+
+    private String certificatePem;
+
+    @Setup
+    public void setUp() {
+        certificatePem = BenchmarkCertificates.generate(keySize).getPem();
+    }
+
+    @Benchmark
+    public CipherPool initializeCipherPool() {
+        return EncryptionUtils.initializeCipherPoolUsingCertString(certificatePem);
+    }
+}
@@ -0,0 +1,83 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.asgardeo.benchmark.support.BenchmarkCertificates;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.Constants;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+
+import javax.crypto.Cipher;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the throughput of {@link EncryptionUtils#performEncryption(Cipher, String)} per thread across cipher
+ * transformations, JCE providers, RSA key sizes and plain text lengths.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class EncryptionBenchmark {
+
+    @Param({"RSA/ECB/PKCS1Padding", "RSA/ECB/OAEPWithSHA-256AndMGF1Padding"})
+    public String transformation;
+
+    @Param({"BC", "SunJCE"})
+    public String provider;
+
+    @Param({"2048", "3072", "4096"})
+    public int keySize;
+
+    // Must stay within the smallest RSA/OAEP block capacity: 190 bytes for a 2048-bit key with SHA-256.
+    @Param({"16", "64", "128"})
+    public int payloadLength;
+
+    private Cipher cipher;
+    private String payload;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCertificates certificates = BenchmarkCertificates.generate(keySize);
+        System.setProperty(Constants.CIPHER_TRANSFORMATION_SYSTEM_PROPERTY, transformation);
+        CipherPool cipherPool = EncryptionUtils.initializeCipherPoolUsingCertString(certificates.getPem());
+        if (!"BC".equals(provider)) {
+            cipherPool = new CipherPool(cipherPool.getPublicKey(), transformation, provider);
+        }
+        cipher = cipherPool.get();
+
+        char[] characters = new char[payloadLength];
+        Arrays.fill(characters, 'p');
+        payload = new String(characters);
+    }
+
+    @Benchmark
+    public String performEncryption() {
+        return EncryptionUtils.performEncryption(cipher, payload);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.asgardeo.benchmark.support.BenchmarkCertificates;
+import org.wso2.asgardeo.benchmark.support.FakeSecretsManagerServer;
+import org.wso2.asgardeo.benchmark.support.LatencyDistribution;
+import org.wso2.asgardeo.benchmark.support.OperationBehavior;
+import org.wso2.asgardeo.encrypt.SecretPipeline;
+import org.wso2.asgardeo.model.InputSecrets;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.utils.AdaptiveSecretUpdater;
+import org.wso2.asgardeo.utils.AwsSecretsManagerUtils;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.Constants;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerAsyncClient;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full run of the encryption flow, as performed by PasswordEncryptor, against an in-process
+ * {@link FakeSecretsManagerServer}: retrieve the certificate and all secrets, encrypt them, and write them back.
+ * Clients are created by the tool itself, pointed at the fake server through the endpoint override property.
+ * The latency and UpdateSecret throttle rate parameters emulate a remote service under load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EndToEndBenchmark {
+
+    private static final String CERT_SECRET_NAME = "benchmark/public-cert";
+    private static final int MAX_CONCURRENCY = 10;
+    private static final int UPDATE_MAX_CONCURRENCY = 50;
+    private static final int UPDATE_MAX_RETRIES = 8;
+    private static final int QUEUE_CAPACITY = 100;
+
+    @Param({"100", "1000"})
+    public int secretCount;
+
+    @Param({"barrier", "pipeline"})
+    public String mode;
+
+    @Param({"none", "uniform:10-30"})
+    public String latency;
+
+    @Param({"0.0", "0.05"})
+    public double updateThrottleRate;
+
+    private FakeSecretsManagerServer server;
+    private SecretsManagerClient client;
+    private SecretsManagerAsyncClient asyncClient;
+    private SecretsManagerClient updateClient;
+    private ForkJoinPool encryptionPool;
+    private InputSecrets inputSecrets;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        server = FakeSecretsManagerServer.start();
+        server.putSecret(CERT_SECRET_NAME, BenchmarkCertificates.generate(2048).getPem());
+        LatencyDistribution latencyDistribution = LatencyDistribution.parse(latency);
+        server.setDefaultBehavior(new OperationBehavior(latencyDistribution, 0, 0));
+        server.setBehavior(FakeSecretsManagerServer.UPDATE_SECRET,
+                new OperationBehavior(latencyDistribution, updateThrottleRate, 0));
+
+        System.setProperty(Constants.AWS_REGION_SYS_PROPERTY_KEY, "us-east-1");
+        System.setProperty(Constants.AWS_ENDPOINT_OVERRIDE_SYS_PROPERTY_KEY, server.getEndpoint().toString());
+        // Picked up by the default credentials provider chain; the fake server does not verify signatures.
+        System.setProperty("aws.accessKeyId", "benchmark");
+        System.setProperty("aws.secretAccessKey", "benchmark");
+        client = AwsSecretsManagerUtils.createSecretsManagerClient();
+        asyncClient = AwsSecretsManagerUtils.createSecretsManagerAsyncClient();
+        updateClient = AwsSecretsManagerUtils.createSecretsManagerUpdateClient();
+        encryptionPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+        List<String> names = new ArrayList<>(secretCount);
+        for (int i = 0; i < secretCount; i++) {
+            names.add("benchmark/secret-" + i);
+        }
+        inputSecrets = new InputSecrets();
+        inputSecrets.setSecrets(names);
+    }
+
+    @Setup(Level.Invocation)
+    public void resetSecrets() {
+        for (String name : inputSecrets.getSecrets()) {
+            server.putSecret(name, "plain-text-value-of-" + name);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        encryptionPool.shutdown();
+        updateClient.close();
+        asyncClient.close();
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public int run() {
+        String certificatePem = AwsSecretsManagerUtils.getSecretStringValue(client, CERT_SECRET_NAME);
+        AdaptiveSecretUpdater updater = new AdaptiveSecretUpdater(updateClient, MAX_CONCURRENCY, UPDATE_MAX_CONCURRENCY,
+                UPDATE_MAX_RETRIES);
+        if ("pipeline".equals(mode)) {
+            CipherPool cipherPool = EncryptionUtils.initializeCipherPoolUsingCertString(certificatePem);
+            return new SecretPipeline(client, cipherPool, updater, MAX_CONCURRENCY,
+                    encryptionPool.getParallelism(), UPDATE_MAX_CONCURRENCY, QUEUE_CAPACITY)
+                    .run(inputSecrets.getSecrets().iterator());
+        }
+        List<Secret> secrets = AwsSecretsManagerUtils.retrievePlainTextSecretsAsync(inputSecrets, asyncClient,
+                MAX_CONCURRENCY);
+        EncryptionUtils.encryptPlainTextSecretsUsingCertString(secrets, certificatePem, encryptionPool);
+        return updater.updateAll(secrets).getUpdatedCount();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark;
+
+import org.apache.log4j.FileAppender;
+import org.apache.log4j.Level;
+import org.apache.log4j.PatternLayout;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.utils.StructuredEventLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the logging cost per secret on the threads that process secrets, with several threads logging at once.
+ * <ul>
+ *     <li>{@code debug_lines}: the six free text DEBUG lines a secret was logged with before structured events,
+ *     written through a synchronous log4j file appender with the pattern of the bundled log4j.properties.</li>
+ *     <li>{@code structured}: the fetched, encrypted and updated events of a secret, handed to an open
+ *     {@link StructuredEventLog} that writes them to a file from its background thread.</li>
+ *     <li>{@code disabled}: the same events with no structured log open and DEBUG disabled, the default.</li>
+ * </ul>
+ * {@code work} emulates the rest of the processing of a secret with {@link Blackhole#consumeCPU(long)}, so that
+ * subtracting the {@code disabled} score leaves the logging overhead. With no work the threads record events faster
+ * than any writer can keep up with, so the number of events the structured log dropped is printed at the end of
+ * the trial.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class LoggingOverheadBenchmark {
+
+    private static final String LEGACY_LOGGER_NAME = "org.wso2.asgardeo.benchmark.legacy";
+    private static final String LOG_PATTERN = "%-4r [%t] %-5p %c %x - %m%n";
+    private static final int SECRET_COUNT = 1024;
+
+    @Param({"debug_lines", "structured", "disabled"})
+    public String mode;
+
+    @Param({"0", "2000"})
+    public long work;
+
+    private Path logFile;
+    private Logger legacyLog;
+    private FileAppender legacyAppender;
+    private StructuredEventLog eventLog;
+
+    @Setup
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("logging-overhead-benchmark", ".log");
+        org.apache.log4j.Logger.getLogger(StructuredEventLog.class).setLevel(Level.INFO);
+        if ("debug_lines".equals(mode)) {
+            org.apache.log4j.Logger legacyLogger = org.apache.log4j.Logger.getLogger(LEGACY_LOGGER_NAME);
+            legacyAppender = new FileAppender(new PatternLayout(LOG_PATTERN), logFile.toString(), false);
+            legacyLogger.addAppender(legacyAppender);
+            legacyLogger.setAdditivity(false);
+            legacyLogger.setLevel(Level.DEBUG);
+            legacyLog = LoggerFactory.getLogger(LEGACY_LOGGER_NAME);
+        } else if ("structured".equals(mode)) {
+            eventLog = StructuredEventLog.open(logFile.toString(), 8192);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (legacyAppender != null) {
+            org.apache.log4j.Logger.getLogger(LEGACY_LOGGER_NAME).removeAppender(legacyAppender);
+            legacyAppender.close();
+        }
+        if (eventLog != null) {
+            System.out.println("Structured log events dropped: " + eventLog.getDroppedEventCount());
+            eventLog.close();
+        }
+        Files.deleteIfExists(logFile);
+    }
+
+    @State(Scope.Thread)
+    public static class Secrets {
+
+        private final Secret[] secrets = new Secret[SECRET_COUNT];
+        private int next;
+
+        @Setup
+        public void setUp() {
+
+            for (int i = 0; i < SECRET_COUNT; i++) {
+                Secret secret = new Secret("benchmark/secret-" + i, "plain-text-value-" + i, "version-" + i);
+                secret.setUpdatedVersionId("updated-version-" + i);
+                secrets[i] = secret;
+            }
+        }
+
+        Secret next() {
+
+            Secret secret = secrets[next];
+            next = (next + 1) & (SECRET_COUNT - 1);
+            return secret;
+        }
+    }
+
+    @Benchmark
+    public void processSecret(Secrets secrets) {
+        Secret secret = secrets.next();
+        if (legacyLog != null) {
+            legacyLog.debug("Retrieving secret: {}", secret.getIdentifier());
+            legacyLog.debug("Successfully retrieved secret: {}", secret.getIdentifier());
+            legacyLog.debug("Encrypting secret: {}", secret.getIdentifier());
+            legacyLog.debug("Successfully encrypted secret: {}", secret.getIdentifier());
+            legacyLog.debug("Updating secret: {} (attempt {})", secret.getIdentifier(), 1);
+            legacyLog.debug("Successfully updated secret: {}", secret.getIdentifier());
+        } else {
+            StructuredEventLog.recordFetched(secret.getIdentifier(), secret.getVersionId());
+            StructuredEventLog.recordEncrypted(secret, false);
+            StructuredEventLog.recordUpdated(secret);
+        }
+        Blackhole.consumeCPU(work);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.asgardeo.benchmark.support.BenchmarkCertificates;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+import org.wso2.asgardeo.utils.SecretDecryptor;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per secret throughput of {@link SecretDecryptor#decrypt(String)} for values encrypted directly with
+ * RSA and for envelopes, i.e. the cost a consuming service pays for every read the secret reader does not serve from
+ * its cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SecretDecryptionBenchmark {
+
+    @Param({"2048", "4096"})
+    public int keySize;
+
+    @Param({"false", "true"})
+    public boolean envelope;
+
+    private SecretDecryptor decryptor;
+    private String encryptedValue;
+
+    @Setup
+    public void setUp() {
+        BenchmarkCertificates certificates = BenchmarkCertificates.generate(keySize);
+        CipherPool cipherPool = EncryptionUtils.initializeCipherPoolUsingCertString(certificates.getPem());
+        String plainText = "benchmark-password";
+        if (envelope) {
+            cipherPool.enableEnvelopeEncryption();
+            encryptedValue = cipherPool.getEnvelopeEncryptor().encrypt(plainText);
+        } else {
+            encryptedValue = EncryptionUtils.performEncryption(cipherPool.get(), plainText);
+        }
+        decryptor = new SecretDecryptor(certificates.getKeyPair().getPrivate(), certificates.getCertificate());
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return decryptor.decrypt(encryptedValue);
+    }
+}
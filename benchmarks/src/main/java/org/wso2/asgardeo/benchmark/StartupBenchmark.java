@@ -0,0 +1,126 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.wso2.asgardeo.benchmark.support.BenchmarkCertificates;
+import org.wso2.asgardeo.benchmark.support.FakeSecretsManagerServer;
+import org.wso2.asgardeo.utils.Constants;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wall-clock time of a complete run of the tool as a separate JVM, from launch to exit, over the
+ * bundled secrets against an in-process {@link FakeSecretsManagerServer}. The default launch is compared with the
+ * startup optimized one: the JDK cipher provider, the URLConnection HTTP client if bundled, and the AppCDS archive
+ * emitted by the startup build profile.
+ * <p>
+ * The tool is launched from target/aws-encryption-manager.jar relative to the working directory, or from the jar
+ * given by the benchmark.cli.jar system property; the archive is expected next to it with a .jsa extension.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+public class StartupBenchmark {
+
+    private static final String CERT_SECRET_NAME = "benchmark/public-cert";
+
+    @Param({"default", "optimized"})
+    public String mode;
+
+    private FakeSecretsManagerServer server;
+    private List<String> secretNames;
+    private List<String> command;
+    private File outputFile;
+
+    @Setup(Level.Trial)
+    public void startServer() throws IOException {
+        File jar = new File(System.getProperty("benchmark.cli.jar", "target/aws-encryption-manager.jar"));
+        if (!jar.isFile()) {
+            throw new IllegalStateException("Tool jar not found: " + jar.getAbsolutePath());
+        }
+        server = FakeSecretsManagerServer.start();
+        server.putSecret(CERT_SECRET_NAME, BenchmarkCertificates.generate(2048).getPem());
+        secretNames = EncryptionUtils.loadInputSecrets().getSecrets();
+        outputFile = Files.createTempFile("startup-benchmark", ".log").toFile();
+
+        command = new ArrayList<>();
+        command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+        if ("optimized".equals(mode)) {
+            File archive = new File(jar.getPath().replaceFirst("\\.jar$", ".jsa"));
+            if (!archive.isFile()) {
+                throw new IllegalStateException("AppCDS archive not found: " + archive.getAbsolutePath()
+                        + ". Build the tool with the startup profile.");
+            }
+            command.add("-XX:SharedArchiveFile=" + archive.getPath());
+            command.add("-D" + Constants.STARTUP_OPTIMIZED_SYS_PROPERTY_KEY + "=true");
+        }
+        command.add("-D" + Constants.AWS_REGION_SYS_PROPERTY_KEY + "=us-east-1");
+        command.add("-D" + Constants.AWS_ENDPOINT_OVERRIDE_SYS_PROPERTY_KEY + "=" + server.getEndpoint());
+        command.add("-D" + Constants.PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY + "=" + CERT_SECRET_NAME);
+        command.add("-jar");
+        command.add(jar.getPath());
+    }
+
+    @Setup(Level.Invocation)
+    public void resetSecrets() {
+        for (String name : secretNames) {
+            server.putSecret(name, "plain-text-value-of-" + name);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() throws IOException {
+        server.close();
+        Files.deleteIfExists(outputFile.toPath());
+    }
+
+    @Benchmark
+    public int run() throws IOException, InterruptedException {
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(outputFile);
+        Map<String, String> environment = builder.environment();
+        // The fake server does not verify signatures.
+        environment.put("AWS_ACCESS_KEY_ID", "benchmark");
+        environment.put("AWS_SECRET_ACCESS_KEY", "benchmark");
+        int exitCode = builder.start().waitFor();
+        if (exitCode != 0) {
+            throw new IllegalStateException("Tool exited with code " + exitCode + ", see " + outputFile);
+        }
+        return exitCode;
+    }
+}
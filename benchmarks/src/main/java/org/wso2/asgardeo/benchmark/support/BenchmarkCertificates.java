@@ -0,0 +1,97 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark.support;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.OperatorCreationException;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.CertificateException;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This Java Class generates self-signed RSA certificates so benchmarks run without any AWS-hosted certificate.
+ */
+public class BenchmarkCertificates {
+
+    private final KeyPair keyPair;
+    private final X509Certificate certificate;
+    private final String pem;
+
+    private BenchmarkCertificates(KeyPair keyPair, X509Certificate certificate, String pem) {
+
+        this.keyPair = keyPair;
+        this.certificate = certificate;
+        this.pem = pem;
+    }
+
+    /**
+     * Generates an RSA key pair of the given size and a self-signed certificate for its public key.
+     *
+     * @param keySize RSA key size in bits.
+     * @return Generated key pair and PEM encoded certificate.
+     */
+    public static BenchmarkCertificates generate(int keySize) {
+
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(keySize);
+            KeyPair keyPair = generator.generateKeyPair();
+
+            long now = System.currentTimeMillis();
+            X500Name subject = new X500Name("CN=aws-encryption-manager-benchmark");
+            ContentSigner signer = new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate());
+            X509CertificateHolder certificate = new JcaX509v3CertificateBuilder(subject, BigInteger.valueOf(now),
+                    new Date(now - TimeUnit.DAYS.toMillis(1)), new Date(now + TimeUnit.DAYS.toMillis(365)), subject,
+                    keyPair.getPublic()).build(signer);
+
+            StringWriter writer = new StringWriter();
+            try (JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+                pemWriter.writeObject(certificate);
+            }
+            return new BenchmarkCertificates(keyPair, new JcaX509CertificateConverter().getCertificate(certificate),
+                    writer.toString());
+        } catch (NoSuchAlgorithmException | OperatorCreationException | CertificateException | IOException e) {
+            throw new IllegalStateException("Could not generate benchmark certificate", e);
+        }
+    }
+
+    public KeyPair getKeyPair() {
+
+        return keyPair;
+    }
+
+    public X509Certificate getCertificate() {
+
+        return certificate;
+    }
+
+    public String getPem() {
+
+        return pem;
+    }
+}
@@ -0,0 +1,795 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark.support;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * This Java Class is an in-process stand-in for AWS Secrets Manager speaking the AWS JSON 1.1 protocol.
+ * It keeps secrets in memory, with their current and previous version, and supports the GetSecretValue,
+ * BatchGetSecretValue, UpdateSecret, PutSecretValue, UpdateSecretVersionStage (for AWSCURRENT only), ListSecrets,
+ * DescribeSecret and TagResource operations. Each operation can be given an {@link OperationBehavior} to add latency and to inject throttling
+ * and server failures, so large rotations and throttling can be reproduced locally without AWS access.
+ * It can be embedded in benchmarks or run standalone through {@link #main(String...)}.
+ */
+public class FakeSecretsManagerServer implements AutoCloseable {
+
+    public static final String GET_SECRET_VALUE = "GetSecretValue";
+    public static final String BATCH_GET_SECRET_VALUE = "BatchGetSecretValue";
+    public static final String UPDATE_SECRET = "UpdateSecret";
+    public static final String LIST_SECRETS = "ListSecrets";
+    public static final String DESCRIBE_SECRET = "DescribeSecret";
+    public static final String TAG_RESOURCE = "TagResource";
+    public static final String PUT_SECRET_VALUE = "PutSecretValue";
+    public static final String UPDATE_SECRET_VERSION_STAGE = "UpdateSecretVersionStage";
+
+    private static final String TARGET_HEADER = "X-Amz-Target";
+    private static final String TARGET_PREFIX = "secretsmanager.";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+    private static final String ARN_PREFIX = "arn:aws:secretsmanager:us-east-1:000000000000:secret:";
+    private static final int LIST_SECRETS_MAX_RESULTS = 100;
+    private static final int BATCH_GET_SECRET_VALUE_MAX_RESULTS = 20;
+
+    private final Gson gson = new Gson();
+    private final NavigableMap<String, StoredSecret> secrets = new ConcurrentSkipListMap<>();
+    private final Map<String, OperationBehavior> behaviors = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> callCounts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> throttledCounts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> failedCounts = new ConcurrentHashMap<>();
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile OperationBehavior defaultBehavior = OperationBehavior.DEFAULT;
+
+    private FakeSecretsManagerServer(HttpServer server, ExecutorService executor) {
+
+        this.server = server;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a server on an ephemeral loopback port.
+     *
+     * @return Started server.
+     * @throws IOException if the server cannot bind.
+     */
+    public static FakeSecretsManagerServer start() throws IOException {
+
+        return start(0);
+    }
+
+    /**
+     * Starts a server on the given loopback port.
+     *
+     * @param port Port to listen on, or 0 for an ephemeral port.
+     * @return Started server.
+     * @throws IOException if the server cannot bind.
+     */
+    public static FakeSecretsManagerServer start(int port) throws IOException {
+
+        // Without TCP_NODELAY, responses written after their headers stall on delayed ACKs for tens of milliseconds.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "fake-secrets-manager");
+            thread.setDaemon(true);
+            return thread;
+        });
+        FakeSecretsManagerServer fake = new FakeSecretsManagerServer(server, executor);
+        server.createContext("/", fake::handle);
+        server.setExecutor(executor);
+        server.start();
+        return fake;
+    }
+
+    public URI getEndpoint() {
+
+        return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    public void putSecret(String name, String value) {
+
+        putSecret(name, value, Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Writes a new current version of a secret, as a concurrent writer would. An existing current version becomes
+     * the previous version.
+     *
+     * @param name  Name of the secret.
+     * @param value Value of the new version.
+     * @param tags  Tags of the secret.
+     */
+    public void putSecret(String name, String value, Map<String, String> tags) {
+
+        secrets.compute(name, (key, current) -> new StoredSecret(name, value, tags, UUID.randomUUID().toString(),
+                current));
+    }
+
+    public String getVersionId(String name) {
+
+        StoredSecret secret = secrets.get(name);
+        return secret != null ? secret.versionId : null;
+    }
+
+    public String getSecretValue(String name) {
+
+        StoredSecret secret = secrets.get(name);
+        return secret != null ? secret.value : null;
+    }
+
+    /**
+     * Sets the behavior used for operations without an operation specific behavior.
+     *
+     * @param behavior Default behavior.
+     */
+    public void setDefaultBehavior(OperationBehavior behavior) {
+
+        this.defaultBehavior = behavior;
+    }
+
+    /**
+     * Sets the behavior of a single operation, e.g. {@link #UPDATE_SECRET}.
+     *
+     * @param operation Operation name.
+     * @param behavior  Behavior of the operation.
+     */
+    public void setBehavior(String operation, OperationBehavior behavior) {
+
+        behaviors.put(operation, behavior);
+    }
+
+    public long getCallCount(String operation) {
+
+        return count(callCounts, operation);
+    }
+
+    public long getThrottledCount(String operation) {
+
+        return count(throttledCounts, operation);
+    }
+
+    public long getFailedCount(String operation) {
+
+        return count(failedCounts, operation);
+    }
+
+    /**
+     * Clears the call, throttle and failure counters of all operations.
+     */
+    public void resetCounts() {
+
+        callCounts.clear();
+        throttledCounts.clear();
+        failedCounts.clear();
+    }
+
+    @Override
+    public void close() {
+
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+
+        try {
+            String target = exchange.getRequestHeaders().getFirst(TARGET_HEADER);
+            JsonObject request;
+            try (Reader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+                request = gson.fromJson(reader, JsonObject.class);
+            }
+            if (request == null) {
+                request = new JsonObject();
+            }
+            String operation = target != null && target.startsWith(TARGET_PREFIX)
+                    ? target.substring(TARGET_PREFIX.length()) : String.valueOf(target);
+            increment(callCounts, operation);
+            if (!applyBehavior(exchange, operation)) {
+                return;
+            }
+            switch (operation) {
+                case GET_SECRET_VALUE:
+                    getSecretValue(exchange, request);
+                    break;
+                case BATCH_GET_SECRET_VALUE:
+                    batchGetSecretValue(exchange, request);
+                    break;
+                case UPDATE_SECRET:
+                    updateSecret(exchange, request);
+                    break;
+                case LIST_SECRETS:
+                    listSecrets(exchange, request);
+                    break;
+                case DESCRIBE_SECRET:
+                    describeSecret(exchange, request);
+                    break;
+                case TAG_RESOURCE:
+                    tagResource(exchange, request);
+                    break;
+                case PUT_SECRET_VALUE:
+                    putSecretValue(exchange, request);
+                    break;
+                case UPDATE_SECRET_VERSION_STAGE:
+                    updateSecretVersionStage(exchange, request);
+                    break;
+                default:
+                    sendError(exchange, 400, "InvalidRequestException", "Unsupported operation: " + operation);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Applies the configured latency, throttling and failure injection for the operation.
+     *
+     * @return false if an error response was sent and the call must not be served.
+     */
+    private boolean applyBehavior(HttpExchange exchange, String operation) throws IOException {
+
+        OperationBehavior behavior = behaviors.getOrDefault(operation, defaultBehavior);
+        long latencyMillis = behavior.getLatency().sampleMillis();
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < behavior.getThrottleRate()) {
+            increment(throttledCounts, operation);
+            sendError(exchange, 400, "ThrottlingException", "Rate exceeded");
+            return false;
+        }
+        if (roll < behavior.getThrottleRate() + behavior.getFailureRate()) {
+            increment(failedCounts, operation);
+            sendError(exchange, 500, "InternalServiceError", "Injected failure");
+            return false;
+        }
+        return true;
+    }
+
+    private void getSecretValue(HttpExchange exchange, JsonObject request) throws IOException {
+
+        String secretId = request.get("SecretId").getAsString();
+        StoredSecret secret = lookup(secretId);
+        if (secret == null) {
+            sendNotFound(exchange, secretId);
+            return;
+        }
+        sendJson(exchange, secret.describeValue());
+    }
+
+    private void batchGetSecretValue(HttpExchange exchange, JsonObject request) throws IOException {
+
+        JsonObject response = new JsonObject();
+        JsonArray values = new JsonArray();
+        JsonArray errors = new JsonArray();
+        if (request.has("SecretIdList")) {
+            for (JsonElement element : request.getAsJsonArray("SecretIdList")) {
+                String secretId = element.getAsString();
+                StoredSecret secret = lookup(secretId);
+                if (secret != null) {
+                    values.add(secret.describeValue());
+                } else {
+                    JsonObject error = new JsonObject();
+                    error.addProperty("SecretId", secretId);
+                    error.addProperty("ErrorCode", "ResourceNotFoundException");
+                    error.addProperty("Message", "Secrets Manager can't find the specified secret.");
+                    errors.add(error);
+                }
+            }
+        } else {
+            String nextToken = page(request, BATCH_GET_SECRET_VALUE_MAX_RESULTS, secret -> values.add(secret.describeValue()));
+            if (nextToken != null) {
+                response.addProperty("NextToken", nextToken);
+            }
+        }
+        response.add("SecretValues", values);
+        response.add("Errors", errors);
+        sendJson(exchange, response);
+    }
+
+    private void updateSecret(HttpExchange exchange, JsonObject request) throws IOException {
+
+        String secretId = request.get("SecretId").getAsString();
+        StoredSecret secret = lookup(secretId);
+        if (secret == null) {
+            sendNotFound(exchange, secretId);
+            return;
+        }
+        StoredSecret updated = new StoredSecret(secret.name, request.get("SecretString").getAsString(), secret.tags,
+                UUID.randomUUID().toString(), secret);
+        secrets.put(secret.name, updated);
+        sendJson(exchange, updated.describe());
+    }
+
+    /**
+     * Writes a new current version whose id is the request's ClientRequestToken. As in AWS, repeating a request
+     * with the token of an existing version is a no-op if the value is the same, and fails otherwise.
+     */
+    private void putSecretValue(HttpExchange exchange, JsonObject request) throws IOException {
+
+        String secretId = request.get("SecretId").getAsString();
+        String value = request.get("SecretString").getAsString();
+        String versionId = request.has("ClientRequestToken") ? request.get("ClientRequestToken").getAsString()
+                : UUID.randomUUID().toString();
+        StoredSecret[] written = new StoredSecret[1];
+        boolean[] conflicting = new boolean[1];
+        secrets.computeIfPresent(lookupName(secretId), (name, current) -> {
+            String existingValue = versionId.equals(current.versionId) ? current.value
+                    : versionId.equals(current.previousVersionId) ? current.previousValue : null;
+            if (existingValue != null) {
+                conflicting[0] = !existingValue.equals(value);
+                written[0] = current;
+                return current;
+            }
+            written[0] = new StoredSecret(name, value, current.tags, versionId, current);
+            return written[0];
+        });
+        if (written[0] == null) {
+            sendNotFound(exchange, secretId);
+        } else if (conflicting[0]) {
+            sendError(exchange, 400, "ResourceExistsException", "A version with ClientRequestToken " + versionId
+                    + " already exists with a different value.");
+        } else {
+            JsonObject response = written[0].describe();
+            response.addProperty("VersionId", versionId);
+            sendJson(exchange, response);
+        }
+    }
+
+    /**
+     * Moves the AWSCURRENT label back to the previous version, the only stage move supported.
+     */
+    private void updateSecretVersionStage(HttpExchange exchange, JsonObject request) throws IOException {
+
+        String secretId = request.get("SecretId").getAsString();
+        String moveTo = request.has("MoveToVersionId") ? request.get("MoveToVersionId").getAsString() : null;
+        String removeFrom = request.has("RemoveFromVersionId") ? request.get("RemoveFromVersionId").getAsString()
+                : null;
+        boolean[] moved = new boolean[1];
+        StoredSecret secret = secrets.computeIfPresent(lookupName(secretId), (name, current) -> {
+            if (!"AWSCURRENT".equals(request.get("VersionStage").getAsString())
+                    || !current.versionId.equals(removeFrom) || moveTo == null
+                    || !moveTo.equals(current.previousVersionId)) {
+                return current;
+            }
+            moved[0] = true;
+            return new StoredSecret(name, current.previousValue, current.tags, current.previousVersionId, current);
+        });
+        if (secret == null) {
+            sendNotFound(exchange, secretId);
+        } else if (!moved[0]) {
+            sendError(exchange, 400, "InvalidParameterException", "Only moving AWSCURRENT from the current to the "
+                    + "previous version is supported.");
+        } else {
+            sendJson(exchange, secret.describe());
+        }
+    }
+
+    private void describeSecret(HttpExchange exchange, JsonObject request) throws IOException {
+
+        String secretId = request.get("SecretId").getAsString();
+        StoredSecret secret = lookup(secretId);
+        if (secret == null) {
+            sendNotFound(exchange, secretId);
+            return;
+        }
+        sendJson(exchange, secret.describeMetadata());
+    }
+
+    private void tagResource(HttpExchange exchange, JsonObject request) throws IOException {
+
+        String secretId = request.get("SecretId").getAsString();
+        StoredSecret secret = lookup(secretId);
+        if (secret == null) {
+            sendNotFound(exchange, secretId);
+            return;
+        }
+        Map<String, String> addedTags = new HashMap<>();
+        if (request.has("Tags")) {
+            for (JsonElement element : request.getAsJsonArray("Tags")) {
+                JsonObject tag = element.getAsJsonObject();
+                addedTags.put(tag.get("Key").getAsString(), tag.get("Value").getAsString());
+            }
+        }
+        // Tagging does not create a new version, so keep the version id of the secret being tagged.
+        secrets.computeIfPresent(secret.name, (name, current) -> {
+            Map<String, String> tags = new HashMap<>(current.tags);
+            tags.putAll(addedTags);
+            return new StoredSecret(name, current.value, tags, current.versionId, current.previousVersionId,
+                    current.previousValue);
+        });
+        sendJson(exchange, new JsonObject());
+    }
+
+    private void listSecrets(HttpExchange exchange, JsonObject request) throws IOException {
+
+        JsonObject response = new JsonObject();
+        JsonArray secretList = new JsonArray();
+        String nextToken = page(request, LIST_SECRETS_MAX_RESULTS, secret -> secretList.add(secret.describeListEntry()));
+        response.add("SecretList", secretList);
+        if (nextToken != null) {
+            response.addProperty("NextToken", nextToken);
+        }
+        sendJson(exchange, response);
+    }
+
+    /**
+     * Walks the secrets matching the request's filters in name order, starting after the request's NextToken.
+     *
+     * @return Token for the next page, or null if this is the last page.
+     */
+    private String page(JsonObject request, int maxResultsLimit, Consumer<StoredSecret> sink) {
+
+        int maxResults = request.has("MaxResults")
+                ? Math.min(request.get("MaxResults").getAsInt(), maxResultsLimit) : maxResultsLimit;
+        List<Filter> filters = new ArrayList<>();
+        if (request.has("Filters")) {
+            for (JsonElement element : request.getAsJsonArray("Filters")) {
+                JsonObject filter = element.getAsJsonObject();
+                List<String> filterValues = new ArrayList<>();
+                filter.getAsJsonArray("Values").forEach(value -> filterValues.add(value.getAsString()));
+                filters.add(new Filter(filter.get("Key").getAsString(), filterValues));
+            }
+        }
+        NavigableMap<String, StoredSecret> remaining = request.has("NextToken")
+                ? secrets.tailMap(request.get("NextToken").getAsString(), false) : secrets;
+        int count = 0;
+        String lastReturned = null;
+        for (StoredSecret secret : remaining.values()) {
+            if (!matches(secret, filters)) {
+                continue;
+            }
+            if (count == maxResults) {
+                // More matches remain. The token is the last name returned, so the next page resumes after it.
+                return lastReturned;
+            }
+            sink.accept(secret);
+            lastReturned = secret.name;
+            count++;
+        }
+        return null;
+    }
+
+    private static boolean matches(StoredSecret secret, List<Filter> filters) {
+
+        for (Filter filter : filters) {
+            boolean matched = false;
+            for (String value : filter.values) {
+                switch (filter.key) {
+                    case "name":
+                        matched = secret.name.startsWith(value);
+                        break;
+                    case "tag-key":
+                        matched = secret.tags.containsKey(value);
+                        break;
+                    case "tag-value":
+                        matched = secret.tags.containsValue(value);
+                        break;
+                    case "all":
+                        matched = secret.name.contains(value) || secret.tags.containsKey(value)
+                                || secret.tags.containsValue(value);
+                        break;
+                    default:
+                        matched = false;
+                }
+                if (matched) {
+                    break;
+                }
+            }
+            if (!matched) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private StoredSecret lookup(String secretId) {
+
+        return secrets.get(lookupName(secretId));
+    }
+
+    private static String lookupName(String secretId) {
+
+        return secretId.startsWith(ARN_PREFIX) ? secretId.substring(ARN_PREFIX.length()) : secretId;
+    }
+
+    private void sendNotFound(HttpExchange exchange, String secretId) throws IOException {
+
+        sendError(exchange, 400, "ResourceNotFoundException", "Secrets Manager can't find the specified secret: " + secretId);
+    }
+
+    private void sendError(HttpExchange exchange, int status, String type, String message) throws IOException {
+
+        JsonObject error = new JsonObject();
+        error.addProperty("__type", type);
+        error.addProperty("Message", message);
+        send(exchange, status, error);
+    }
+
+    private void sendJson(HttpExchange exchange, JsonObject body) throws IOException {
+
+        send(exchange, 200, body);
+    }
+
+    private void send(HttpExchange exchange, int status, JsonObject body) throws IOException {
+
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.getResponseHeaders().set("x-amzn-RequestId", UUID.randomUUID().toString());
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static long count(Map<String, AtomicLong> counts, String operation) {
+
+        AtomicLong count = counts.get(operation);
+        return count != null ? count.get() : 0;
+    }
+
+    private static void increment(Map<String, AtomicLong> counts, String operation) {
+
+        counts.computeIfAbsent(operation, key -> new AtomicLong()).incrementAndGet();
+    }
+
+    /**
+     * Runs the server standalone until the process is terminated.
+     * Options:
+     * <pre>
+     *   --port &lt;port&gt;                   Port to listen on (default: 4566)
+     *   --secrets &lt;count&gt;               Number of plain text secrets to seed (default: 0)
+     *   --secret-prefix &lt;prefix&gt;        Name prefix of seeded secrets (default: loadtest/secret-)
+     *   --seed-manifest &lt;path&gt;          Also seed every secret named in a secrets.json manifest
+     *   --tag &lt;key=value&gt;               Tag added to every seeded secret
+     *   --cert-secret-name &lt;name&gt;       Seed a generated self-signed PEM certificate under this name
+     *   --manifest-out &lt;path&gt;           Write the seeded secret names as a secrets.json manifest
+     *   --latency &lt;spec&gt;                Default latency distribution, e.g. uniform:10-30
+     *   --throttle-rate &lt;rate&gt;          Default fraction of throttled calls
+     *   --failure-rate &lt;rate&gt;           Default fraction of failed calls
+     *   --behavior &lt;op=spec,t,f&gt;        Operation behavior, e.g. UpdateSecret=uniform:10-30,0.05,0.01
+     * </pre>
+     *
+     * @param args Command line options.
+     * @throws Exception if the server cannot be started.
+     */
+    public static void main(String... args) throws Exception {
+
+        int port = 4566;
+        int secretCount = 0;
+        String secretPrefix = "loadtest/secret-";
+        String certSecretName = null;
+        String manifestOut = null;
+        String seedManifest = null;
+        String latency = "none";
+        double throttleRate = 0;
+        double failureRate = 0;
+        Map<String, String> tags = new HashMap<>();
+        Map<String, OperationBehavior> operationBehaviors = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for option: " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(value);
+                    break;
+                case "--secrets":
+                    secretCount = Integer.parseInt(value);
+                    break;
+                case "--secret-prefix":
+                    secretPrefix = value;
+                    break;
+                case "--seed-manifest":
+                    seedManifest = value;
+                    break;
+                case "--tag":
+                    String[] tag = value.split("=", 2);
+                    tags.put(tag[0], tag.length > 1 ? tag[1] : "");
+                    break;
+                case "--cert-secret-name":
+                    certSecretName = value;
+                    break;
+                case "--manifest-out":
+                    manifestOut = value;
+                    break;
+                case "--latency":
+                    latency = value;
+                    break;
+                case "--throttle-rate":
+                    throttleRate = Double.parseDouble(value);
+                    break;
+                case "--failure-rate":
+                    failureRate = Double.parseDouble(value);
+                    break;
+                case "--behavior":
+                    String[] operationAndSpec = value.split("=", 2);
+                    String[] spec = operationAndSpec[1].split(",");
+                    operationBehaviors.put(operationAndSpec[0], new OperationBehavior(LatencyDistribution.parse(spec[0]),
+                            spec.length > 1 ? Double.parseDouble(spec[1]) : 0,
+                            spec.length > 2 ? Double.parseDouble(spec[2]) : 0));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        FakeSecretsManagerServer fake = start(port);
+        fake.setDefaultBehavior(new OperationBehavior(LatencyDistribution.parse(latency), throttleRate, failureRate));
+        operationBehaviors.forEach(fake::setBehavior);
+        List<String> names = new ArrayList<>(secretCount);
+        for (int i = 0; i < secretCount; i++) {
+            String name = secretPrefix + i;
+            fake.putSecret(name, "plain-text-value-of-" + name, tags);
+            names.add(name);
+        }
+        if (seedManifest != null) {
+            try (Reader reader = Files.newBufferedReader(Paths.get(seedManifest), StandardCharsets.UTF_8)) {
+                for (JsonElement name : new Gson().fromJson(reader, JsonObject.class).getAsJsonArray("secrets")) {
+                    fake.putSecret(name.getAsString(), "plain-text-value-of-" + name.getAsString(), tags);
+                }
+            }
+        }
+        if (certSecretName != null) {
+            fake.putSecret(certSecretName, BenchmarkCertificates.generate(2048).getPem());
+        }
+        if (manifestOut != null) {
+            Map<String, List<String>> manifest = Collections.singletonMap("secrets", names);
+            try (Writer writer = Files.newBufferedWriter(Paths.get(manifestOut), StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(manifest, writer);
+            }
+        }
+        System.out.println("Fake AWS Secrets Manager listening on " + fake.getEndpoint() + " with "
+                + fake.secrets.size() + " secrets. Press Ctrl+C to stop.");
+        new CountDownLatch(1).await();
+    }
+
+    private static final class Filter {
+
+        private final String key;
+        private final List<String> values;
+
+        private Filter(String key, List<String> values) {
+
+            this.key = key;
+            this.values = values;
+        }
+    }
+
+    private static final class StoredSecret {
+
+        private final String name;
+        private final String value;
+        private final Map<String, String> tags;
+        private final String versionId;
+        // Version labelled AWSPREVIOUS, or null if the secret has a single version
+        private final String previousVersionId;
+        private final String previousValue;
+
+        private StoredSecret(String name, String value, Map<String, String> tags, String versionId,
+                             StoredSecret previous) {
+
+            this(name, value, tags, versionId, previous != null ? previous.versionId : null,
+                    previous != null ? previous.value : null);
+        }
+
+        private StoredSecret(String name, String value, Map<String, String> tags, String versionId,
+                             String previousVersionId, String previousValue) {
+
+            this.name = name;
+            this.value = value;
+            this.tags = Collections.unmodifiableMap(new HashMap<>(tags));
+            this.versionId = versionId;
+            this.previousVersionId = previousVersionId;
+            this.previousValue = previousValue;
+        }
+
+        private JsonObject describe() {
+
+            JsonObject description = new JsonObject();
+            description.addProperty("ARN", ARN_PREFIX + name);
+            description.addProperty("Name", name);
+            description.addProperty("VersionId", versionId);
+            return description;
+        }
+
+        private JsonObject describeValue() {
+
+            JsonObject description = describe();
+            description.addProperty("SecretString", value);
+            JsonArray stages = new JsonArray();
+            stages.add("AWSCURRENT");
+            description.add("VersionStages", stages);
+            return description;
+        }
+
+        private JsonObject describeListEntry() {
+
+            JsonObject description = new JsonObject();
+            description.addProperty("ARN", ARN_PREFIX + name);
+            description.addProperty("Name", name);
+            JsonArray tagList = new JsonArray();
+            tags.forEach((key, tagValue) -> {
+                JsonObject tag = new JsonObject();
+                tag.addProperty("Key", key);
+                tag.addProperty("Value", tagValue);
+                tagList.add(tag);
+            });
+            description.add("Tags", tagList);
+            description.add("SecretVersionsToStages", describeVersionStages());
+            return description;
+        }
+
+        private JsonObject describeMetadata() {
+
+            JsonObject description = describeListEntry();
+            description.remove("SecretVersionsToStages");
+            description.add("VersionIdsToStages", describeVersionStages());
+            return description;
+        }
+
+        private JsonObject describeVersionStages() {
+
+            JsonObject versionStages = new JsonObject();
+            JsonArray stages = new JsonArray();
+            stages.add("AWSCURRENT");
+            versionStages.add(versionId, stages);
+            if (previousVersionId != null) {
+                JsonArray previousStages = new JsonArray();
+                previousStages.add("AWSPREVIOUS");
+                versionStages.add(previousVersionId, previousStages);
+            }
+            return versionStages;
+        }
+    }
+}
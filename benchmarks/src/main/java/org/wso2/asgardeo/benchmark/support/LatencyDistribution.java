@@ -0,0 +1,99 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark.support;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * This Java Class samples the artificial latency added to each call served by {@link FakeSecretsManagerServer}.
+ * Distributions are described by specs of the form {@code none}, {@code fixed:<ms>}, {@code uniform:<min>-<max>}
+ * or {@code exponential:<mean>}, all in milliseconds.
+ */
+public abstract class LatencyDistribution {
+
+    public static final LatencyDistribution NONE = fixed(0);
+
+    /**
+     * Samples the latency for a single call.
+     *
+     * @return Latency in milliseconds.
+     */
+    public abstract long sampleMillis();
+
+    public static LatencyDistribution fixed(long millis) {
+
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+
+                return millis;
+            }
+        };
+    }
+
+    public static LatencyDistribution uniform(long minMillis, long maxMillis) {
+
+        if (maxMillis < minMillis) {
+            throw new IllegalArgumentException("Maximum latency must not be less than the minimum latency.");
+        }
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+
+                return ThreadLocalRandom.current().nextLong(minMillis, maxMillis + 1);
+            }
+        };
+    }
+
+    public static LatencyDistribution exponential(double meanMillis) {
+
+        return new LatencyDistribution() {
+            @Override
+            public long sampleMillis() {
+
+                return Math.round(-meanMillis * Math.log(1.0 - ThreadLocalRandom.current().nextDouble()));
+            }
+        };
+    }
+
+    /**
+     * Parses a latency distribution spec.
+     *
+     * @param spec Spec such as {@code uniform:10-30}.
+     * @return Parsed distribution.
+     * @throws IllegalArgumentException if the spec is malformed.
+     */
+    public static LatencyDistribution parse(String spec) {
+
+        if (spec == null || spec.trim().isEmpty() || "none".equals(spec.trim())) {
+            return NONE;
+        }
+        String[] parts = spec.trim().split(":", 2);
+        try {
+            switch (parts[0]) {
+                case "fixed":
+                    return fixed(Long.parseLong(parts[1]));
+                case "uniform":
+                    String[] bounds = parts[1].split("-", 2);
+                    return uniform(Long.parseLong(bounds[0]), Long.parseLong(bounds[1]));
+                case "exponential":
+                    return exponential(Double.parseDouble(parts[1]));
+                default:
+                    throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed latency distribution: " + spec, e);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.benchmark.support;
+
+/**
+ * This Java Class describes how {@link FakeSecretsManagerServer} serves calls to an operation: the latency added
+ * to every call, the fraction of calls rejected with a ThrottlingException, and the fraction of calls failed with
+ * an InternalServiceError.
+ */
+public class OperationBehavior {
+
+    public static final OperationBehavior DEFAULT = new OperationBehavior(LatencyDistribution.NONE, 0, 0);
+
+    private final LatencyDistribution latency;
+    private final double throttleRate;
+    private final double failureRate;
+
+    public OperationBehavior(LatencyDistribution latency, double throttleRate, double failureRate) {
+
+        if (throttleRate < 0 || failureRate < 0 || throttleRate + failureRate > 1) {
+            throw new IllegalArgumentException("Throttle and failure rates must be non-negative and add up to at most 1.");
+        }
+        this.latency = latency;
+        this.throttleRate = throttleRate;
+        this.failureRate = failureRate;
+    }
+
+    public LatencyDistribution getLatency() {
+
+        return latency;
+    }
+
+    public double getThrottleRate() {
+
+        return throttleRate;
+    }
+
+    public double getFailureRate() {
+
+        return failureRate;
+    }
+}
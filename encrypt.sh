@@ -24,8 +24,46 @@ echo "--------------------------------------------------------"
 function print_usage {
     echo -e "\nUsage: $0 [options]\n";
     echo -e "Options:\n"
-    echo -e "  --aws-region <region>         - AWS Region where secrets are stored (e.g., us-east-1)";
+    echo -e "  --aws-region <region>         - AWS Region where secrets are stored (e.g., us-east-1), or a comma separated list of regions processed concurrently";
     echo -e "  --pem-cert-secret-name <name> - Name of the STRING secret in Secrets Manager holding the full PEM public certificate";
+    echo -e "  --endpoint-url <url>          - (Optional) Override the Secrets Manager endpoint, e.g. a local stand-in for load testing";
+    echo -e "  --max-concurrency <n>         - (Optional) Maximum concurrent requests to Secrets Manager (default: 10)";
+    echo -e "  --batch-get                   - (Optional) Retrieve secrets in batches of 20 using BatchGetSecretValue";
+    echo -e "  --encryption-parallelism <n>  - (Optional) Number of threads used to encrypt secrets (default: available processors)";
+    echo -e "  --update-max-concurrency <n>  - (Optional) Upper bound of the adaptive update concurrency limit (default: 50)";
+    echo -e "  --update-max-retries <n>      - (Optional) Maximum retries of a throttled update per secret (default: 8)";
+    echo -e "  --conditional-update          - (Optional) Write with idempotent PutSecretValue and fail secrets written to since they were read";
+    echo -e "  --pipeline                    - (Optional) Fetch, encrypt and update secrets as concurrent streaming stages";
+    echo -e "  --pipeline-queue-capacity <n> - (Optional) Capacity of each queue between pipeline stages (default: 100)";
+    echo -e "  --incremental                 - (Optional) Skip secrets already encrypted with the current certificate";
+    echo -e "  --envelope                    - (Optional) Encrypt secrets with AES-GCM under a single RSA-wrapped data key";
+    echo -e "  --discover-name-prefix <p>    - (Optional) Discover secrets with ListSecrets by name prefix instead of secrets.json";
+    echo -e "  --discover-tag-key <key>      - (Optional) Discover secrets with ListSecrets by tag key instead of secrets.json";
+    echo -e "  --discover-tag-value <value>  - (Optional) Discover secrets with ListSecrets by tag value instead of secrets.json";
+    echo -e "  --manifest-file <file>        - (Optional) Stream secret names from this JSON or newline-delimited file instead of secrets.json";
+    echo -e "  --manifest-format <format>    - (Optional) Format of the manifest file: json or ndjson (default: from the file extension)";
+    echo -e "  --manifests-file <file>       - (Optional) Process the manifests listed in this JSON file, each with its own certificate secret";
+    echo -e "  --manifest-parallelism <n>    - (Optional) Number of manifests processed at once with --manifests-file (default: 4)";
+    echo -e "  --batch-size <n>              - (Optional) Discovered or streamed secrets processed per batch when not pipelining (default: 1000)";
+    echo -e "  --shard-index <i>             - (Optional) Process only shard i (0-based) of the secrets; requires --shard-count";
+    echo -e "  --shard-count <n>             - (Optional) Number of nodes the secrets are split across by a stable hash of their names";
+    echo -e "  --journal <file>              - (Optional) Record per-secret progress in this file so that an interrupted run can be resumed";
+    echo -e "  --resume                      - (Optional) Continue the run recorded in the journal, skipping secrets it already updated";
+    echo -e "  --rewrap-keystore <file>      - (Optional) Keystore with the previous certificate's private key; re-encrypts its ciphertext under the new certificate";
+    echo -e "  --rewrap-keystore-type <type> - (Optional) Type of the re-wrap keystore, e.g. PKCS12 or JKS (default: JVM default)";
+    echo -e "  --rewrap-key-alias <alias>    - (Optional) Alias of the previous private key (default: the only key in the keystore)";
+    echo -e "  --verify-keystore <file>      - (Optional) Keystore with the certificate's private key; decrypts each secret and aborts on a mismatch before it is written";
+    echo -e "  --verify-keystore-type <type> - (Optional) Type of the verification keystore, e.g. PKCS12 or JKS (default: JVM default)";
+    echo -e "  --verify-key-alias <alias>    - (Optional) Alias of the private key (default: the only key in the keystore)";
+    echo -e "  --verify-transformation <t>   - (Optional) Transformation consuming services decrypt with (default: RSA/ECB/PKCS1Padding)";
+    echo -e "  --certificate-cache <file>    - (Optional) Keep the public keys of parsed certificates in this file between runs";
+    echo -e "  --certificate-version-check   - (Optional) Only download a cached certificate secret again when DescribeSecret reports a new version";
+    echo -e "  --structured-log <file>       - (Optional) Write per-secret events as JSON lines from a background thread ('-' for stdout)";
+    echo -e "  --structured-log-buffer <n>   - (Optional) Events buffered for the structured log writer before events are dropped (default: 8192)";
+    echo -e "  --fast-startup                - (Optional) Favour JVM startup time; uses the AppCDS archive of a 'mvn package -Pstartup' build if present";
+    echo -e "                                  The archive needs JDK 13+ and only works on the JDK that built it; rebuild it after a JDK change";
+    echo -e "  --metrics-report <file>       - (Optional) Write a JSON report with timings and per-secret outcomes";
+    echo -e "  --prometheus-textfile <file>  - (Optional) Write run metrics for the Prometheus node exporter textfile collector";
     echo -e "\nExample:\n"
     echo -e "  $0 --aws-region us-west-2 --pem-cert-secret-name wso2is/internal-cert-pem\n"
     echo -e "Prerequisites:"
@@ -34,12 +72,53 @@ function print_usage {
     echo -e "  - AWS credentials configured (environment variables, ~/.aws/credentials, or IAM role)"
     echo -e "  - Secrets listed in src/main/resources/secrets.json must exist in the specified AWS region."
     echo -e "  - The certificate secret must exist and contain the public key certificate binary (PEM format recommended)."
+    echo -e "  - With --rewrap-keystore, the keystore password is read from the REWRAP_KEYSTORE_PASSWORD environment variable"
+    echo -e "    and the key password, if different, from REWRAP_KEY_PASSWORD."
+    echo -e "  - With --verify-keystore, the keystore password is read from the VERIFY_KEYSTORE_PASSWORD environment variable"
+    echo -e "    and the key password, if different, from VERIFY_KEY_PASSWORD."
     exit 1;
 }
 
 # Global variables
 aws_region=""
 pem_cert_secret_name=""
+endpoint_url=""
+max_concurrency=""
+batch_get="false"
+encryption_parallelism=""
+update_max_concurrency=""
+update_max_retries=""
+conditional_update="false"
+pipeline="false"
+pipeline_queue_capacity=""
+incremental="false"
+envelope="false"
+discover_name_prefix=""
+discover_tag_key=""
+discover_tag_value=""
+manifest_file=""
+manifest_format=""
+manifests_file=""
+manifest_parallelism=""
+batch_size=""
+shard_index=""
+shard_count=""
+journal=""
+resume="false"
+rewrap_keystore=""
+rewrap_keystore_type=""
+rewrap_key_alias=""
+verify_keystore=""
+verify_keystore_type=""
+verify_key_alias=""
+verify_transformation=""
+certificate_cache=""
+certificate_version_check="false"
+structured_log=""
+structured_log_buffer=""
+fast_startup="false"
+metrics_report=""
+prometheus_textfile=""
 
 # Parse arguments
 while [[ $# -gt 0 ]]; do
@@ -52,25 +131,200 @@ while [[ $# -gt 0 ]]; do
         --pem-cert-secret-name)
         pem_cert_secret_name="$2"
         shift 2 ;;
+        --endpoint-url)
+        endpoint_url="$2"
+        shift 2 ;;
+        --max-concurrency)
+        max_concurrency="$2"
+        shift 2 ;;
+        --batch-get)
+        batch_get="true"
+        shift ;;
+        --encryption-parallelism)
+        encryption_parallelism="$2"
+        shift 2 ;;
+        --update-max-concurrency)
+        update_max_concurrency="$2"
+        shift 2 ;;
+        --update-max-retries)
+        update_max_retries="$2"
+        shift 2 ;;
+        --conditional-update)
+        conditional_update="true"
+        shift ;;
+        --pipeline)
+        pipeline="true"
+        shift ;;
+        --pipeline-queue-capacity)
+        pipeline_queue_capacity="$2"
+        shift 2 ;;
+        --incremental)
+        incremental="true"
+        shift ;;
+        --envelope)
+        envelope="true"
+        shift ;;
+        --discover-name-prefix)
+        discover_name_prefix="$2"
+        shift 2 ;;
+        --discover-tag-key)
+        discover_tag_key="$2"
+        shift 2 ;;
+        --discover-tag-value)
+        discover_tag_value="$2"
+        shift 2 ;;
+        --manifest-file)
+        manifest_file="$2"
+        shift 2 ;;
+        --manifest-format)
+        manifest_format="$2"
+        shift 2 ;;
+        --manifests-file)
+        manifests_file="$2"
+        shift 2 ;;
+        --manifest-parallelism)
+        manifest_parallelism="$2"
+        shift 2 ;;
+        --batch-size)
+        batch_size="$2"
+        shift 2 ;;
+        --shard-index)
+        shard_index="$2"
+        shift 2 ;;
+        --shard-count)
+        shard_count="$2"
+        shift 2 ;;
+        --journal)
+        journal="$2"
+        shift 2 ;;
+        --resume)
+        resume="true"
+        shift ;;
+        --rewrap-keystore)
+        rewrap_keystore="$2"
+        shift 2 ;;
+        --rewrap-keystore-type)
+        rewrap_keystore_type="$2"
+        shift 2 ;;
+        --rewrap-key-alias)
+        rewrap_key_alias="$2"
+        shift 2 ;;
+        --verify-keystore)
+        verify_keystore="$2"
+        shift 2 ;;
+        --verify-keystore-type)
+        verify_keystore_type="$2"
+        shift 2 ;;
+        --verify-key-alias)
+        verify_key_alias="$2"
+        shift 2 ;;
+        --verify-transformation)
+        verify_transformation="$2"
+        shift 2 ;;
+        --certificate-cache)
+        certificate_cache="$2"
+        shift 2 ;;
+        --certificate-version-check)
+        certificate_version_check="true"
+        shift ;;
+        --structured-log)
+        structured_log="$2"
+        shift 2 ;;
+        --structured-log-buffer)
+        structured_log_buffer="$2"
+        shift 2 ;;
+        --fast-startup)
+        fast_startup="true"
+        shift ;;
+        --metrics-report)
+        metrics_report="$2"
+        shift 2 ;;
+        --prometheus-textfile)
+        prometheus_textfile="$2"
+        shift 2 ;;
         *) echo "Unknown option: $1"; print_usage ;;
     esac
 done
 
 # Check if required arguments are provided
-if [[ -z "${aws_region}" ]] || [[ -z "${pem_cert_secret_name}" ]]; then
+# Each manifest of a --manifests-file names its own certificate secret
+if [[ -z "${aws_region}" ]] || [[ -z "${pem_cert_secret_name}" && -z "${manifests_file}" ]]; then
     echo "Error: Missing required arguments."
     print_usage
 fi
 
 echo ""
 echo "Configuration:"
-echo "  AWS Region             : ${aws_region}"
+echo "  AWS Region(s)          : ${aws_region}"
 echo "  PEM Cert Secret Name   : ${pem_cert_secret_name}"
+if [[ -n "${endpoint_url}" ]]; then
+    echo "  Endpoint Override      : ${endpoint_url}"
+fi
+if [[ -n "${max_concurrency}" ]]; then
+    echo "  Max Concurrency        : ${max_concurrency}"
+fi
+echo "  Batch Retrieval        : ${batch_get}"
+if [[ -n "${encryption_parallelism}" ]]; then
+    echo "  Encryption Parallelism : ${encryption_parallelism}"
+fi
+echo "  Conditional Update     : ${conditional_update}"
+echo "  Pipelined Execution    : ${pipeline}"
+echo "  Incremental            : ${incremental}"
+echo "  Envelope Encryption    : ${envelope}"
+if [[ -n "${discover_name_prefix}" ]]; then
+    echo "  Discover Name Prefix   : ${discover_name_prefix}"
+fi
+if [[ -n "${discover_tag_key}" ]]; then
+    echo "  Discover Tag Key       : ${discover_tag_key}"
+fi
+if [[ -n "${discover_tag_value}" ]]; then
+    echo "  Discover Tag Value     : ${discover_tag_value}"
+fi
+if [[ -n "${manifest_file}" ]]; then
+    echo "  Manifest File          : ${manifest_file}"
+fi
+if [[ -n "${manifests_file}" ]]; then
+    echo "  Manifests File         : ${manifests_file}"
+fi
+if [[ -n "${manifest_parallelism}" ]]; then
+    echo "  Manifest Parallelism   : ${manifest_parallelism}"
+fi
+if [[ -n "${batch_size}" ]]; then
+    echo "  Batch Size             : ${batch_size}"
+fi
+if [[ -n "${shard_index}" ]] || [[ -n "${shard_count}" ]]; then
+    echo "  Shard                  : ${shard_index} of ${shard_count}"
+fi
+if [[ -n "${journal}" ]]; then
+    echo "  Journal                : ${journal}"
+fi
+echo "  Resume                 : ${resume}"
+if [[ -n "${rewrap_keystore}" ]]; then
+    echo "  Re-wrap Keystore       : ${rewrap_keystore}"
+fi
+if [[ -n "${verify_keystore}" ]]; then
+    echo "  Verification Keystore  : ${verify_keystore}"
+fi
+if [[ -n "${certificate_cache}" ]]; then
+    echo "  Certificate Cache      : ${certificate_cache}"
+fi
+echo "  Cert Version Check     : ${certificate_version_check}"
+if [[ -n "${structured_log}" ]]; then
+    echo "  Structured Log         : ${structured_log}"
+fi
+echo "  Fast Startup           : ${fast_startup}"
+if [[ -n "${metrics_report}" ]]; then
+    echo "  Metrics Report         : ${metrics_report}"
+fi
+if [[ -n "${prometheus_textfile}" ]]; then
+    echo "  Prometheus Textfile    : ${prometheus_textfile}"
+fi
 echo ""
 
 # --- Set paths ---
 readonly SCRIPT_DIR=$(dirname "$0")
 readonly JAR_FILE="${SCRIPT_DIR}/target/aws-encryption-manager.jar"
+readonly CDS_ARCHIVE_FILE="${SCRIPT_DIR}/target/aws-encryption-manager.jsa"
 readonly JAVA_CMD=$(which java)
 
 # --- Logging functions ---
@@ -101,12 +355,137 @@ if [[ -z "$AWS_ACCESS_KEY_ID" && -z "$AWS_SECRET_ACCESS_KEY" && -z "$AWS_SESSION
 fi
 
 
+# --- Optional system properties ---
+optional_props=()
+jvm_opts=()
+if [[ "${fast_startup}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.startup.optimized=true")
+    if [[ -f "${CDS_ARCHIVE_FILE}" ]]; then
+        jvm_opts+=("-XX:SharedArchiveFile=${CDS_ARCHIVE_FILE}")
+    else
+        log_info "AppCDS archive not found: ${CDS_ARCHIVE_FILE}. Build with 'mvn clean package -Pstartup' to create it."
+    fi
+fi
+if [[ -n "${endpoint_url}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.aws.endpoint.override=${endpoint_url}")
+fi
+if [[ -n "${max_concurrency}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.aws.max.concurrency=${max_concurrency}")
+fi
+if [[ "${batch_get}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.aws.batch.get=true")
+fi
+if [[ -n "${encryption_parallelism}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.encryption.parallelism=${encryption_parallelism}")
+fi
+if [[ -n "${update_max_concurrency}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.aws.update.max.concurrency=${update_max_concurrency}")
+fi
+if [[ -n "${update_max_retries}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.aws.update.max.retries=${update_max_retries}")
+fi
+if [[ "${conditional_update}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.aws.update.conditional=true")
+fi
+if [[ "${pipeline}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.pipeline.enabled=true")
+fi
+if [[ -n "${pipeline_queue_capacity}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.pipeline.queue.capacity=${pipeline_queue_capacity}")
+fi
+if [[ "${incremental}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.incremental.enabled=true")
+fi
+if [[ "${envelope}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.encryption.envelope.enabled=true")
+fi
+if [[ -n "${discover_name_prefix}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.discovery.name.prefix=${discover_name_prefix}")
+fi
+if [[ -n "${discover_tag_key}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.discovery.tag.key=${discover_tag_key}")
+fi
+if [[ -n "${discover_tag_value}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.discovery.tag.value=${discover_tag_value}")
+fi
+if [[ -n "${manifest_file}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.manifest.file=${manifest_file}")
+fi
+if [[ -n "${manifest_format}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.manifest.format=${manifest_format}")
+fi
+if [[ -n "${manifests_file}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.manifests.file=${manifests_file}")
+fi
+if [[ -n "${manifest_parallelism}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.manifests.parallelism=${manifest_parallelism}")
+fi
+if [[ -n "${batch_size}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.batch.size=${batch_size}")
+fi
+if [[ -n "${shard_index}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.shard.index=${shard_index}")
+fi
+if [[ -n "${shard_count}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.shard.count=${shard_count}")
+fi
+if [[ -n "${journal}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.journal.file=${journal}")
+fi
+if [[ "${resume}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.journal.resume=true")
+fi
+if [[ -n "${rewrap_keystore}" ]]; then
+    # Passwords stay in the environment, which the JVM reads directly; JVM arguments are visible to other users
+    optional_props+=("-Dorg.wso2.asgardeo.rewrap.keystore.file=${rewrap_keystore}")
+    export REWRAP_KEYSTORE_PASSWORD REWRAP_KEY_PASSWORD
+fi
+if [[ -n "${rewrap_keystore_type}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.rewrap.keystore.type=${rewrap_keystore_type}")
+fi
+if [[ -n "${rewrap_key_alias}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.rewrap.key.alias=${rewrap_key_alias}")
+fi
+if [[ -n "${verify_keystore}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.verify.keystore.file=${verify_keystore}")
+    export VERIFY_KEYSTORE_PASSWORD VERIFY_KEY_PASSWORD
+fi
+if [[ -n "${verify_keystore_type}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.verify.keystore.type=${verify_keystore_type}")
+fi
+if [[ -n "${verify_key_alias}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.verify.key.alias=${verify_key_alias}")
+fi
+if [[ -n "${verify_transformation}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.verify.transformation=${verify_transformation}")
+fi
+if [[ -n "${certificate_cache}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.certificate.cache.file=${certificate_cache}")
+fi
+if [[ "${certificate_version_check}" == "true" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.certificate.cache.version.check=true")
+fi
+if [[ -n "${structured_log}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.log.structured.file=${structured_log}")
+fi
+if [[ -n "${structured_log_buffer}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.log.structured.buffer.size=${structured_log_buffer}")
+fi
+if [[ -n "${metrics_report}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.metrics.report.file=${metrics_report}")
+fi
+if [[ -n "${prometheus_textfile}" ]]; then
+    optional_props+=("-Dorg.wso2.asgardeo.metrics.prometheus.file=${prometheus_textfile}")
+fi
+
 # --- Execute Application ---
 log_info "Executing Encryption Manager JAR..."
 
 if ! "${JAVA_CMD}" \
+    "${jvm_opts[@]}" \
     -Dorg.wso2.asgardeo.aws.region="${aws_region}" \
     -Dorg.wso2.asgardeo.aws.pem.cert.secret.name="${pem_cert_secret_name}" \
+    "${optional_props[@]}" \
     -jar "${JAR_FILE}"
 then
     log_error "Failed to execute the encryption manager JAR."
@@ -0,0 +1,138 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.encrypt;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.openssl.jcajce.JcaPEMWriter;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.utils.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This Java Class performs a training run of the tool for building a class data sharing (AppCDS) archive, see the
+ * startup profile of the build. It is compiled from its own source set by that profile only, and is never packaged.
+ * It runs the packaged jar in a separate JVM over the bundled secrets, against an in-process stand-in for AWS Secrets
+ * Manager holding a generated certificate, so that the classes of a real run are loaded without any AWS access.
+ * The archive is written by that JVM on exit, and records the class path of the jar alone, which is the class path
+ * the tool is run with.
+ * <p>
+ * Arguments: the packaged jar and the archive file to write.
+ */
+public class ClassDataSharingTraining {
+
+    private static final Logger log = LoggerFactory.getLogger(ClassDataSharingTraining.class);
+    private static final String CERT_SECRET_NAME = "training/cert";
+    private static final String TARGET_HEADER = "X-Amz-Target";
+    private static final String CONTENT_TYPE = "application/x-amz-json-1.1";
+
+    public static void main(String... args) throws Exception {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: ClassDataSharingTraining <jar> <archive>");
+        }
+        String certificatePem = generateCertificatePem();
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> respond(exchange, certificatePem));
+        server.start();
+        try {
+            List<String> command = new ArrayList<>();
+            command.add(new File(System.getProperty("java.home"), "bin/java").getPath());
+            command.add("-XX:ArchiveClassesAtExit=" + args[1]);
+            command.add("-D" + Constants.AWS_REGION_SYS_PROPERTY_KEY + "=us-east-1");
+            command.add("-D" + Constants.AWS_ENDPOINT_OVERRIDE_SYS_PROPERTY_KEY + "=http://127.0.0.1:"
+                    + server.getAddress().getPort());
+            command.add("-D" + Constants.PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY + "=" + CERT_SECRET_NAME);
+            command.add("-D" + Constants.STARTUP_OPTIMIZED_SYS_PROPERTY_KEY + "=true");
+            command.add("-jar");
+            command.add(args[0]);
+            ProcessBuilder builder = new ProcessBuilder(command).inheritIO();
+            // Picked up by the default credentials provider chain; the stand-in does not verify signatures.
+            builder.environment().put("AWS_ACCESS_KEY_ID", "training");
+            builder.environment().put("AWS_SECRET_ACCESS_KEY", "training");
+            int exitCode = builder.start().waitFor();
+            if (exitCode != 0) {
+                throw new IllegalStateException("Class data sharing training run failed with exit code " + exitCode);
+            }
+            log.info("Class data sharing training run completed.");
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Answers GetSecretValue with the certificate or a placeholder value, and UpdateSecret with a new version.
+     */
+    private static void respond(HttpExchange exchange, String certificatePem) throws IOException {
+        JsonObject request;
+        try (InputStreamReader reader = new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8)) {
+            request = new Gson().fromJson(reader, JsonObject.class);
+        }
+        String operation = String.valueOf(exchange.getRequestHeaders().getFirst(TARGET_HEADER));
+        String secretId = request.get("SecretId").getAsString();
+        JsonObject response = new JsonObject();
+        response.addProperty("ARN", "arn:aws:secretsmanager:us-east-1:000000000000:secret:" + secretId);
+        response.addProperty("Name", secretId);
+        if (operation.endsWith("GetSecretValue")) {
+            response.addProperty("SecretString", CERT_SECRET_NAME.equals(secretId) ? certificatePem
+                    : "training-value-of-" + secretId);
+            response.addProperty("VersionId", "training-version");
+            response.add("VersionStages", new Gson().toJsonTree(Collections.singletonList("AWSCURRENT")));
+        } else {
+            response.addProperty("VersionId", "training-version-" + System.nanoTime());
+        }
+        byte[] body = response.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream stream = exchange.getResponseBody()) {
+            stream.write(body);
+        }
+    }
+
+    private static String generateCertificatePem() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        KeyPair keyPair = generator.generateKeyPair();
+        long now = System.currentTimeMillis();
+        X500Name subject = new X500Name("CN=aws-encryption-manager-training");
+        StringWriter writer = new StringWriter();
+        try (JcaPEMWriter pemWriter = new JcaPEMWriter(writer)) {
+            pemWriter.writeObject(new JcaX509v3CertificateBuilder(subject, BigInteger.valueOf(now), new Date(now),
+                    new Date(now + TimeUnit.DAYS.toMillis(1)), subject, keyPair.getPublic())
+                    .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate())));
+        }
+        return writer.toString();
+    }
+}
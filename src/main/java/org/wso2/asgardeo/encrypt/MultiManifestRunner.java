@@ -0,0 +1,531 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.encrypt;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.InputSecrets;
+import org.wso2.asgardeo.model.ManifestJob;
+import org.wso2.asgardeo.model.ManifestJobs;
+import org.wso2.asgardeo.model.ManifestResult;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretOutcome;
+import org.wso2.asgardeo.model.SecretShard;
+import org.wso2.asgardeo.model.UpdateSummary;
+import org.wso2.asgardeo.utils.AdaptiveSecretUpdater;
+import org.wso2.asgardeo.utils.AwsSecretsManagerUtils;
+import org.wso2.asgardeo.utils.BatchFilteringIterator;
+import org.wso2.asgardeo.utils.CertificateCache;
+import org.wso2.asgardeo.utils.CertificateCache.CachedCertificate;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.Constants;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+import org.wso2.asgardeo.utils.ManifestSecretIterator;
+import org.wso2.asgardeo.utils.RegionalClientPool;
+import org.wso2.asgardeo.utils.RegionalClientPool.RegionClients;
+import org.wso2.asgardeo.utils.RunJournal;
+import org.wso2.asgardeo.utils.RunMetrics;
+import org.wso2.asgardeo.utils.RunReportWriter;
+import org.wso2.asgardeo.utils.SecretDecryptor;
+import org.wso2.asgardeo.utils.StructuredEventLog;
+import org.wso2.asgardeo.utils.SystemPropertyUtils;
+import software.amazon.awssdk.regions.Region;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This Java Class encrypts the secrets of several manifests in one run, each with the certificate held in its own
+ * certificate secret. Clients are shared per region, and each certificate is loaded once per region and secret
+ * name through the {@link CertificateCache} and its cipher pool shared by every manifest with the same certificate
+ * fingerprint.
+ * <p>
+ * Manifests take turns of one batch each: a worker takes the manifest at the head of a queue, retrieves, encrypts
+ * and updates its next batch, and puts it back at the tail. A large manifest therefore never holds back a small
+ * one for more than a batch, and the batches of all manifests are encrypted on one shared work-stealing pool. A
+ * failed manifest does not stop the others.
+ */
+public class MultiManifestRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(MultiManifestRunner.class);
+    private static final int DEFAULT_MANIFEST_PARALLELISM = 4;
+    private static final long TURN_POLL_MILLIS = 100;
+    private static final String PHASE_CERTIFICATE_PARSE = "certificate_parse";
+    private static final String PHASE_INCREMENTAL_CHECK = "incremental_check";
+    private static final String PHASE_RETRIEVE = "retrieve";
+    private static final String PHASE_ENCRYPT = "encrypt";
+    private static final String PHASE_UPDATE = "update";
+
+    private final RegionalClientPool clientPool;
+    private final CertificateCache certificateCache;
+    private final ForkJoinPool encryptionPool;
+    private final SecretShard shard;
+    private final boolean incremental;
+    private final int batchSize;
+    private final int maxConcurrency;
+    private final int manifestParallelism;
+    private final ConcurrentMap<String, CertificateKeys> certificatesByFingerprint = new ConcurrentHashMap<>();
+    // A secret listed in two manifests would otherwise be encrypted twice; keyed by region and name, since
+    // manifests of different regions may list the same names for distinct secrets
+    private final Set<String> claimedSecretKeys = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param clientPool       Clients shared by the manifests of each region.
+     * @param certificateCache Cache the certificates of the manifests are loaded through.
+     * @param encryptionPool   Encryption workers shared by all manifests.
+     * @param shard            Shard of the secrets to process, or null if the run is not sharded.
+     */
+    public MultiManifestRunner(RegionalClientPool clientPool, CertificateCache certificateCache,
+                               ForkJoinPool encryptionPool, SecretShard shard) {
+        this.clientPool = clientPool;
+        this.certificateCache = certificateCache;
+        this.encryptionPool = encryptionPool;
+        this.shard = shard;
+        this.incremental = AwsSecretsManagerUtils.isIncrementalEnabled();
+        this.batchSize = AwsSecretsManagerUtils.resolveBatchSize();
+        this.maxConcurrency = AwsSecretsManagerUtils.resolveMaxConcurrency();
+        this.manifestParallelism = SystemPropertyUtils.getPositiveInt(Constants.MANIFEST_PARALLELISM_SYS_PROPERTY_KEY,
+                DEFAULT_MANIFEST_PARALLELISM);
+    }
+
+    /**
+     * Checks whether a manifests file is configured, in which case {@link PasswordEncryptor} hands the run over.
+     *
+     * @return true if several manifests are to be processed.
+     */
+    public static boolean isConfigured() {
+        return SystemPropertyUtils.getString(Constants.MANIFESTS_FILE_SYS_PROPERTY_KEY) != null;
+    }
+
+    public static void main(String... args) {
+        log.info("Starting AWS Encryption Manager multi-manifest process...");
+        long runStartEpochMillis = System.currentTimeMillis();
+        long runStartNanos = System.nanoTime();
+
+        RegionalClientPool clientPool = new RegionalClientPool();
+        ForkJoinPool encryptionPool = null;
+        CertificateCache certificateCache = null;
+        StructuredEventLog eventLog = null;
+        boolean succeeded = false;
+        try {
+            eventLog = StructuredEventLog.openConfigured();
+            List<ManifestJob> jobs = loadManifestJobs(
+                    SystemPropertyUtils.getString(Constants.MANIFESTS_FILE_SYS_PROPERTY_KEY));
+            checkSupportedOptions();
+            SecretShard shard = EncryptionUtils.resolveShard();
+            if (shard != null) {
+                RunMetrics.recordShard(shard);
+                log.info("Processing shard {} of {} shards.", shard.getIndex(), shard.getCount());
+            }
+            certificateCache = CertificateCache.openConfigured();
+            encryptionPool = new ForkJoinPool(EncryptionUtils.resolveEncryptionParallelism());
+
+            List<String> failedManifests = new ArrayList<>();
+            MultiManifestRunner runner = new MultiManifestRunner(clientPool, certificateCache, encryptionPool, shard);
+            for (ManifestResult result : runner.run(jobs)) {
+                if (!result.isSucceeded()) {
+                    failedManifests.add(result.getJob().getName());
+                }
+            }
+            if (!failedManifests.isEmpty()) {
+                throw new EncryptionException("Processing failed for manifests: " + String.join(", ", failedManifests));
+            }
+            log.info("AWS Encryption Manager multi-manifest process completed successfully.");
+            succeeded = true;
+
+        } catch (EncryptionException e) {
+            log.error("Process failed due to EncryptionException: {}", e.getMessage(), e.getCause() != null ? e.getCause() : e);
+        } catch (Exception e) {
+            log.error("An unexpected error occurred during the process: {}", e.getMessage(), e);
+        } finally {
+            if (certificateCache != null) {
+                certificateCache.save();
+            }
+            if (encryptionPool != null) {
+                encryptionPool.shutdown();
+            }
+            clientPool.close();
+            if (eventLog != null) {
+                try {
+                    eventLog.close();
+                } catch (IOException e) {
+                    log.warn("Error closing structured log: {}", e.getMessage());
+                }
+            }
+            RunReportWriter.writeConfiguredReports(succeeded, runStartEpochMillis, System.nanoTime() - runStartNanos);
+        }
+        if (!succeeded) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Processes every manifest, taking turns of one batch, and waits for all of them to finish.
+     *
+     * @param jobs Manifests to process.
+     * @return Result of each manifest, in the order the manifests finished.
+     * @throws InterruptedException if interrupted while waiting for the manifests.
+     */
+    public List<ManifestResult> run(List<ManifestJob> jobs) throws InterruptedException {
+        List<ManifestTask> tasks = new ArrayList<>(jobs.size());
+        for (ManifestJob job : jobs) {
+            tasks.add(new ManifestTask(job));
+        }
+        BlockingQueue<ManifestTask> turns = new LinkedBlockingQueue<>(tasks);
+        AtomicInteger unfinished = new AtomicInteger(tasks.size());
+        int workerCount = Math.min(manifestParallelism, tasks.size());
+        log.info("Processing {} manifests, {} at a time, in batches of up to {} secrets.", tasks.size(), workerCount,
+                batchSize);
+
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(workerCount, runnable -> {
+            Thread thread = new Thread(runnable, "manifest-worker-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(workerCount);
+            for (int i = 0; i < workerCount; i++) {
+                futures.add(workers.submit(() -> {
+                    takeTurns(turns, unfinished);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    throw new EncryptionException("Unexpected error processing manifests", e.getCause());
+                }
+            }
+        } finally {
+            workers.shutdownNow();
+            // Only left in the queue if a worker stopped unexpectedly; a task being processed finishes itself
+            List<ManifestTask> waiting = new ArrayList<>();
+            turns.drainTo(waiting);
+            for (ManifestTask task : waiting) {
+                task.abandon();
+            }
+        }
+        return RunMetrics.getManifestResults();
+    }
+
+    /**
+     * Processes one batch of the manifest at the head of the queue at a time, until every manifest has finished.
+     */
+    private static void takeTurns(BlockingQueue<ManifestTask> turns, AtomicInteger unfinished)
+            throws InterruptedException {
+        while (unfinished.get() > 0) {
+            // Empty while the remaining manifests are taking their turns on other workers
+            ManifestTask task = turns.poll(TURN_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (task == null) {
+                continue;
+            }
+            if (task.processNextBatch()) {
+                turns.add(task);
+            } else {
+                unfinished.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Loads the certificate in a certificate secret through the certificate cache, and creates its cipher pool unless
+     * another manifest uses the same certificate.
+     */
+    private CertificateKeys loadCertificate(RegionClients clients, String pemCertSecretName) {
+        CachedCertificate certificate = certificateCache.get(clients, pemCertSecretName);
+        return certificatesByFingerprint.computeIfAbsent(certificate.getFingerprint(), fingerprint -> {
+            long phaseStart = System.nanoTime();
+            try {
+                CipherPool cipherPool = EncryptionUtils.initializeCipherPool(certificate.getPublicKey(), fingerprint);
+                EncryptionUtils.initializeVerification(cipherPool);
+                if (incremental) {
+                    cipherPool.enableEncryptedValueDetection();
+                }
+                return new CertificateKeys(cipherPool, EncryptionUtils.initializeRewrapDecryptor(fingerprint));
+            } finally {
+                RunMetrics.recordPhase(PHASE_CERTIFICATE_PARSE, phaseStart);
+            }
+        });
+    }
+
+    private static Region resolveRegion(ManifestJob job) {
+        if (job.getRegion() != null && !job.getRegion().trim().isEmpty()) {
+            return Region.of(job.getRegion().trim());
+        }
+        List<Region> regions = AwsSecretsManagerUtils.resolveRegions();
+        if (regions.size() > 1) {
+            throw new EncryptionException("Manifest '" + job.getName() + "' does not name its region, and several "
+                    + "regions are configured.");
+        }
+        return regions.get(0);
+    }
+
+    /**
+     * Reads the manifests to process from a JSON file with a "manifests" array.
+     *
+     * @param manifestsFile Path of the file.
+     * @return Manifests in file order.
+     * @throws EncryptionException if the file cannot be read, or a manifest is incomplete or listed twice.
+     */
+    static List<ManifestJob> loadManifestJobs(String manifestsFile) {
+        ManifestJobs manifestJobs;
+        try (Reader reader = Files.newBufferedReader(Paths.get(manifestsFile), StandardCharsets.UTF_8)) {
+            manifestJobs = new Gson().fromJson(reader, ManifestJobs.class);
+        } catch (IOException e) {
+            throw new EncryptionException("Could not read manifests file: " + manifestsFile, e);
+        } catch (JsonParseException e) {
+            throw new EncryptionException("Manifests file is not valid JSON: " + manifestsFile, e);
+        }
+        if (manifestJobs == null || manifestJobs.getManifests() == null || manifestJobs.getManifests().isEmpty()) {
+            throw new EncryptionException("Manifests file lists no manifests: " + manifestsFile);
+        }
+        Set<String> names = new HashSet<>();
+        for (ManifestJob job : manifestJobs.getManifests()) {
+            if (job == null || job.getManifestFile() == null || job.getPemCertSecretName() == null) {
+                throw new EncryptionException("Each manifest in " + manifestsFile + " must set manifestFile and "
+                        + "pemCertSecretName.");
+            }
+            if (!names.add(job.getName())) {
+                throw new EncryptionException("Manifest '" + job.getName() + "' is listed more than once in "
+                        + manifestsFile + ".");
+            }
+        }
+        log.info("Loaded {} manifests from {}.", manifestJobs.getManifests().size(), manifestsFile);
+        return manifestJobs.getManifests();
+    }
+
+    private static void checkSupportedOptions() {
+        if (EncryptionUtils.resolveManifestFile() != null || AwsSecretsManagerUtils.resolveDiscoveryFilter() != null) {
+            throw new EncryptionException("Secrets are read from the manifests in the manifests file. A manifest file "
+                    + "or discovery filter cannot be configured as well.");
+        }
+        if (SystemPropertyUtils.getBoolean(Constants.PIPELINE_ENABLED_SYS_PROPERTY_KEY)) {
+            throw new EncryptionException("Pipelined execution is not supported when processing several manifests.");
+        }
+        if (RunJournal.isConfigured()) {
+            throw new EncryptionException("The journal records the secrets of a single manifest. Run each manifest "
+                    + "separately to use a journal.");
+        }
+    }
+
+    /**
+     * The cipher pool of a certificate, and the decryptor of the previous certificate when re-wrapping.
+     */
+    private static final class CertificateKeys {
+
+        private final CipherPool cipherPool;
+        private final SecretDecryptor previousDecryptor;
+
+        private CertificateKeys(CipherPool cipherPool, SecretDecryptor previousDecryptor) {
+            this.cipherPool = cipherPool;
+            this.previousDecryptor = previousDecryptor;
+        }
+    }
+
+    /**
+     * The progress of one manifest. Only the worker whose turn it is touches a task; the turn queue hands it over.
+     */
+    private final class ManifestTask {
+
+        private final ManifestJob job;
+        private final List<String> secretNames = new ArrayList<>();
+        private boolean started;
+        private long startEpochMillis;
+        private long startNanos;
+        private RegionClients clients;
+        private String region;
+        private CertificateKeys keys;
+        private ManifestSecretIterator manifest;
+        private Iterator<String> pendingSecretNames;
+        private AdaptiveSecretUpdater updater;
+        private int batchCount;
+
+        private ManifestTask(ManifestJob job) {
+            this.job = job;
+        }
+
+        /**
+         * Retrieves, encrypts and updates the next batch of the manifest's secrets.
+         *
+         * @return true if the manifest may have more secrets, false once it has finished or failed.
+         */
+        boolean processNextBatch() {
+            try {
+                if (!started) {
+                    open();
+                }
+                InputSecrets batch = RegionRotation.nextBatch(pendingSecretNames, batchSize);
+                if (batch.getSecrets().isEmpty()) {
+                    finish(null);
+                    return false;
+                }
+                claimBatch(batch.getSecrets());
+                secretNames.addAll(batch.getSecrets());
+                batchCount++;
+                long batchStart = System.nanoTime();
+                UpdateSummary summaryBefore = updater.getSummary();
+
+                long phaseStart = batchStart;
+                List<Secret> secrets = AwsSecretsManagerUtils.isBatchGetEnabled()
+                        ? AwsSecretsManagerUtils.retrievePlainTextSecretsInBatches(batch, clients.getAsyncClient(),
+                        maxConcurrency)
+                        : AwsSecretsManagerUtils.retrievePlainTextSecretsAsync(batch, clients.getAsyncClient(),
+                        maxConcurrency);
+                RunMetrics.recordPhase(PHASE_RETRIEVE, phaseStart);
+
+                phaseStart = System.nanoTime();
+                EncryptionUtils.encryptPlainTextSecrets(secrets, keys.cipherPool, keys.previousDecryptor,
+                        encryptionPool);
+                RunMetrics.recordPhase(PHASE_ENCRYPT, phaseStart);
+
+                phaseStart = System.nanoTime();
+                try {
+                    updater.updateAll(secrets);
+                } finally {
+                    RunMetrics.recordPhase(PHASE_UPDATE, phaseStart);
+                }
+                StructuredEventLog.logBatchSummary("manifest '" + job.getName() + "'", batchCount,
+                        batch.getSecrets().size(), summaryBefore, updater.getSummary(),
+                        System.nanoTime() - batchStart);
+                return true;
+            } catch (EncryptionException e) {
+                log.error("Processing failed for manifest '{}': {}", job.getName(), e.getMessage(),
+                        e.getCause() != null ? e.getCause() : e);
+                finish(e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("An unexpected error occurred for manifest '{}': {}", job.getName(), e.getMessage(), e);
+                finish("Unexpected error: " + e.getMessage());
+            }
+            return false;
+        }
+
+        /**
+         * Loads the manifest's certificate and opens its manifest file on its first turn.
+         */
+        private void open() {
+            started = true;
+            startEpochMillis = System.currentTimeMillis();
+            startNanos = System.nanoTime();
+            clients = clientPool.get(resolveRegion(job));
+            region = clients.getRegion().id();
+            keys = loadCertificate(clients, job.getPemCertSecretName());
+            String incrementalFingerprint = incremental ? keys.cipherPool.getCertificateFingerprint() : null;
+            log.info("Processing manifest '{}' in region {} with the certificate with SHA-256 fingerprint {}.",
+                    job.getName(), region, keys.cipherPool.getCertificateFingerprint());
+
+            manifest = EncryptionUtils.openManifestFile(job.getManifestFile());
+            pendingSecretNames = RegionRotation.selectShard(manifest, shard, batchSize);
+            if (incrementalFingerprint != null) {
+                pendingSecretNames = new BatchFilteringIterator(pendingSecretNames, batch -> {
+                    long checkStart = System.nanoTime();
+                    try {
+                        return AwsSecretsManagerUtils.filterSecretsPendingEncryption(batch, incrementalFingerprint,
+                                clients.getAsyncClient(), maxConcurrency);
+                    } finally {
+                        RunMetrics.recordPhase(PHASE_INCREMENTAL_CHECK, checkStart);
+                    }
+                }, batchSize);
+            }
+            updater = AwsSecretsManagerUtils.createAdaptiveSecretUpdater(clients.getUpdateClient(),
+                    incrementalFingerprint);
+        }
+
+        /**
+         * Claims every secret of a batch in this manifest's region, or none of them if any is already claimed, so
+         * that a batch failing on a duplicate reports no secrets as not processed that were never attempted.
+         *
+         * @throws EncryptionException if a secret of the batch is listed more than once across the manifests.
+         */
+        private void claimBatch(List<String> batchSecretNames) {
+            List<String> claimedKeys = new ArrayList<>(batchSecretNames.size());
+            for (String secretName : batchSecretNames) {
+                String key = region + '/' + secretName;
+                if (!claimedSecretKeys.add(key)) {
+                    claimedSecretKeys.removeAll(claimedKeys);
+                    throw new EncryptionException("Secret '" + secretName + "' in region " + region
+                            + " is listed more than once across the manifests.");
+                }
+                claimedKeys.add(key);
+            }
+        }
+
+        /**
+         * Records the result of a manifest that had not finished when the run stopped.
+         */
+        void abandon() {
+            finish("The run stopped before the manifest was processed.");
+        }
+
+        private void finish(String failureMessage) {
+            if (manifest != null) {
+                try {
+                    manifest.close();
+                } catch (IOException e) {
+                    log.warn("Error closing manifest file {}: {}", job.getManifestFile(), e.getMessage());
+                }
+            }
+            Map<String, SecretOutcome> outcomes = new LinkedHashMap<>();
+            for (String secretName : secretNames) {
+                outcomes.put(secretName, RunMetrics.getOutcome(region, secretName));
+            }
+            ManifestResult result = new ManifestResult(job, region,
+                    keys != null ? keys.cipherPool.getCertificateFingerprint() : null, failureMessage == null,
+                    failureMessage, updater != null ? updater.getSummary() : null, startEpochMillis,
+                    started ? System.nanoTime() - startNanos : 0, batchCount, outcomes);
+            RunMetrics.recordManifestResult(result);
+            UpdateSummary summary = result.getUpdateSummary();
+            log.info("Manifest '{}' {} in {} ms - batches: {}, updated: {}, skipped: {}, retries: {}, throttled: {}{}",
+                    job.getName(), result.isSucceeded() ? "succeeded" : "failed",
+                    TimeUnit.NANOSECONDS.toMillis(result.getDurationNanos()), batchCount,
+                    summary != null ? summary.getUpdatedCount() : 0, summary != null ? summary.getSkippedCount() : 0,
+                    summary != null ? summary.getRetryCount() : 0, summary != null ? summary.getThrottledCount() : 0,
+                    result.isSucceeded() ? "" : " (" + failureMessage + ")");
+            if (job.getReportFile() != null) {
+                try {
+                    RunReportWriter.writeManifestReport(Paths.get(job.getReportFile()), result);
+                    log.info("Wrote report of manifest '{}' to {}", job.getName(), job.getReportFile());
+                } catch (IOException e) {
+                    log.error("Failed to write report of manifest '{}' to {}: {}", job.getName(), job.getReportFile(),
+                            e.getMessage(), e);
+                }
+            }
+        }
+    }
+}
@@ -16,87 +16,250 @@ package org.wso2.asgardeo.encrypt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.asgardeo.exception.EncryptionException;
-import org.wso2.asgardeo.model.InputSecrets;
-import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.RegionResult;
+import org.wso2.asgardeo.model.SecretShard;
+import org.wso2.asgardeo.model.UpdateSummary;
 import org.wso2.asgardeo.utils.AwsSecretsManagerUtils;
+import org.wso2.asgardeo.utils.CertificateCache;
+import org.wso2.asgardeo.utils.CertificateCache.CachedCertificate;
+import org.wso2.asgardeo.utils.CipherPool;
 import org.wso2.asgardeo.utils.EncryptionUtils;
-import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import org.wso2.asgardeo.utils.RegionalClientPool;
+import org.wso2.asgardeo.utils.RegionalClientPool.RegionClients;
+import org.wso2.asgardeo.utils.RunJournal;
+import org.wso2.asgardeo.utils.RunMetrics;
+import org.wso2.asgardeo.utils.RunReportWriter;
+import org.wso2.asgardeo.utils.SecretDecryptor;
+import org.wso2.asgardeo.utils.StructuredEventLog;
+import software.amazon.awssdk.regions.Region;
 
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import org.wso2.asgardeo.utils.Constants;
 
 public class PasswordEncryptor {
 
     private static final Logger log = LoggerFactory.getLogger(PasswordEncryptor.class);
-    private static final String PEM_BEGIN_MARKER = "-----BEGIN CERTIFICATE-----";
-    private static final String PEM_END_MARKER = "-----END CERTIFICATE-----";
+    private static final String PHASE_CLIENT_CREATION = "client_creation";
+    private static final String PHASE_CERTIFICATE_PARSE = "certificate_parse";
 
 
     public static void main(String... args) {
+        if (MultiManifestRunner.isConfigured()) {
+            MultiManifestRunner.main(args);
+            return;
+        }
         log.info("Starting AWS Encryption Manager process...");
+        long runStartEpochMillis = System.currentTimeMillis();
+        long runStartNanos = System.nanoTime();
 
-        SecretsManagerClient client = null;
+        RegionalClientPool clientPool = new RegionalClientPool();
+        ForkJoinPool encryptionPool = null;
+        RunJournal journal = null;
+        CertificateCache certificateCache = null;
+        StructuredEventLog eventLog = null;
+        boolean succeeded = false;
         try {
-            // 1. Create AWS Client
-            client = AwsSecretsManagerUtils.createSecretsManagerClient();
-
-            // 2. Load Secret Identifiers
-            InputSecrets inputSecrets = EncryptionUtils.loadInputSecrets();
-            // ... (check if inputSecrets is empty) ...
-
-            // 3. Retrieve Plain Text Secrets
-            List<Secret> secrets = AwsSecretsManagerUtils.retrievePlainTextSecrets(inputSecrets, client);
-            // ... (check if secrets is empty) ...
+            // Per-secret events are written as JSON lines by a background thread if a structured log is configured
+            eventLog = StructuredEventLog.openConfigured();
 
-            // 4. Retrieve the *full* Certificate String Secret
-            String pemCertSecretName = System.getProperty(Constants.PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY);
-            if (pemCertSecretName == null || pemCertSecretName.trim().isEmpty()) {
-                throw new EncryptionException("Public PEM certificate secret name not configured. Set system property: " + Constants.PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY);
+            // 1. Create AWS Clients, one set per region
+            long phaseStart = System.nanoTime();
+            List<Region> regions = AwsSecretsManagerUtils.resolveRegions();
+            List<RegionClients> regionClients = new ArrayList<>(regions.size());
+            for (Region region : regions) {
+                regionClients.add(clientPool.get(region));
+            }
+            RunMetrics.recordPhase(PHASE_CLIENT_CREATION, phaseStart);
+            SecretShard shard = EncryptionUtils.resolveShard();
+            if (shard != null) {
+                RunMetrics.recordShard(shard);
+                log.info("Processing shard {} of {} shards.", shard.getIndex(), shard.getCount());
             }
-            // Retrieve the potentially "dirty" string containing extra metadata
-            String fullCertificateStringFromSecret = AwsSecretsManagerUtils.getSecretStringValue(client, pemCertSecretName);
-            log.debug("Retrieved full certificate string from secret '{}'. Length: {}", pemCertSecretName, fullCertificateStringFromSecret.length());
-
-            // 5. *** NEW: Extract the Clean PEM Block from the retrieved string ***
-            int beginIndex = fullCertificateStringFromSecret.indexOf(PEM_BEGIN_MARKER);
-            int endIndex = fullCertificateStringFromSecret.indexOf(PEM_END_MARKER);
 
-            if (beginIndex == -1) {
-                 log.error("Could not find '{}' marker in the certificate string retrieved from secret '{}'.", PEM_BEGIN_MARKER, pemCertSecretName);
-                 throw new EncryptionException("Certificate data from secret " + pemCertSecretName + " is missing the BEGIN marker.");
+            // 2. Retrieve the Certificate from the first region, unless it is cached and unchanged
+            String pemCertSecretName = resolvePemCertSecretName();
+            certificateCache = CertificateCache.openConfigured();
+            CachedCertificate certificate = certificateCache.get(regionClients.get(0), pemCertSecretName);
+            phaseStart = System.nanoTime();
+            // Initialized once; the cipher pool and encryption workers are shared by all regions
+            CipherPool cipherPool = EncryptionUtils.initializeCipherPool(certificate.getPublicKey(),
+                    certificate.getFingerprint());
+            // Fails before any secret is fetched if the verification key does not belong to the certificate
+            EncryptionUtils.initializeVerification(cipherPool);
+            RunMetrics.recordPhase(PHASE_CERTIFICATE_PARSE, phaseStart);
+            // In incremental mode, skip secrets whose current version is already encrypted under this certificate
+            String incrementalFingerprint = AwsSecretsManagerUtils.isIncrementalEnabled()
+                    ? cipherPool.getCertificateFingerprint() : null;
+            if (incrementalFingerprint != null) {
+                // Secrets written but not tagged by an earlier run are tagged instead of encrypted again
+                cipherPool.enableEncryptedValueDetection();
             }
-            if (endIndex == -1) {
-                 log.error("Could not find '{}' marker in the certificate string retrieved from secret '{}'.", PEM_END_MARKER, pemCertSecretName);
-                 throw new EncryptionException("Certificate data from secret " + pemCertSecretName + " is missing the END marker.");
+            // Record progress so that an interrupted run can be resumed without encrypting any secret twice
+            if (regions.size() > 1 && RunJournal.isConfigured()) {
+                throw new EncryptionException("The journal records the secrets of a single region. Run each region "
+                        + "separately to use a journal.");
             }
+            journal = RunJournal.openConfigured(cipherPool.getCertificateFingerprint());
+            // When rotating certificates, secrets hold values encrypted under the previous certificate
+            SecretDecryptor previousDecryptor = EncryptionUtils.initializeRewrapDecryptor(
+                    cipherPool.getCertificateFingerprint());
+            encryptionPool = new ForkJoinPool(EncryptionUtils.resolveEncryptionParallelism());
 
-            // Extract the substring including the markers
-            String cleanCertificatePem = fullCertificateStringFromSecret.substring(beginIndex, endIndex + PEM_END_MARKER.length());
-            log.info("Successfully extracted clean PEM certificate block. Length: {}", cleanCertificatePem.length());
-
-
-            // 6. Encrypt Plain Text Secrets using the *Cleaned* Certificate String
-            // Pass the extracted 'cleanCertificatePem' string
-            EncryptionUtils.encryptPlainTextSecretsUsingCertString(secrets, cleanCertificatePem);
-
-            // 7. Update Secrets in AWS Secrets Manager
-            AwsSecretsManagerUtils.updateSecretsWithEncryptedValue(secrets, client);
+            // 3-6. Retrieve, Encrypt and Update the secrets of each region
+            List<RegionRotation> rotations = new ArrayList<>(regions.size());
+            for (RegionClients clients : regionClients) {
+                rotations.add(new RegionRotation(clients, cipherPool, encryptionPool, pemCertSecretName,
+                        incrementalFingerprint, journal, previousDecryptor));
+            }
+            if (rotations.size() == 1) {
+                RegionRotation rotation = rotations.get(0);
+                try {
+                    rotation.run();
+                } finally {
+                    if (rotation.getUpdateSummary() != null) {
+                        RunMetrics.recordUpdateSummary(rotation.getUpdateSummary());
+                    }
+                }
+                logUpdateSummary(rotation.getUpdateSummary());
+            } else {
+                runRegionsConcurrently(rotations);
+            }
+            if (journal != null) {
+                journal.complete();
+            }
 
             log.info("AWS Encryption Manager process completed successfully.");
+            succeeded = true;
 
         } catch (EncryptionException e) {
             log.error("Process failed due to EncryptionException: {}", e.getMessage(), e.getCause() != null ? e.getCause() : e);
-            System.exit(1);
         } catch (Exception e) {
              log.error("An unexpected error occurred during the process: {}", e.getMessage(), e);
-             System.exit(1);
         } finally {
-            // 8. Close AWS Client
-            if (client != null) {
-                log.info("Closing AWS Secrets Manager client.");
-                client.close();
+            // 7. Save the certificate cache, and release encryption workers, the journal, AWS Clients and the log
+            if (certificateCache != null) {
+                certificateCache.save();
+            }
+            if (encryptionPool != null) {
+                encryptionPool.shutdown();
+            }
+            if (journal != null) {
+                try {
+                    journal.close();
+                } catch (IOException e) {
+                    log.warn("Error closing journal: {}", e.getMessage());
+                }
+            }
+            clientPool.close();
+            if (eventLog != null) {
+                try {
+                    eventLog.close();
+                } catch (IOException e) {
+                    log.warn("Error closing structured log: {}", e.getMessage());
+                }
+            }
+            // 8. Write the run report, also for failed runs so that they show up on dashboards
+            RunReportWriter.writeConfiguredReports(succeeded, runStartEpochMillis, System.nanoTime() - runStartNanos);
+        }
+        if (!succeeded) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs the rotation of every region at once, so that the run takes as long as the slowest region. A failed
+     * region does not stop the others.
+     *
+     * @throws EncryptionException once all regions have finished, if any region failed.
+     */
+    private static void runRegionsConcurrently(List<RegionRotation> rotations) throws InterruptedException {
+        log.info("Processing {} regions concurrently.", rotations.size());
+        ExecutorService executor = Executors.newFixedThreadPool(rotations.size(), runnable -> {
+            Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<RegionResult>> futures = new ArrayList<>(rotations.size());
+        try {
+            for (RegionRotation rotation : rotations) {
+                futures.add(executor.submit(() -> runRegion(rotation)));
+            }
+            List<String> failedRegions = new ArrayList<>();
+            for (Future<RegionResult> future : futures) {
+                RegionResult result;
+                try {
+                    result = future.get();
+                } catch (ExecutionException e) {
+                    throw new EncryptionException("Unexpected error processing a region", e.getCause());
+                }
+                RunMetrics.recordRegionResult(result);
+                if (!result.isSucceeded()) {
+                    failedRegions.add(result.getRegion());
+                }
             }
+            logRegionResults(RunMetrics.getRegionResults());
+            if (!failedRegions.isEmpty()) {
+                throw new EncryptionException("Processing failed in regions: " + String.join(", ", failedRegions));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static RegionResult runRegion(RegionRotation rotation) {
+        long startNanos = System.nanoTime();
+        Thread.currentThread().setName("region-" + rotation.getRegion());
+        log.info("Processing region {}.", rotation.getRegion());
+        String failureMessage = null;
+        try {
+            rotation.run();
+        } catch (EncryptionException e) {
+            failureMessage = e.getMessage();
+            log.error("Processing failed in region {}: {}", rotation.getRegion(), e.getMessage(),
+                    e.getCause() != null ? e.getCause() : e);
+        } catch (Exception e) {
+            failureMessage = "Unexpected error: " + e.getMessage();
+            log.error("An unexpected error occurred in region {}: {}", rotation.getRegion(), e.getMessage(), e);
+        }
+        return new RegionResult(rotation.getRegion(), failureMessage == null, failureMessage,
+                rotation.getUpdateSummary(), System.nanoTime() - startNanos);
+    }
+
+    private static void logRegionResults(List<RegionResult> results) {
+        for (RegionResult result : results) {
+            UpdateSummary summary = result.getUpdateSummary();
+            log.info("Region {} {} in {} ms - updated: {}, skipped: {}, retries: {}, throttled: {}{}",
+                    result.getRegion(), result.isSucceeded() ? "succeeded" : "failed",
+                    TimeUnit.NANOSECONDS.toMillis(result.getDurationNanos()),
+                    summary != null ? summary.getUpdatedCount() : 0, summary != null ? summary.getSkippedCount() : 0,
+                    summary != null ? summary.getRetryCount() : 0, summary != null ? summary.getThrottledCount() : 0,
+                    result.isSucceeded() ? "" : " (" + result.getFailureMessage() + ")");
+        }
+    }
+
+    private static void logUpdateSummary(UpdateSummary summary) {
+        if (summary == null) {
+            return;
+        }
+        log.info("Update summary - updated: {}, skipped: {}, retries: {}, throttled: {}, concurrency limit: {} (min: {}, peak: {})",
+                summary.getUpdatedCount(), summary.getSkippedCount(), summary.getRetryCount(),
+                summary.getThrottledCount(), summary.getConcurrencyLimit(), summary.getMinConcurrencyLimit(),
+                summary.getPeakConcurrencyLimit());
+    }
+
+    private static String resolvePemCertSecretName() {
+        String pemCertSecretName = System.getProperty(Constants.PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY);
+        if (pemCertSecretName == null || pemCertSecretName.trim().isEmpty()) {
+            throw new EncryptionException("Public PEM certificate secret name not configured. Set system property: " + Constants.PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY);
         }
+        return pemCertSecretName;
     }
 }
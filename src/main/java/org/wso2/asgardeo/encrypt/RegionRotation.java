@@ -0,0 +1,295 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.encrypt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.DiscoveryFilter;
+import org.wso2.asgardeo.model.InputSecrets;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretShard;
+import org.wso2.asgardeo.model.UpdateSummary;
+import org.wso2.asgardeo.utils.AdaptiveSecretUpdater;
+import org.wso2.asgardeo.utils.AwsSecretsManagerUtils;
+import org.wso2.asgardeo.utils.BatchFilteringIterator;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.Constants;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+import org.wso2.asgardeo.utils.ManifestSecretIterator;
+import org.wso2.asgardeo.utils.RegionalClientPool.RegionClients;
+import org.wso2.asgardeo.utils.RunJournal;
+import org.wso2.asgardeo.utils.RunMetrics;
+import org.wso2.asgardeo.utils.SecretDecryptor;
+import org.wso2.asgardeo.utils.StructuredEventLog;
+import org.wso2.asgardeo.utils.SystemPropertyUtils;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerAsyncClient;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * This Java Class retrieves, encrypts and updates the secrets of a single AWS region with a certificate that was
+ * already parsed. Several rotations can run at once, one per region, sharing the cipher pool and the encryption
+ * workers; each uses the clients of its own region.
+ */
+public class RegionRotation {
+
+    private static final Logger log = LoggerFactory.getLogger(RegionRotation.class);
+    private static final int DEFAULT_PIPELINE_QUEUE_CAPACITY = 100;
+    private static final String PHASE_MANIFEST_LOAD = "manifest_load";
+    private static final String PHASE_DISCOVERY = "discovery";
+    // Time spent taking the next batch of names from a manifest file or the bundled input
+    private static final String PHASE_INPUT = "input";
+    private static final String PHASE_INCREMENTAL_CHECK = "incremental_check";
+    private static final String PHASE_RESUME_CHECK = "resume_check";
+    private static final String PHASE_RETRIEVE = "retrieve";
+    private static final String PHASE_ENCRYPT = "encrypt";
+    private static final String PHASE_UPDATE = "update";
+    // Retrieval, encryption and updates overlap in pipelined mode, so they are timed as one phase
+    private static final String PHASE_PIPELINE = "pipeline";
+
+    private final RegionClients clients;
+    private final CipherPool cipherPool;
+    private final ForkJoinPool encryptionPool;
+    private final String pemCertSecretName;
+    private final String incrementalFingerprint;
+    private final RunJournal journal;
+    private final SecretDecryptor previousDecryptor;
+    private final int maxConcurrency;
+    private volatile AdaptiveSecretUpdater updater;
+
+    /**
+     * @param clients                Clients of the region.
+     * @param cipherPool             Cipher pool of the parsed certificate.
+     * @param encryptionPool         Encryption workers used when not pipelining.
+     * @param pemCertSecretName      Name of the certificate secret, never processed itself.
+     * @param incrementalFingerprint Fingerprint of the certificate in incremental mode, otherwise null.
+     * @param journal                Journal of the run, or null if progress is not recorded.
+     * @param previousDecryptor      Decryptor of the previous certificate when re-wrapping, otherwise null.
+     */
+    public RegionRotation(RegionClients clients, CipherPool cipherPool, ForkJoinPool encryptionPool,
+                          String pemCertSecretName, String incrementalFingerprint, RunJournal journal,
+                          SecretDecryptor previousDecryptor) {
+        this.clients = Objects.requireNonNull(clients, "RegionClients cannot be null");
+        this.cipherPool = Objects.requireNonNull(cipherPool, "CipherPool cannot be null");
+        this.encryptionPool = Objects.requireNonNull(encryptionPool, "Encryption pool cannot be null");
+        this.pemCertSecretName = pemCertSecretName;
+        this.incrementalFingerprint = incrementalFingerprint;
+        this.journal = journal;
+        this.previousDecryptor = previousDecryptor;
+        this.maxConcurrency = AwsSecretsManagerUtils.resolveMaxConcurrency();
+    }
+
+    public String getRegion() {
+        return clients.getRegion().id();
+    }
+
+    /**
+     * Returns the summary of the updates performed in this region so far.
+     *
+     * @return Update summary, or null if the rotation has not reached the update phase.
+     */
+    public UpdateSummary getUpdateSummary() {
+        AdaptiveSecretUpdater currentUpdater = updater;
+        return currentUpdater != null ? currentUpdater.getSummary() : null;
+    }
+
+    /**
+     * Retrieves, encrypts and updates every secret of the region.
+     *
+     * @throws EncryptionException if any secret cannot be processed.
+     */
+    public void run() {
+        SecretsManagerClient client = clients.getClient();
+        SecretsManagerAsyncClient asyncClient = clients.getAsyncClient();
+        ManifestSecretIterator manifest = null;
+        try {
+            // 3. Discover Secret Identifiers with ListSecrets, or Load them from the Manifest
+            long phaseStart;
+            Iterator<String> secretNames;
+            int batchSize;
+            // Listing pages happens while batches are taken, so that time is only discovery for discovered secrets
+            String batchPhase = PHASE_INPUT;
+            DiscoveryFilter discoveryFilter = AwsSecretsManagerUtils.resolveDiscoveryFilter();
+            String manifestFile = EncryptionUtils.resolveManifestFile();
+            // A sharded run keeps only its own secrets, before any per-secret request is made for them
+            SecretShard shard = EncryptionUtils.resolveShard();
+            if (discoveryFilter != null) {
+                // Pages are listed lazily as secrets are processed, so the full list is never held in memory
+                batchSize = AwsSecretsManagerUtils.resolveBatchSize();
+                batchPhase = PHASE_DISCOVERY;
+                secretNames = skipFinishedSecrets(selectShard(AwsSecretsManagerUtils.discoverSecretNames(client,
+                        discoveryFilter, pemCertSecretName, incrementalFingerprint), shard, batchSize), batchSize);
+            } else if (manifestFile != null) {
+                // Names are read from the file as secrets are processed, so the full list is never held in memory
+                manifest = EncryptionUtils.openManifestFile(manifestFile);
+                batchSize = AwsSecretsManagerUtils.resolveBatchSize();
+                secretNames = skipFinishedSecrets(selectShard(manifest, shard, batchSize), batchSize);
+                if (incrementalFingerprint != null) {
+                    secretNames = new BatchFilteringIterator(secretNames, batch -> {
+                        long checkStart = System.nanoTime();
+                        try {
+                            return AwsSecretsManagerUtils.filterSecretsPendingEncryption(batch, incrementalFingerprint,
+                                    asyncClient, maxConcurrency);
+                        } finally {
+                            RunMetrics.recordPhase(PHASE_INCREMENTAL_CHECK, checkStart);
+                        }
+                    }, batchSize);
+                }
+            } else {
+                phaseStart = System.nanoTime();
+                InputSecrets inputSecrets = EncryptionUtils.loadInputSecrets();
+                List<String> manifestSecretNames = inputSecrets.getSecrets() != null
+                        ? inputSecrets.getSecrets() : new ArrayList<>();
+                if (shard != null) {
+                    manifestSecretNames = selectShard(manifestSecretNames, shard);
+                }
+                RunMetrics.recordInputSecrets(manifestSecretNames);
+                RunMetrics.recordPhase(PHASE_MANIFEST_LOAD, phaseStart);
+                // ... (check if inputSecrets is empty) ...
+                if (journal != null && journal.isResuming()) {
+                    phaseStart = System.nanoTime();
+                    manifestSecretNames = journal.selectUnfinished(manifestSecretNames, asyncClient, maxConcurrency);
+                    RunMetrics.recordPhase(PHASE_RESUME_CHECK, phaseStart);
+                }
+                if (incrementalFingerprint != null) {
+                    phaseStart = System.nanoTime();
+                    manifestSecretNames = AwsSecretsManagerUtils.filterSecretsPendingEncryption(manifestSecretNames,
+                            incrementalFingerprint, asyncClient, maxConcurrency);
+                    RunMetrics.recordPhase(PHASE_INCREMENTAL_CHECK, phaseStart);
+                }
+                secretNames = manifestSecretNames.iterator();
+                batchSize = Math.max(1, manifestSecretNames.size());
+            }
+            updater = AwsSecretsManagerUtils.createAdaptiveSecretUpdater(clients.getUpdateClient(),
+                    incrementalFingerprint);
+
+            if (SystemPropertyUtils.getBoolean(Constants.PIPELINE_ENABLED_SYS_PROPERTY_KEY)) {
+                // 4. Fetch, Encrypt and Update each secret as it flows through concurrent stages
+                phaseStart = System.nanoTime();
+                int queueCapacity = SystemPropertyUtils.getPositiveInt(Constants.PIPELINE_QUEUE_CAPACITY_SYS_PROPERTY_KEY,
+                        DEFAULT_PIPELINE_QUEUE_CAPACITY);
+                SecretPipeline pipeline = new SecretPipeline(client, cipherPool, previousDecryptor, updater,
+                        maxConcurrency, EncryptionUtils.resolveEncryptionParallelism(), updater.getMaxConcurrency(),
+                        queueCapacity);
+                try {
+                    pipeline.run(secretNames);
+                } finally {
+                    RunMetrics.recordPhase(PHASE_PIPELINE, phaseStart);
+                }
+            } else {
+                // Discovered and streamed secrets are processed in batches; the bundled manifest as a single batch
+                int batchNumber = 0;
+                while (true) {
+                    phaseStart = System.nanoTime();
+                    InputSecrets batch = nextBatch(secretNames, batchSize);
+                    RunMetrics.recordPhase(batchPhase, phaseStart);
+                    if (batch.getSecrets().isEmpty()) {
+                        break;
+                    }
+                    batchNumber++;
+                    long batchStart = System.nanoTime();
+                    UpdateSummary summaryBefore = updater.getSummary();
+
+                    // 4. Retrieve Plain Text Secrets
+                    phaseStart = batchStart;
+                    List<Secret> secrets = AwsSecretsManagerUtils.isBatchGetEnabled()
+                            ? AwsSecretsManagerUtils.retrievePlainTextSecretsInBatches(batch, asyncClient, maxConcurrency)
+                            : AwsSecretsManagerUtils.retrievePlainTextSecretsAsync(batch, asyncClient, maxConcurrency);
+                    RunMetrics.recordPhase(PHASE_RETRIEVE, phaseStart);
+
+                    // 5. Encrypt Plain Text Secrets using the *Cleaned* Certificate, decrypting them first when re-wrapping
+                    phaseStart = System.nanoTime();
+                    EncryptionUtils.encryptPlainTextSecrets(secrets, cipherPool, previousDecryptor, encryptionPool);
+                    RunMetrics.recordPhase(PHASE_ENCRYPT, phaseStart);
+
+                    // 6. Update Secrets in AWS Secrets Manager, once every secret of the batch is encrypted and verified
+                    phaseStart = System.nanoTime();
+                    try {
+                        updater.updateAll(secrets);
+                    } finally {
+                        RunMetrics.recordPhase(PHASE_UPDATE, phaseStart);
+                    }
+                    StructuredEventLog.logBatchSummary("region " + getRegion(), batchNumber,
+                            batch.getSecrets().size(), summaryBefore, updater.getSummary(),
+                            System.nanoTime() - batchStart);
+                }
+            }
+        } finally {
+            if (manifest != null) {
+                try {
+                    manifest.close();
+                } catch (IOException e) {
+                    log.warn("Error closing manifest file: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Keeps the secrets of the given shard, taking the names from the source in batches as they are consumed.
+     */
+    static Iterator<String> selectShard(Iterator<String> secretNames, SecretShard shard, int batchSize) {
+        if (shard == null) {
+            return secretNames;
+        }
+        return new BatchFilteringIterator(secretNames, batch -> selectShard(batch, shard), batchSize);
+    }
+
+    private static List<String> selectShard(List<String> secretNames, SecretShard shard) {
+        List<String> shardSecretNames = new ArrayList<>();
+        for (String secretName : secretNames) {
+            if (shard.contains(secretName)) {
+                shardSecretNames.add(secretName);
+            }
+        }
+        return shardSecretNames;
+    }
+
+    /**
+     * Skips the secrets a resumed run already updated, checking the names in batches as they are consumed.
+     */
+    private Iterator<String> skipFinishedSecrets(Iterator<String> secretNames, int batchSize) {
+        if (journal == null || !journal.isResuming()) {
+            return secretNames;
+        }
+        return new BatchFilteringIterator(secretNames, batch -> {
+            long checkStart = System.nanoTime();
+            try {
+                return journal.selectUnfinished(batch, clients.getAsyncClient(), maxConcurrency);
+            } finally {
+                RunMetrics.recordPhase(PHASE_RESUME_CHECK, checkStart);
+            }
+        }, batchSize);
+    }
+
+    /**
+     * Takes up to batchSize secret names from the iterator.
+     */
+    static InputSecrets nextBatch(Iterator<String> secretNames, int batchSize) {
+        List<String> batch = new ArrayList<>();
+        while (batch.size() < batchSize && secretNames.hasNext()) {
+            batch.add(secretNames.next());
+        }
+        InputSecrets inputSecrets = new InputSecrets();
+        inputSecrets.setSecrets(batch);
+        return inputSecrets;
+    }
+}
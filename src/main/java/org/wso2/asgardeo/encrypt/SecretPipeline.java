@@ -0,0 +1,292 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.encrypt;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.utils.AdaptiveSecretUpdater;
+import org.wso2.asgardeo.utils.AwsSecretsManagerUtils;
+import org.wso2.asgardeo.utils.CipherPool;
+import org.wso2.asgardeo.utils.EncryptionUtils;
+import org.wso2.asgardeo.utils.SecretDecryptor;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * This Java Class runs the fetch, encrypt and update stages concurrently, connected by bounded queues.
+ * Each secret flows through the stages independently. A full queue blocks the upstream stage, so at most
+ * the queue capacities plus the number of workers worth of plain text secrets are held in memory at once.
+ * The update stage is throttled adaptively by the given {@link AdaptiveSecretUpdater}, so the update parallelism
+ * is an upper bound on in-flight updates rather than a fixed rate.
+ * The first failure in any stage stops all stages; secrets that were already updated stay updated.
+ * When round-trip verification is enabled, each secret is verified in the encrypt stage before it is queued for
+ * update, and the update stage sends nothing until the first queue capacity worth of secrets, or all secrets if
+ * fewer, are verified. A wrong key or transformation therefore stops the pipeline before the first write; a
+ * mismatch found after that stops it with only verified values written.
+ */
+public class SecretPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(SecretPipeline.class);
+    private static final long POLL_INTERVAL_MILLIS = 100;
+
+    private final SecretsManagerClient client;
+    private final CipherPool cipherPool;
+    private final SecretDecryptor previousDecryptor;
+    private final AdaptiveSecretUpdater updater;
+    private final int fetchParallelism;
+    private final int encryptParallelism;
+    private final int updateParallelism;
+    private final int queueCapacity;
+
+    private final AtomicReference<EncryptionException> failure = new AtomicReference<>();
+    private final AtomicInteger retrievedCount = new AtomicInteger();
+    private final AtomicInteger encryptedCount = new AtomicInteger();
+    private final AtomicInteger updatedCount = new AtomicInteger();
+
+    public SecretPipeline(SecretsManagerClient client, CipherPool cipherPool, AdaptiveSecretUpdater updater,
+                          int fetchParallelism, int encryptParallelism, int updateParallelism, int queueCapacity) {
+        this(client, cipherPool, null, updater, fetchParallelism, encryptParallelism, updateParallelism,
+                queueCapacity);
+    }
+
+    /**
+     * Creates a pipeline that re-wraps secrets if a previous decryptor is given: each fetched value is decrypted with
+     * the previous certificate's key and encrypted again in the encrypt stage, so plain text never leaves it.
+     */
+    public SecretPipeline(SecretsManagerClient client, CipherPool cipherPool, SecretDecryptor previousDecryptor,
+                          AdaptiveSecretUpdater updater, int fetchParallelism, int encryptParallelism,
+                          int updateParallelism, int queueCapacity) {
+        this.client = Objects.requireNonNull(client, "SecretsManagerClient cannot be null");
+        this.cipherPool = Objects.requireNonNull(cipherPool, "CipherPool cannot be null");
+        this.previousDecryptor = previousDecryptor;
+        this.updater = Objects.requireNonNull(updater, "AdaptiveSecretUpdater cannot be null");
+        if (fetchParallelism < 1 || encryptParallelism < 1 || updateParallelism < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Pipeline parallelism and queue capacity must be at least 1.");
+        }
+        this.fetchParallelism = fetchParallelism;
+        this.encryptParallelism = encryptParallelism;
+        this.updateParallelism = updateParallelism;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Fetches, encrypts and updates every secret produced by the given iterator.
+     * The iterator is consumed lazily by the fetch stage and is only accessed by one thread at a time.
+     *
+     * @param secretNames Names or ARNs of the secrets to process.
+     * @return Number of secrets updated in AWS Secrets Manager.
+     * @throws EncryptionException if any secret cannot be fetched, encrypted or updated.
+     */
+    public int run(Iterator<String> secretNames) {
+        Objects.requireNonNull(secretNames, "Secret names cannot be null");
+        BlockingQueue<Secret> fetched = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Secret> encrypted = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicBoolean fetchDone = new AtomicBoolean(false);
+        AtomicBoolean encryptDone = new AtomicBoolean(false);
+        AtomicInteger activeFetchers = new AtomicInteger(fetchParallelism);
+        AtomicInteger activeEncryptors = new AtomicInteger(encryptParallelism);
+
+        log.warn("Starting pipelined run. Secrets are OVERWRITTEN in AWS Secrets Manager as soon as they are encrypted.");
+        log.info("Pipeline parallelism - fetch: {}, encrypt: {}, update: {}, queue capacity: {}",
+                fetchParallelism, encryptParallelism, updateParallelism, queueCapacity);
+
+        ExecutorService fetchers = Executors.newFixedThreadPool(fetchParallelism, namedThreadFactory("pipeline-fetch"));
+        ExecutorService encryptors = Executors.newFixedThreadPool(encryptParallelism, namedThreadFactory("pipeline-encrypt"));
+        ExecutorService updaters = Executors.newFixedThreadPool(updateParallelism, namedThreadFactory("pipeline-update"));
+        try {
+            for (int i = 0; i < fetchParallelism; i++) {
+                fetchers.execute(() -> runStage(() -> {
+                    String secretName;
+                    while (failure.get() == null && (secretName = nextSecretName(secretNames)) != null) {
+                        Secret secret = AwsSecretsManagerUtils.retrievePlainTextSecret(client, secretName);
+                        retrievedCount.incrementAndGet();
+                        if (!offer(fetched, secret)) {
+                            return;
+                        }
+                    }
+                }, activeFetchers, fetchDone));
+            }
+            for (int i = 0; i < encryptParallelism; i++) {
+                encryptors.execute(() -> runStage(() -> {
+                    Secret secret;
+                    while ((secret = poll(fetched, fetchDone)) != null) {
+                        EncryptionUtils.encryptSecret(cipherPool, previousDecryptor, secret);
+                        encryptedCount.incrementAndGet();
+                        if (!offer(encrypted, secret)) {
+                            return;
+                        }
+                    }
+                }, activeEncryptors, encryptDone));
+            }
+            if (cipherPool.getVerifier() != null) {
+                log.info("Holding updates until the first {} secrets are verified.", queueCapacity);
+            }
+            for (int i = 0; i < updateParallelism; i++) {
+                updaters.execute(() -> runStage(() -> {
+                    if (cipherPool.getVerifier() != null && !awaitFirstVerifiedSecrets(encryptDone)) {
+                        return;
+                    }
+                    Secret secret;
+                    while ((secret = poll(encrypted, encryptDone)) != null) {
+                        if (updater.update(secret)) {
+                            updatedCount.incrementAndGet();
+                        }
+                    }
+                }, new AtomicInteger(1), new AtomicBoolean()));
+            }
+            awaitTermination(fetchers);
+            awaitTermination(encryptors);
+            awaitTermination(updaters);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new EncryptionException("Interrupted while running the secret pipeline.", e));
+        } finally {
+            fetchers.shutdownNow();
+            encryptors.shutdownNow();
+            updaters.shutdownNow();
+        }
+
+        log.info("Pipeline processed secrets - retrieved: {}, encrypted: {}, updated: {}",
+                retrievedCount.get(), encryptedCount.get(), updatedCount.get());
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        log.warn("Completed update process. Successfully updated {} secrets.", updatedCount.get());
+        return updatedCount.get();
+    }
+
+    /**
+     * Runs a stage worker, records its failure, and marks the stage done once its last worker finishes.
+     */
+    private void runStage(Runnable worker, AtomicInteger activeWorkers, AtomicBoolean stageDone) {
+        try {
+            worker.run();
+        } catch (EncryptionException e) {
+            fail(e);
+        } catch (Exception e) {
+            log.error("Unexpected error in pipeline stage: {}", e.getMessage(), e);
+            fail(new EncryptionException("Unexpected error in secret pipeline", e));
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                stageDone.set(true);
+            }
+        }
+    }
+
+    private void fail(EncryptionException e) {
+        if (failure.compareAndSet(null, e)) {
+            log.error("Stopping pipeline after failure: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Waits until the encrypt stage has verified as many secrets as the update queue holds, or all secrets if there
+     * are fewer. The encrypt stage verifies each secret before counting it.
+     *
+     * @return false if the pipeline failed before then.
+     */
+    private boolean awaitFirstVerifiedSecrets(AtomicBoolean encryptDone) {
+        try {
+            while (failure.get() == null) {
+                if (encryptedCount.get() >= queueCapacity || encryptDone.get()) {
+                    return failure.get() == null;
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted while waiting for secrets to be verified.", e);
+        }
+    }
+
+    private static String nextSecretName(Iterator<String> secretNames) {
+        synchronized (secretNames) {
+            return secretNames.hasNext() ? secretNames.next() : null;
+        }
+    }
+
+    /**
+     * Hands a secret to the next stage, waiting while the queue is full.
+     *
+     * @return false if the pipeline failed before the secret could be queued.
+     */
+    private boolean offer(BlockingQueue<Secret> queue, Secret secret) {
+        try {
+            while (!queue.offer(secret, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure.get() != null) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted while queueing secret: " + secret.getIdentifier(), e);
+        }
+    }
+
+    /**
+     * Takes the next secret from the previous stage.
+     *
+     * @return the next secret, or null once the previous stage is done and drained, or the pipeline failed.
+     */
+    private Secret poll(BlockingQueue<Secret> queue, AtomicBoolean upstreamDone) {
+        try {
+            while (failure.get() == null) {
+                // Read the flag before polling so a secret queued just before the stage finished is not missed.
+                boolean done = upstreamDone.get();
+                Secret secret = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (secret != null) {
+                    return secret;
+                }
+                if (done) {
+                    return null;
+                }
+            }
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted while waiting for secrets.", e);
+        }
+    }
+
+    private static void awaitTermination(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        while (!executor.awaitTermination(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+            log.trace("Waiting for pipeline stage to finish.");
+        }
+    }
+
+    private static ThreadFactory namedThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,47 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.model;
+
+/**
+ * This Java Class represents the ListSecrets filter used to discover the secrets to encrypt.
+ * Only the criteria that are set are applied, and a secret must match all of them.
+ */
+public class DiscoveryFilter {
+
+    private final String namePrefix;
+    private final String tagKey;
+    private final String tagValue;
+
+    public DiscoveryFilter(String namePrefix, String tagKey, String tagValue) {
+
+        this.namePrefix = namePrefix;
+        this.tagKey = tagKey;
+        this.tagValue = tagValue;
+    }
+
+    public String getNamePrefix() {
+
+        return namePrefix;
+    }
+
+    public String getTagKey() {
+
+        return tagKey;
+    }
+
+    public String getTagValue() {
+
+        return tagValue;
+    }
+}
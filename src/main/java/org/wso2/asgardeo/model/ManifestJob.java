@@ -0,0 +1,91 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+package org.wso2.asgardeo.model;
+
+/**
+ * This Java Class represents one manifest of a multi-manifest run: the secrets listed in a manifest file, encrypted
+ * with the certificate held in a certificate secret of a region.
+ */
+public class ManifestJob {
+
+    private String name;
+    private String manifestFile;
+    private String pemCertSecretName;
+    private String region;
+    private String reportFile;
+
+    /**
+     * Returns the name the manifest is reported under.
+     *
+     * @return Name of the manifest, or null to use the manifest file.
+     */
+    public String getName() {
+
+        return name != null ? name : manifestFile;
+    }
+
+    public void setName(String name) {
+
+        this.name = name;
+    }
+
+    public String getManifestFile() {
+
+        return manifestFile;
+    }
+
+    public void setManifestFile(String manifestFile) {
+
+        this.manifestFile = manifestFile;
+    }
+
+    public String getPemCertSecretName() {
+
+        return pemCertSecretName;
+    }
+
+    public void setPemCertSecretName(String pemCertSecretName) {
+
+        this.pemCertSecretName = pemCertSecretName;
+    }
+
+    /**
+     * Returns the region the certificate and the secrets of the manifest are in.
+     *
+     * @return Region name, or null to use the configured region.
+     */
+    public String getRegion() {
+
+        return region;
+    }
+
+    public void setRegion(String region) {
+
+        this.region = region;
+    }
+
+    /**
+     * Returns the file the report of this manifest is written to.
+     *
+     * @return Report file, or null if no report is written for the manifest.
+     */
+    public String getReportFile() {
+
+        return reportFile;
+    }
+
+    public void setReportFile(String reportFile) {
+
+        this.reportFile = reportFile;
+    }
+}
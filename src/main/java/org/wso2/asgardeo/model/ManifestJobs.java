@@ -0,0 +1,33 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+package org.wso2.asgardeo.model;
+
+import java.util.List;
+
+/**
+ * This Java Class represents the manifests processed together in a multi-manifest run.
+ */
+public class ManifestJobs {
+
+    private List<ManifestJob> manifests;
+
+    public List<ManifestJob> getManifests() {
+
+        return manifests;
+    }
+
+    public void setManifests(List<ManifestJob> manifests) {
+
+        this.manifests = manifests;
+    }
+}
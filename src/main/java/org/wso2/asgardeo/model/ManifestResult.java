@@ -0,0 +1,120 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+package org.wso2.asgardeo.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * This Java Class represents the result of processing the secrets of a single manifest in a multi-manifest run.
+ */
+public class ManifestResult {
+
+    private final ManifestJob job;
+    private final String region;
+    private final String certificateFingerprint;
+    private final boolean succeeded;
+    private final String failureMessage;
+    private final UpdateSummary updateSummary;
+    private final long startEpochMillis;
+    private final long durationNanos;
+    private final int batchCount;
+    private final Map<String, SecretOutcome> outcomes;
+
+    public ManifestResult(ManifestJob job, String region, String certificateFingerprint, boolean succeeded,
+                          String failureMessage, UpdateSummary updateSummary, long startEpochMillis,
+                          long durationNanos, int batchCount, Map<String, SecretOutcome> outcomes) {
+
+        this.job = job;
+        this.region = region;
+        this.certificateFingerprint = certificateFingerprint;
+        this.succeeded = succeeded;
+        this.failureMessage = failureMessage;
+        this.updateSummary = updateSummary;
+        this.startEpochMillis = startEpochMillis;
+        this.durationNanos = durationNanos;
+        this.batchCount = batchCount;
+        this.outcomes = Collections.unmodifiableMap(new LinkedHashMap<>(outcomes));
+    }
+
+    public ManifestJob getJob() {
+
+        return job;
+    }
+
+    public String getRegion() {
+
+        return region;
+    }
+
+    /**
+     * Returns the fingerprint of the certificate the manifest's secrets were encrypted with.
+     *
+     * @return SHA-256 fingerprint, or null if the certificate could not be loaded.
+     */
+    public String getCertificateFingerprint() {
+
+        return certificateFingerprint;
+    }
+
+    public boolean isSucceeded() {
+
+        return succeeded;
+    }
+
+    /**
+     * Returns the message of the failure that stopped the manifest.
+     *
+     * @return Failure message, or null if the manifest succeeded.
+     */
+    public String getFailureMessage() {
+
+        return failureMessage;
+    }
+
+    /**
+     * Returns the summary of the manifest's updater.
+     *
+     * @return Update summary, or null if the manifest did not reach the update phase.
+     */
+    public UpdateSummary getUpdateSummary() {
+
+        return updateSummary;
+    }
+
+    public long getStartEpochMillis() {
+
+        return startEpochMillis;
+    }
+
+    public long getDurationNanos() {
+
+        return durationNanos;
+    }
+
+    public int getBatchCount() {
+
+        return batchCount;
+    }
+
+    /**
+     * Returns the outcome of each secret taken from the manifest, in manifest order.
+     *
+     * @return Outcomes keyed by secret name.
+     */
+    public Map<String, SecretOutcome> getOutcomes() {
+
+        return outcomes;
+    }
+}
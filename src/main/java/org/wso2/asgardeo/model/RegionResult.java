@@ -0,0 +1,71 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.model;
+
+/**
+ * This Java Class represents the result of processing the secrets of a single AWS region in a multi-region run.
+ */
+public class RegionResult {
+
+    private final String region;
+    private final boolean succeeded;
+    private final String failureMessage;
+    private final UpdateSummary updateSummary;
+    private final long durationNanos;
+
+    public RegionResult(String region, boolean succeeded, String failureMessage, UpdateSummary updateSummary,
+                        long durationNanos) {
+
+        this.region = region;
+        this.succeeded = succeeded;
+        this.failureMessage = failureMessage;
+        this.updateSummary = updateSummary;
+        this.durationNanos = durationNanos;
+    }
+
+    public String getRegion() {
+
+        return region;
+    }
+
+    public boolean isSucceeded() {
+
+        return succeeded;
+    }
+
+    /**
+     * Returns the message of the failure that stopped the region.
+     *
+     * @return Failure message, or null if the region succeeded.
+     */
+    public String getFailureMessage() {
+
+        return failureMessage;
+    }
+
+    /**
+     * Returns the summary of the region's updater.
+     *
+     * @return Update summary, or null if the region did not reach the update phase.
+     */
+    public UpdateSummary getUpdateSummary() {
+
+        return updateSummary;
+    }
+
+    public long getDurationNanos() {
+
+        return durationNanos;
+    }
+}
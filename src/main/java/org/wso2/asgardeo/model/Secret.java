@@ -22,6 +22,10 @@ public class Secret {
     private String identifier;
     private String password;
     private String encryptedPassword;
+    private String versionId;
+    private String updatedVersionId;
+    private boolean encryptedByEarlierRun;
+    private String region;
 
     public Secret(String identifier, String password) {
 
@@ -29,16 +33,54 @@ public class Secret {
         this.password = password;
     }
 
+    /**
+     * @param versionId Id of the secret version the plain text password was read from.
+     */
+    public Secret(String identifier, String password, String versionId) {
+
+        this(identifier, password);
+        this.versionId = versionId;
+    }
+
+    /**
+     * @param versionId Id of the secret version the plain text password was read from.
+     * @param region    Id of the region the secret was read from.
+     */
+    public Secret(String identifier, String password, String versionId, String region) {
+
+        this(identifier, password, versionId);
+        this.region = region;
+    }
+
     public String getPassword() {
 
         return password;
     }
 
+    /**
+     * Drops the reference to the plain text password once it has been encrypted, so that it can be collected
+     * while the rest of the run is still in progress.
+     */
+    public void clearPassword() {
+
+        this.password = null;
+    }
+
     public String getIdentifier() {
 
         return identifier;
     }
 
+    /**
+     * Returns the id of the region the secret was read from.
+     *
+     * @return Region id, or null if unknown.
+     */
+    public String getRegion() {
+
+        return region;
+    }
+
     public String getEncryptedPassword() {
 
         return encryptedPassword;
@@ -48,4 +90,52 @@ public class Secret {
 
         this.encryptedPassword = encryptedPassword;
     }
+
+    /**
+     * Returns the id of the secret version the plain text password was read from.
+     *
+     * @return Version id, or null if unknown.
+     */
+    public String getVersionId() {
+
+        return versionId;
+    }
+
+    /**
+     * Returns the id of the secret version written with the encrypted password.
+     *
+     * @return Version id, or null if the secret has not been updated.
+     */
+    public String getUpdatedVersionId() {
+
+        return updatedVersionId;
+    }
+
+    public void setUpdatedVersionId(String updatedVersionId) {
+
+        this.updatedVersionId = updatedVersionId;
+    }
+
+    /**
+     * Keeps the value that was read as the encrypted password, for a secret that already holds a value encrypted
+     * with the current certificate by an earlier run that wrote it but did not tag it. The version read is the
+     * version holding the encrypted value, so only the tags of the secret need to be updated.
+     */
+    public void keepEncryptedValue() {
+
+        this.encryptedPassword = password;
+        this.updatedVersionId = versionId;
+        this.password = null;
+        this.encryptedByEarlierRun = true;
+    }
+
+    /**
+     * Checks whether the value read was already encrypted with the current certificate by an earlier run.
+     *
+     * @return true if the secret only needs to be tagged.
+     */
+    public boolean isEncryptedByEarlierRun() {
+
+        return encryptedByEarlierRun;
+    }
 }
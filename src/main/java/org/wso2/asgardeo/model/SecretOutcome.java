@@ -0,0 +1,34 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.model;
+
+/**
+ * This Java Enum represents what happened to a single input secret during a run.
+ */
+public enum SecretOutcome {
+
+    // The secret was overwritten with its encrypted value
+    UPDATED,
+    // The secret was overwritten with its encrypted value but could not be tagged; the next incremental run
+    // recognizes the value and tags it without encrypting it again
+    UNTAGGED,
+    // The secret was already encrypted with the current certificate and its value was not touched
+    UNCHANGED,
+    // The secret had no encrypted value to write and was not touched
+    SKIPPED,
+    // Retrieving, encrypting or updating the secret failed
+    FAILED,
+    // The run stopped before the secret was processed
+    NOT_PROCESSED
+}
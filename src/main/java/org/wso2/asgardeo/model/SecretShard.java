@@ -0,0 +1,85 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.model;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This Java Class represents the slice of the secrets processed by one of several nodes that split a run.
+ * A secret belongs to the shard selected by a 64-bit FNV-1a hash of the UTF-8 bytes of its name, modulo the number
+ * of shards. The hash does not depend on the JVM, the input order or the secret source, so nodes given the same
+ * shard count process disjoint slices that together cover every secret.
+ */
+public class SecretShard {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final int index;
+    private final int count;
+
+    public SecretShard(int index, int count) {
+
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Shard index must be between 0 and " + (count - 1) + ", got " + index
+                    + " of " + count + " shards.");
+        }
+        this.index = index;
+        this.count = count;
+    }
+
+    public int getIndex() {
+
+        return index;
+    }
+
+    public int getCount() {
+
+        return count;
+    }
+
+    /**
+     * Checks whether a secret belongs to this shard.
+     *
+     * @param secretName Name of the secret.
+     * @return true if this shard processes the secret.
+     */
+    public boolean contains(String secretName) {
+
+        return shardOf(secretName, count) == index;
+    }
+
+    /**
+     * Returns the shard a secret belongs to.
+     *
+     * @param secretName Name of the secret.
+     * @param count      Number of shards.
+     * @return Shard index between 0 and count - 1.
+     */
+    public static int shardOf(String secretName, int count) {
+
+        long hash = FNV_OFFSET_BASIS;
+        for (byte b : secretName.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return (int) Long.remainderUnsigned(hash, count);
+    }
+
+    @Override
+    public String toString() {
+
+        return index + "/" + count;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.model;
+
+/**
+ * This Java Class represents the outcome of updating secrets in AWS Secrets Manager.
+ * It carries the adaptive concurrency limits and retry counts observed during the run, used to tune large rotations.
+ */
+public class UpdateSummary {
+
+    private final int updatedCount;
+    private final int skippedCount;
+    private final int retryCount;
+    private final int throttledCount;
+    private final int concurrencyLimit;
+    private final int minConcurrencyLimit;
+    private final int peakConcurrencyLimit;
+
+    public UpdateSummary(int updatedCount, int skippedCount, int retryCount, int throttledCount, int concurrencyLimit,
+                         int minConcurrencyLimit, int peakConcurrencyLimit) {
+
+        this.updatedCount = updatedCount;
+        this.skippedCount = skippedCount;
+        this.retryCount = retryCount;
+        this.throttledCount = throttledCount;
+        this.concurrencyLimit = concurrencyLimit;
+        this.minConcurrencyLimit = minConcurrencyLimit;
+        this.peakConcurrencyLimit = peakConcurrencyLimit;
+    }
+
+    public int getUpdatedCount() {
+
+        return updatedCount;
+    }
+
+    public int getSkippedCount() {
+
+        return skippedCount;
+    }
+
+    public int getRetryCount() {
+
+        return retryCount;
+    }
+
+    public int getThrottledCount() {
+
+        return throttledCount;
+    }
+
+    public int getConcurrencyLimit() {
+
+        return concurrencyLimit;
+    }
+
+    public int getMinConcurrencyLimit() {
+
+        return minConcurrencyLimit;
+    }
+
+    public int getPeakConcurrencyLimit() {
+
+        return peakConcurrencyLimit;
+    }
+}
@@ -0,0 +1,293 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretOutcome;
+import org.wso2.asgardeo.model.UpdateSummary;
+import software.amazon.awssdk.core.exception.ApiCallAttemptTimeoutException;
+import software.amazon.awssdk.core.exception.ApiCallTimeoutException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This Java Class updates secrets in AWS Secrets Manager concurrently, adapting the number of in-flight
+ * UpdateSecret requests to the service with an {@link AimdConcurrencyLimiter}. Throttled requests are retried
+ * per secret with full-jitter exponential backoff instead of failing the whole run.
+ * <p>
+ * With conditional updates enabled, secrets are written with idempotent PutSecretValue requests instead (see
+ * {@link AwsSecretsManagerUtils#isConditionalUpdateEnabled()}), so requests that time out or fail on the server
+ * side are retried in the same way, as a repeated write creates no further version.
+ * WARNING: This overwrites the existing secret values.
+ */
+public class AdaptiveSecretUpdater {
+
+    private static final Logger log = LoggerFactory.getLogger(AdaptiveSecretUpdater.class);
+    private static final long BASE_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 20_000;
+
+    private final SecretsManagerClient client;
+    private final AimdConcurrencyLimiter limiter;
+    private final int maxRetries;
+    private final String certificateFingerprint;
+    private final boolean conditional;
+    private final AtomicInteger updatedCount = new AtomicInteger();
+    private final AtomicInteger skippedCount = new AtomicInteger();
+    private final AtomicInteger retryCount = new AtomicInteger();
+    private final AtomicInteger throttledCount = new AtomicInteger();
+
+    public AdaptiveSecretUpdater(SecretsManagerClient client, int initialConcurrency, int maxConcurrency, int maxRetries) {
+        this(client, initialConcurrency, maxConcurrency, maxRetries, null);
+    }
+
+    /**
+     * @param certificateFingerprint Fingerprint to tag updated secrets with, or null to leave tags unchanged.
+     */
+    public AdaptiveSecretUpdater(SecretsManagerClient client, int initialConcurrency, int maxConcurrency, int maxRetries,
+                                 String certificateFingerprint) {
+        this.client = Objects.requireNonNull(client, "SecretsManagerClient cannot be null");
+        this.limiter = new AimdConcurrencyLimiter(Math.min(initialConcurrency, maxConcurrency), maxConcurrency);
+        this.maxRetries = maxRetries;
+        this.certificateFingerprint = certificateFingerprint;
+        this.conditional = AwsSecretsManagerUtils.isConditionalUpdateEnabled();
+    }
+
+    /**
+     * Updates a single secret with its encrypted value, waiting for a permit under the adaptive limit and
+     * retrying throttled requests. When a certificate fingerprint is configured, the updated secret is then
+     * tagged with it so that incremental runs can skip the secret. A secret whose value was already encrypted with
+     * the certificate by an earlier run is only tagged. Safe to call from multiple threads.
+     *
+     * @param secret Secret with the encrypted password populated.
+     * @return true if the secret was updated, false if it was skipped because it has no encrypted password or
+     * already held its encrypted value.
+     * @throws EncryptionException if the update or the tagging fails, or is still throttled after the maximum
+     *                             number of retries. A secret that was written but not tagged has the
+     *                             {@link SecretOutcome#UNTAGGED} outcome.
+     */
+    public boolean update(Secret secret) {
+        if (secret.getEncryptedPassword() == null) {
+            log.warn("Secret '{}' has null encrypted password. Skipping update.", secret.getIdentifier());
+            skippedCount.incrementAndGet();
+            RunMetrics.recordOutcome(secret, SecretOutcome.SKIPPED);
+            return false;
+        }
+        boolean written = !secret.isEncryptedByEarlierRun();
+        if (written) {
+            // The encrypted record of the secret must be on disk before its value can change.
+            RunJournal.awaitDurable();
+            callWithRetry(secret, "Updating", SecretOutcome.FAILED,
+                    () -> AwsSecretsManagerUtils.sendEncryptedValue(client, secret, conditional));
+            updatedCount.incrementAndGet();
+            StructuredEventLog.recordUpdated(secret);
+        }
+        RunJournal.recordUpdated(secret);
+        if (certificateFingerprint != null) {
+            // Tagged only after the value is written: a crash or a tagging failure in between leaves an untagged
+            // secret holding its encrypted value, which the next incremental run recognizes and only tags, never a
+            // tagged secret that still holds a plain text value.
+            callWithRetry(secret, "Tagging", SecretOutcome.UNTAGGED, () ->
+                    AwsSecretsManagerUtils.sendEncryptionTags(client, secret, certificateFingerprint));
+        }
+        if (!written) {
+            skippedCount.incrementAndGet();
+            RunMetrics.recordOutcome(secret, SecretOutcome.UNCHANGED);
+            StructuredEventLog.recordSkipped(secret.getIdentifier(),
+                    "already encrypted with the current certificate by an earlier run, tagged only");
+            return false;
+        }
+        RunMetrics.recordOutcome(secret, SecretOutcome.UPDATED);
+        return true;
+    }
+
+    /**
+     * Sends a request, retrying it while it is throttled.
+     *
+     * @param failureOutcome Outcome recorded for the secret if the request fails.
+     */
+    private void callWithRetry(Secret secret, String action, SecretOutcome failureOutcome, Runnable request) {
+        for (int attempt = 0; ; attempt++) {
+            long ticket;
+            try {
+                ticket = limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                RunMetrics.recordOutcome(secret, failureOutcome);
+                throw new EncryptionException("Interrupted while updating secret: " + secret.getIdentifier(), e);
+            }
+            try {
+                request.run();
+            } catch (Exception e) {
+                boolean throttled = isThrottling(e);
+                if (!throttled && !(conditional && isTransient(e))) {
+                    limiter.release();
+                    throw AwsSecretsManagerUtils.toUpdateException(secret, e, failureOutcome);
+                }
+                if (throttled) {
+                    limiter.onThrottled(ticket);
+                    throttledCount.incrementAndGet();
+                } else {
+                    limiter.release();
+                }
+                if (attempt >= maxRetries) {
+                    log.error("Secret '{}' is still {} after {} retries.", secret.getIdentifier(),
+                            throttled ? "throttled" : "failing", maxRetries);
+                    throw AwsSecretsManagerUtils.toUpdateException(secret, e, failureOutcome);
+                }
+                retryCount.incrementAndGet();
+                backOff(secret, action, attempt);
+                continue;
+            }
+            limiter.onSuccess();
+            return;
+        }
+    }
+
+    /**
+     * Updates all given secrets concurrently. Once an update fails no further updates are started, and the failure
+     * of the earliest secret in list order is thrown after in-flight updates have finished.
+     *
+     * @param secrets List of Secret objects with encrypted passwords populated.
+     * @return Summary of the updates performed so far by this updater.
+     * @throws EncryptionException if any update fails.
+     */
+    public UpdateSummary updateAll(List<Secret> secrets) {
+        Objects.requireNonNull(secrets, "Secrets list cannot be null");
+        if (secrets.isEmpty()) {
+            log.warn("No secrets provided to update in AWS Secrets Manager.");
+            return getSummary();
+        }
+
+        log.warn("Starting update process. This will OVERWRITE existing secrets in AWS Secrets Manager.");
+        log.info("Updating {} secrets with an adaptive concurrency limit of {} (max {}).", secrets.size(),
+                limiter.getLimit(), limiter.getMaxLimit());
+        AtomicBoolean failed = new AtomicBoolean(false);
+        // One thread per permit the limiter may hand out; the limiter decides how many are actually in flight.
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(limiter.getMaxLimit(), runnable -> {
+            Thread thread = new Thread(runnable, "secret-updater-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(secrets.size());
+            for (Secret secret : secrets) {
+                futures.add(workers.submit(() -> {
+                    if (failed.get()) {
+                        return;
+                    }
+                    try {
+                        update(secret);
+                    } catch (RuntimeException e) {
+                        failed.set(true);
+                        throw e;
+                    }
+                }));
+            }
+            EncryptionException firstFailure = null;
+            for (Future<?> future : futures) {
+                EncryptionException failure = awaitUpdate(future);
+                if (firstFailure == null) {
+                    firstFailure = failure;
+                }
+            }
+            if (firstFailure != null) {
+                throw firstFailure;
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+        UpdateSummary summary = getSummary();
+        log.warn("Completed update process. Successfully updated {} secrets.", summary.getUpdatedCount());
+        return summary;
+    }
+
+    public int getMaxConcurrency() {
+        return limiter.getMaxLimit();
+    }
+
+    /**
+     * Returns the counts and concurrency limits observed by this updater so far.
+     *
+     * @return Update summary.
+     */
+    public UpdateSummary getSummary() {
+        return new UpdateSummary(updatedCount.get(), skippedCount.get(), retryCount.get(), throttledCount.get(),
+                limiter.getLimit(), limiter.getMinObservedLimit(), limiter.getPeakObservedLimit());
+    }
+
+    /**
+     * Waits for an update to finish.
+     *
+     * @return the update's failure, or null if it succeeded.
+     */
+    private static EncryptionException awaitUpdate(Future<?> future) {
+        try {
+            future.get();
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted while updating secrets.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EncryptionException) {
+                return (EncryptionException) e.getCause();
+            }
+            return new EncryptionException("Unexpected error updating secrets", e.getCause());
+        }
+    }
+
+    private static boolean isThrottling(Exception e) {
+        return e instanceof SdkServiceException && ((SdkServiceException) e).isThrottlingException();
+    }
+
+    /**
+     * Checks whether a request failed on the server side or timed out, in which case it may or may not have been
+     * applied.
+     */
+    private static boolean isTransient(Exception e) {
+        if (e instanceof SdkServiceException) {
+            return ((SdkServiceException) e).statusCode() >= 500;
+        }
+        return e instanceof ApiCallAttemptTimeoutException || e instanceof ApiCallTimeoutException
+                || e instanceof SdkClientException && e.getCause() instanceof IOException;
+    }
+
+    private static void backOff(Secret secret, String action, int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt, 20));
+        long sleepMillis = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        StructuredEventLog.recordRetry(secret, action, attempt + 1, sleepMillis);
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted while backing off update of secret: " + secret.getIdentifier(), e);
+        }
+    }
+}
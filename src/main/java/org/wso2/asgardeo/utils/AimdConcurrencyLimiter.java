@@ -0,0 +1,146 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * This Java Class limits the number of in-flight requests using additive-increase/multiplicative-decrease.
+ * Every successful request grows the limit by roughly one per round of requests, and a throttled request
+ * halves it. Only one decrease is applied per round: throttles reported for requests that were started
+ * before the most recent decrease are ignored, since they reflect the load before the limit was lowered.
+ */
+public class AimdConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.5;
+
+    private final int maxLimit;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition permitAvailable = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private long epoch;
+    private int minObservedLimit;
+    private int peakObservedLimit;
+
+    public AimdConcurrencyLimiter(int initialLimit, int maxLimit) {
+        if (initialLimit < 1 || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= initialLimit <= maxLimit.");
+        }
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.minObservedLimit = initialLimit;
+        this.peakObservedLimit = initialLimit;
+    }
+
+    /**
+     * Waits until a request may be issued under the current limit.
+     *
+     * @return Ticket to pass to {@link #onThrottled(long)} if the request is throttled.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public long acquire() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                permitAvailable.await();
+            }
+            inFlight++;
+            return epoch;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit after a successful request and additively increases the limit.
+     */
+    public void onSuccess() {
+        lock.lock();
+        try {
+            inFlight--;
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+            peakObservedLimit = Math.max(peakObservedLimit, (int) limit);
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit after a throttled request and multiplicatively decreases the limit.
+     *
+     * @param ticket Ticket returned by {@link #acquire()} for the throttled request.
+     */
+    public void onThrottled(long ticket) {
+        lock.lock();
+        try {
+            inFlight--;
+            if (ticket == epoch) {
+                limit = Math.max(1, limit * BACKOFF_RATIO);
+                minObservedLimit = Math.min(minObservedLimit, (int) limit);
+                epoch++;
+            }
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a permit without adjusting the limit, e.g. after a non-retryable failure.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            permitAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public int getMinObservedLimit() {
+        lock.lock();
+        try {
+            return minObservedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getPeakObservedLimit() {
+        lock.lock();
+        try {
+            return peakObservedLimit;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -16,25 +16,83 @@ package org.wso2.asgardeo.utils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.DiscoveryFilter;
 import org.wso2.asgardeo.model.InputSecrets;
 import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretOutcome;
+import software.amazon.awssdk.awscore.AwsServiceClientConfiguration;
 import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerAsyncClient;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerAsyncClientBuilder;
 import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClientBuilder;
+import software.amazon.awssdk.services.secretsmanager.model.APIErrorType;
+import software.amazon.awssdk.services.secretsmanager.model.BatchGetSecretValueRequest;
+import software.amazon.awssdk.services.secretsmanager.model.BatchGetSecretValueResponse;
+import software.amazon.awssdk.services.secretsmanager.model.DescribeSecretRequest;
+import software.amazon.awssdk.services.secretsmanager.model.DescribeSecretResponse;
+import software.amazon.awssdk.services.secretsmanager.model.Filter;
+import software.amazon.awssdk.services.secretsmanager.model.FilterNameStringType;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueRequest;
 import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+import software.amazon.awssdk.services.secretsmanager.model.ListSecretsRequest;
+import software.amazon.awssdk.services.secretsmanager.model.PutSecretValueRequest;
+import software.amazon.awssdk.services.secretsmanager.model.PutSecretValueResponse;
+import software.amazon.awssdk.services.secretsmanager.model.ResourceExistsException;
 import software.amazon.awssdk.services.secretsmanager.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.secretsmanager.model.SecretValueEntry;
+import software.amazon.awssdk.services.secretsmanager.model.Tag;
+import software.amazon.awssdk.services.secretsmanager.model.TagResourceRequest;
 import software.amazon.awssdk.services.secretsmanager.model.UpdateSecretRequest;
+import software.amazon.awssdk.services.secretsmanager.model.UpdateSecretResponse;
+import software.amazon.awssdk.services.secretsmanager.model.UpdateSecretVersionStageRequest;
 import software.amazon.awssdk.services.secretsmanager.model.SecretsManagerException;
 
 
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 public class AwsSecretsManagerUtils {
 
     private static final Logger log = LoggerFactory.getLogger(AwsSecretsManagerUtils.class);
+    private static final int DEFAULT_MAX_CONCURRENCY = 10;
+    private static final int DEFAULT_UPDATE_MAX_CONCURRENCY = 50;
+    private static final int DEFAULT_UPDATE_MAX_RETRIES = 8;
+    // BatchGetSecretValue accepts at most 20 identifiers in SecretIdList
+    private static final int BATCH_GET_SECRET_VALUE_MAX_IDS = 20;
+    private static final String AWS_CURRENT_VERSION_STAGE = "AWSCURRENT";
+    private static final String AWS_PREVIOUS_VERSION_STAGE = "AWSPREVIOUS";
+    private static final String CLIENT_REQUEST_TOKEN_NAMESPACE = "org.wso2.asgardeo.encryption/";
+    // ListSecrets returns at most 100 secrets per page
+    private static final int LIST_SECRETS_MAX_RESULTS = 100;
+    private static final int DEFAULT_BATCH_SIZE = 1000;
+    // The SDK loads the synchronous HTTP implementation named by this property instead of scanning the class path
+    private static final String SDK_HTTP_SERVICE_SYS_PROPERTY_KEY = "software.amazon.awssdk.http.service.impl";
+    private static final String URL_CONNECTION_HTTP_SERVICE =
+            "software.amazon.awssdk.http.urlconnection.UrlConnectionSdkHttpService";
+    private static boolean httpImplementationSelected;
 
     /**
      * Creates an AWS Secrets Manager client.
@@ -43,25 +101,317 @@ public class AwsSecretsManagerUtils {
      * @throws EncryptionException if the AWS region is not configured.
      */
     public static SecretsManagerClient createSecretsManagerClient() {
-        String regionName = System.getProperty(Constants.AWS_REGION_SYS_PROPERTY_KEY);
-        if (regionName == null || regionName.trim().isEmpty()) {
-            throw new EncryptionException("AWS Region not configured. Please set the system property: " + Constants.AWS_REGION_SYS_PROPERTY_KEY);
-        }
+        return createSecretsManagerClient(resolveRegion(), true);
+    }
+
+    /**
+     * Creates an AWS Secrets Manager client for the given region.
+     *
+     * @param region AWS region.
+     * @return Configured SecretsManagerClient.
+     */
+    public static SecretsManagerClient createSecretsManagerClient(Region region) {
+        return createSecretsManagerClient(region, true);
+    }
+
+    /**
+     * Creates an AWS Secrets Manager client for updates issued through an {@link AdaptiveSecretUpdater}.
+     * The AWS SDK does not retry throttled requests on this client, so that every throttling response reaches
+     * the updater's concurrency limiter instead of being absorbed by SDK level retries.
+     *
+     * @return Configured SecretsManagerClient.
+     * @throws EncryptionException if the AWS region is not configured.
+     */
+    public static SecretsManagerClient createSecretsManagerUpdateClient() {
+        return createSecretsManagerClient(resolveRegion(), false);
+    }
+
+    /**
+     * Creates an AWS Secrets Manager client for updates in the given region, see
+     * {@link #createSecretsManagerUpdateClient()}.
+     *
+     * @param region AWS region.
+     * @return Configured SecretsManagerClient.
+     */
+    public static SecretsManagerClient createSecretsManagerUpdateClient(Region region) {
+        return createSecretsManagerClient(region, false);
+    }
+
+    private static SecretsManagerClient createSecretsManagerClient(Region region, boolean retryThrottledRequests) {
+        URI endpoint = resolveEndpointOverride();
+        selectHttpImplementation();
         try {
-            Region region = Region.of(regionName);
              log.info("Creating AWS Secrets Manager client for region: {}", region);
-            return SecretsManagerClient.builder()
-                    .region(region)
-                    .build();
-        } catch (IllegalArgumentException e) {
-             log.error("Invalid AWS Region name specified: {}", regionName, e);
-             throw new EncryptionException("Invalid AWS Region specified: " + regionName, e);
+            SecretsManagerClientBuilder builder = SecretsManagerClient.builder()
+                    .region(region);
+            if (endpoint != null) {
+                log.info("Using AWS Secrets Manager endpoint override: {}", endpoint);
+                builder.endpointOverride(endpoint);
+            }
+            ClientOverrideConfiguration.Builder configuration = ClientOverrideConfiguration.builder()
+                    .addExecutionInterceptor(new MetricsExecutionInterceptor());
+            if (!retryThrottledRequests) {
+                RetryCondition retryCondition = RetryCondition.defaultRetryCondition();
+                configuration.retryPolicy(RetryPolicy.builder()
+                        .retryCondition(context -> !RetryUtils.isThrottlingException(context.exception())
+                                && retryCondition.shouldRetry(context))
+                        .build());
+            }
+            return builder.overrideConfiguration(configuration.build()).build();
         } catch (Exception e) {
              log.error("Failed to create AWS Secrets Manager client: {}", e.getMessage(), e);
              throw new EncryptionException("Could not create AWS Secrets Manager client", e);
         }
     }
 
+    /**
+     * In startup optimized mode, selects the lightweight URLConnection HTTP client for synchronous clients if it is
+     * bundled, which the startup build profile does, so that the Apache HTTP client is never loaded.
+     */
+    private static synchronized void selectHttpImplementation() {
+        if (httpImplementationSelected) {
+            return;
+        }
+        httpImplementationSelected = true;
+        if (!SystemPropertyUtils.getBoolean(Constants.STARTUP_OPTIMIZED_SYS_PROPERTY_KEY)
+                || System.getProperty(SDK_HTTP_SERVICE_SYS_PROPERTY_KEY) != null) {
+            return;
+        }
+        try {
+            Class.forName(URL_CONNECTION_HTTP_SERVICE, false, AwsSecretsManagerUtils.class.getClassLoader());
+        } catch (ClassNotFoundException e) {
+            log.info("URLConnection HTTP client is not bundled. Using the default HTTP client.");
+            return;
+        }
+        log.info("Using the URLConnection HTTP client.");
+        System.setProperty(SDK_HTTP_SERVICE_SYS_PROPERTY_KEY, URL_CONNECTION_HTTP_SERVICE);
+    }
+
+    /**
+     * Creates an asynchronous AWS Secrets Manager client, used to keep several requests in flight at once.
+     *
+     * @return Configured SecretsManagerAsyncClient.
+     * @throws EncryptionException if the AWS region is not configured.
+     */
+    public static SecretsManagerAsyncClient createSecretsManagerAsyncClient() {
+        return createSecretsManagerAsyncClient(resolveRegion());
+    }
+
+    /**
+     * Creates an asynchronous AWS Secrets Manager client for the given region. In startup optimized mode, requests
+     * are run on a synchronous client instead, so that the Netty HTTP client is never loaded.
+     *
+     * @param region AWS region.
+     * @return Configured SecretsManagerAsyncClient.
+     */
+    public static SecretsManagerAsyncClient createSecretsManagerAsyncClient(Region region) {
+        if (SystemPropertyUtils.getBoolean(Constants.STARTUP_OPTIMIZED_SYS_PROPERTY_KEY)) {
+            log.info("Running concurrent requests on a synchronous client for region: {}", region);
+            return new BlockingSecretsManagerAsyncClient(createSecretsManagerClient(region, true));
+        }
+        URI endpoint = resolveEndpointOverride();
+        try {
+            log.info("Creating AWS Secrets Manager async client for region: {}", region);
+            SecretsManagerAsyncClientBuilder builder = SecretsManagerAsyncClient.builder()
+                    .region(region)
+                    .overrideConfiguration(configuration -> configuration
+                            .addExecutionInterceptor(new MetricsExecutionInterceptor()));
+            if (endpoint != null) {
+                builder.endpointOverride(endpoint);
+            }
+            return builder.build();
+        } catch (Exception e) {
+            log.error("Failed to create AWS Secrets Manager async client: {}", e.getMessage(), e);
+            throw new EncryptionException("Could not create AWS Secrets Manager async client", e);
+        }
+    }
+
+    /**
+     * Resolves the maximum number of concurrent in-flight Secrets Manager requests.
+     *
+     * @return Configured concurrency limit, or the default if not set.
+     * @throws EncryptionException if the configured value is not a positive integer.
+     */
+    public static int resolveMaxConcurrency() {
+        return SystemPropertyUtils.getPositiveInt(Constants.AWS_MAX_CONCURRENCY_SYS_PROPERTY_KEY, DEFAULT_MAX_CONCURRENCY);
+    }
+
+    /**
+     * Creates an updater that writes secrets concurrently under an adaptive concurrency limit. The limit starts at
+     * the configured max concurrency and may grow up to the configured update max concurrency.
+     *
+     * @param client AWS Secrets Manager client, preferably created by {@link #createSecretsManagerUpdateClient()}.
+     * @return Adaptive secret updater.
+     * @throws EncryptionException if the configured limits are invalid.
+     */
+    public static AdaptiveSecretUpdater createAdaptiveSecretUpdater(SecretsManagerClient client) {
+        return createAdaptiveSecretUpdater(client, null);
+    }
+
+    /**
+     * Creates an adaptive updater that also tags every updated secret with the given certificate fingerprint,
+     * as required by incremental mode.
+     *
+     * @param client                 AWS Secrets Manager client.
+     * @param certificateFingerprint Fingerprint to tag updated secrets with, or null to leave tags unchanged.
+     * @return Adaptive secret updater.
+     * @throws EncryptionException if the configured limits are invalid.
+     */
+    public static AdaptiveSecretUpdater createAdaptiveSecretUpdater(SecretsManagerClient client,
+                                                                    String certificateFingerprint) {
+        int maxUpdateConcurrency = SystemPropertyUtils.getPositiveInt(Constants.AWS_UPDATE_MAX_CONCURRENCY_SYS_PROPERTY_KEY,
+                DEFAULT_UPDATE_MAX_CONCURRENCY);
+        int maxRetries = SystemPropertyUtils.getPositiveInt(Constants.AWS_UPDATE_MAX_RETRIES_SYS_PROPERTY_KEY,
+                DEFAULT_UPDATE_MAX_RETRIES);
+        return new AdaptiveSecretUpdater(client, resolveMaxConcurrency(), maxUpdateConcurrency, maxRetries,
+                certificateFingerprint);
+    }
+
+    /**
+     * Checks whether secrets already encrypted under the current certificate should be skipped.
+     *
+     * @return true if incremental mode is enabled.
+     */
+    public static boolean isIncrementalEnabled() {
+        return SystemPropertyUtils.getBoolean(Constants.INCREMENTAL_ENABLED_SYS_PROPERTY_KEY);
+    }
+
+    /**
+     * Resolves the ListSecrets filter used to discover the secrets to encrypt, instead of reading the manifest.
+     *
+     * @return Discovery filter, or null if neither a name prefix nor a tag filter is configured.
+     */
+    public static DiscoveryFilter resolveDiscoveryFilter() {
+        String namePrefix = SystemPropertyUtils.getString(Constants.DISCOVERY_NAME_PREFIX_SYS_PROPERTY_KEY);
+        String tagKey = SystemPropertyUtils.getString(Constants.DISCOVERY_TAG_KEY_SYS_PROPERTY_KEY);
+        String tagValue = SystemPropertyUtils.getString(Constants.DISCOVERY_TAG_VALUE_SYS_PROPERTY_KEY);
+        if (namePrefix == null && tagKey == null && tagValue == null) {
+            return null;
+        }
+        return new DiscoveryFilter(namePrefix, tagKey, tagValue);
+    }
+
+    /**
+     * Resolves how many discovered or streamed secrets are retrieved, encrypted and updated together when not
+     * pipelining. In incremental mode, this is also the number of secrets of a streamed manifest checked together.
+     *
+     * @return Configured batch size, or the default if not set.
+     * @throws EncryptionException if the configured value is not a positive integer.
+     */
+    public static int resolveBatchSize() {
+        return SystemPropertyUtils.getPositiveInt(Constants.BATCH_SIZE_SYS_PROPERTY_KEY, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Discovers secrets with ListSecrets. Pages are requested lazily as the returned iterator is consumed, so at
+     * most one page of names is held in memory regardless of how many secrets match. When a certificate
+     * fingerprint is given, secrets already encrypted with that certificate are skipped using the tags and
+     * version stages returned by ListSecrets, without any further requests.
+     *
+     * @param client                 AWS Secrets Manager client.
+     * @param filter                 Name prefix and tag filter.
+     * @param excludedSecretName     Secret that is never returned, e.g. the certificate secret.
+     * @param certificateFingerprint Fingerprint of the current certificate in incremental mode, otherwise null.
+     * @return Lazy iterator over the names of the discovered secrets. Its methods throw EncryptionException if
+     *         listing fails.
+     */
+    public static Iterator<String> discoverSecretNames(SecretsManagerClient client, DiscoveryFilter filter,
+                                                       String excludedSecretName, String certificateFingerprint) {
+        Objects.requireNonNull(client, "SecretsManagerClient cannot be null");
+        Objects.requireNonNull(filter, "DiscoveryFilter cannot be null");
+
+        List<Filter> filters = new ArrayList<>();
+        if (filter.getNamePrefix() != null) {
+            filters.add(Filter.builder().key(FilterNameStringType.NAME).values(filter.getNamePrefix()).build());
+        }
+        if (filter.getTagKey() != null) {
+            filters.add(Filter.builder().key(FilterNameStringType.TAG_KEY).values(filter.getTagKey()).build());
+        }
+        if (filter.getTagValue() != null) {
+            filters.add(Filter.builder().key(FilterNameStringType.TAG_VALUE).values(filter.getTagValue()).build());
+        }
+        ListSecretsRequest listRequest = ListSecretsRequest.builder()
+                .filters(filters)
+                .maxResults(LIST_SECRETS_MAX_RESULTS)
+                .build();
+        log.info("Discovering secrets with name prefix: {}, tag key: {}, tag value: {}", filter.getNamePrefix(),
+                filter.getTagKey(), filter.getTagValue());
+        return new SecretDiscoveryIterator(client.listSecretsPaginator(listRequest).iterator(), filter,
+                excludedSecretName, certificateFingerprint);
+    }
+
+    /**
+     * Checks whether secrets should be retrieved in bulk using BatchGetSecretValue.
+     *
+     * @return true if batch retrieval is enabled.
+     */
+    public static boolean isBatchGetEnabled() {
+        return SystemPropertyUtils.getBoolean(Constants.AWS_BATCH_GET_SYS_PROPERTY_KEY);
+    }
+
+    /**
+     * Checks whether secrets are written with PutSecretValue under a request token derived from the version they
+     * were read at, failing a secret that was written to since it was read.
+     *
+     * @return true if conditional updates are enabled.
+     */
+    public static boolean isConditionalUpdateEnabled() {
+        return SystemPropertyUtils.getBoolean(Constants.AWS_UPDATE_CONDITIONAL_SYS_PROPERTY_KEY);
+    }
+
+    private static URI resolveEndpointOverride() {
+        String endpoint = SystemPropertyUtils.getString(Constants.AWS_ENDPOINT_OVERRIDE_SYS_PROPERTY_KEY);
+        if (endpoint == null) {
+            return null;
+        }
+        try {
+            URI uri = new URI(endpoint);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                throw new EncryptionException("AWS endpoint override must be an absolute URL: " + endpoint);
+            }
+            return uri;
+        } catch (URISyntaxException e) {
+            throw new EncryptionException("Invalid AWS endpoint override: " + endpoint, e);
+        }
+    }
+
+    /**
+     * Resolves the AWS regions to process. The region system property holds a single region or a comma separated
+     * list of regions that hold the same secrets.
+     *
+     * @return Configured regions in the given order, without duplicates.
+     * @throws EncryptionException if no region is configured or a region name is invalid.
+     */
+    public static List<Region> resolveRegions() {
+        String regionNames = System.getProperty(Constants.AWS_REGION_SYS_PROPERTY_KEY);
+        if (regionNames == null || regionNames.trim().isEmpty()) {
+            throw new EncryptionException("AWS Region not configured. Please set the system property: " + Constants.AWS_REGION_SYS_PROPERTY_KEY);
+        }
+        Set<Region> regions = new LinkedHashSet<>();
+        for (String regionName : regionNames.split(",")) {
+            if (regionName.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                regions.add(Region.of(regionName.trim()));
+            } catch (IllegalArgumentException e) {
+                 log.error("Invalid AWS Region name specified: {}", regionName, e);
+                 throw new EncryptionException("Invalid AWS Region specified: " + regionName, e);
+            }
+        }
+        if (regions.isEmpty()) {
+            throw new EncryptionException("AWS Region not configured. Please set the system property: " + Constants.AWS_REGION_SYS_PROPERTY_KEY);
+        }
+        return new ArrayList<>(regions);
+    }
+
+    /**
+     * Resolves the primary region, i.e. the first configured region, which also holds the certificate.
+     */
+    private static Region resolveRegion() {
+        return resolveRegions().get(0);
+    }
+
     /**
      * Retrieve the defined plain text passwords from AWS Secrets Manager.
      * Secret names are defined in the secrets.json file.
@@ -84,36 +434,120 @@ public class AwsSecretsManagerUtils {
         log.info("Retrieving {} plain text secrets from AWS Secrets Manager...", secretNames.size());
         List<Secret> secrets = new ArrayList<>();
         for (String secretName : secretNames) {
-            log.debug("Retrieving secret: {}", secretName);
-            try {
-                GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
-                        .secretId(secretName)
-                        .build();
-                GetSecretValueResponse valueResponse = client.getSecretValue(valueRequest);
-
-                String plainTextPassword = valueResponse.secretString();
-                if (plainTextPassword == null) {
-                     log.warn("Retrieved null secretString for secret '{}'. Treating as empty.", secretName);
-                     plainTextPassword = "";
-                }
-                 secrets.add(new Secret(secretName, plainTextPassword));
-                 log.debug("Successfully retrieved secret: {}", secretName);
-
-            } catch (ResourceNotFoundException e) {
-                log.error("Secret '{}' not found in AWS Secrets Manager.", secretName);
-                throw new EncryptionException("Secret not found: " + secretName, e);
-            } catch (SecretsManagerException e) {
-                log.error("Error retrieving secret '{}' from AWS Secrets Manager: {}", secretName, e.awsErrorDetails().errorMessage(), e);
-                throw new EncryptionException("AWS error retrieving secret: " + secretName, e);
-            } catch (Exception e) {
-                 log.error("Unexpected error retrieving secret '{}': {}", secretName, e.getMessage(), e);
-                 throw new EncryptionException("Unexpected error retrieving secret: " + secretName, e);
-            }
+            secrets.add(retrievePlainTextSecret(client, secretName));
         }
         log.info("Successfully retrieved {} plain text secrets.", secrets.size());
         return secrets;
     }
 
+    /**
+     * Retrieve a single plain text password from AWS Secrets Manager.
+     *
+     * @param client     AWS Secrets Manager client.
+     * @param secretName The exact name or ARN of the secret.
+     * @return Secret with identifier and plain text password.
+     * @throws EncryptionException if the secret cannot be retrieved.
+     */
+    public static Secret retrievePlainTextSecret(SecretsManagerClient client, String secretName) {
+        try {
+            GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
+                    .secretId(secretName)
+                    .build();
+            GetSecretValueResponse valueResponse = client.getSecretValue(valueRequest);
+            return toPlainTextSecret(regionOf(client.serviceClientConfiguration()), secretName, valueResponse);
+        } catch (Exception e) {
+            throw toRetrievalException(regionOf(client.serviceClientConfiguration()), secretName, e);
+        }
+    }
+
+    /**
+     * Retrieve the defined plain text passwords from AWS Secrets Manager using concurrent requests.
+     * At most {@code maxConcurrency} requests are in flight at any time. The returned list keeps the
+     * order of the input secret names. On the first failure no further requests are issued, and the
+     * failure of the earliest secret in input order is thrown once in-flight requests have settled.
+     *
+     * @param inputSecrets   Input secret names.
+     * @param client         AWS Secrets Manager async client.
+     * @param maxConcurrency Maximum number of in-flight requests.
+     * @return List of Secrets with identifiers and plain text passwords.
+     * @throws EncryptionException if secrets cannot be retrieved.
+     */
+    public static List<Secret> retrievePlainTextSecretsAsync(InputSecrets inputSecrets, SecretsManagerAsyncClient client,
+                                                             int maxConcurrency) {
+        Objects.requireNonNull(inputSecrets, "InputSecrets cannot be null");
+        Objects.requireNonNull(client, "SecretsManagerAsyncClient cannot be null");
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1.");
+        }
+
+        List<String> secretNames = inputSecrets.getSecrets();
+        if (secretNames == null || secretNames.isEmpty()) {
+            log.warn("No secret names provided in input secrets file.");
+            return new ArrayList<>();
+        }
+
+        log.info("Retrieving {} plain text secrets from AWS Secrets Manager with up to {} concurrent requests...",
+                secretNames.size(), maxConcurrency);
+        String region = regionOf(client.serviceClientConfiguration());
+        List<Secret> secrets = callWithBoundedConcurrency(secretNames, maxConcurrency, secretName -> {
+            GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
+                    .secretId(secretName)
+                    .build();
+            return client.getSecretValue(valueRequest)
+                    .thenApply(valueResponse -> toPlainTextSecret(region, secretName, valueResponse));
+        }, (secretName, throwable) -> toRetrievalException(region, secretName, throwable));
+        log.debug("Successfully retrieved {} plain text secrets.", secrets.size());
+        return secrets;
+    }
+
+    /**
+     * Retrieve the defined plain text passwords from AWS Secrets Manager using BatchGetSecretValue.
+     * Secret names are split into batches of up to 20 identifiers, and at most {@code maxConcurrency}
+     * batches are in flight at any time. The returned list keeps the order of the input secret names.
+     * Per-secret errors reported by the batch response are surfaced as {@link EncryptionException}s.
+     *
+     * @param inputSecrets   Input secret names.
+     * @param client         AWS Secrets Manager async client.
+     * @param maxConcurrency Maximum number of in-flight batch requests.
+     * @return List of Secrets with identifiers and plain text passwords.
+     * @throws EncryptionException if secrets cannot be retrieved.
+     */
+    public static List<Secret> retrievePlainTextSecretsInBatches(InputSecrets inputSecrets,
+                                                                 SecretsManagerAsyncClient client, int maxConcurrency) {
+        Objects.requireNonNull(inputSecrets, "InputSecrets cannot be null");
+        Objects.requireNonNull(client, "SecretsManagerAsyncClient cannot be null");
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Max concurrency must be at least 1.");
+        }
+
+        List<String> secretNames = inputSecrets.getSecrets();
+        if (secretNames == null || secretNames.isEmpty()) {
+            log.warn("No secret names provided in input secrets file.");
+            return new ArrayList<>();
+        }
+
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < secretNames.size(); i += BATCH_GET_SECRET_VALUE_MAX_IDS) {
+            batches.add(secretNames.subList(i, Math.min(i + BATCH_GET_SECRET_VALUE_MAX_IDS, secretNames.size())));
+        }
+        log.info("Retrieving {} plain text secrets from AWS Secrets Manager in {} batches with up to {} concurrent requests...",
+                secretNames.size(), batches.size(), maxConcurrency);
+        String region = regionOf(client.serviceClientConfiguration());
+        List<List<Secret>> batchResults = callWithBoundedConcurrency(batches, maxConcurrency, batch -> {
+            log.debug("Retrieving batch of {} secrets starting at: {}", batch.size(), batch.get(0));
+            BatchGetSecretValueRequest batchRequest = BatchGetSecretValueRequest.builder()
+                    .secretIdList(batch)
+                    .build();
+            return client.batchGetSecretValue(batchRequest)
+                    .thenApply(batchResponse -> toPlainTextSecrets(region, batch, batchResponse));
+        }, (batch, throwable) -> toRetrievalException(region, batch.get(0), throwable));
+
+        List<Secret> secrets = new ArrayList<>(secretNames.size());
+        batchResults.forEach(secrets::addAll);
+        log.debug("Successfully retrieved {} plain text secrets.", secrets.size());
+        return secrets;
+    }
+
      /**
      * Retrieves the secret string value for a given secret name.
      *
@@ -123,26 +557,36 @@ public class AwsSecretsManagerUtils {
      * @throws EncryptionException if the secret is not found or retrieval fails.
      */
     public static String getSecretStringValue(SecretsManagerClient client, String secretName) {
+        return getSecretValue(client, secretName).secretString();
+    }
+
+    /**
+     * Retrieves the current version of a string secret, with its version id.
+     *
+     * @param client     AWS Secrets Manager client.
+     * @param secretName The exact name or ARN of the secret.
+     * @return The response holding the secret string value and version id.
+     * @throws EncryptionException if the secret is not found, is not a string secret or retrieval fails.
+     */
+    public static GetSecretValueResponse getSecretValue(SecretsManagerClient client, String secretName) {
         Objects.requireNonNull(client, "SecretsManagerClient cannot be null");
         if (secretName == null || secretName.trim().isEmpty()) {
             throw new IllegalArgumentException("Secret name cannot be null or empty.");
         }
 
-        log.info("Retrieving secret string value for: {}", secretName);
         try {
             GetSecretValueRequest valueRequest = GetSecretValueRequest.builder()
                     .secretId(secretName)
                     .build();
             GetSecretValueResponse valueResponse = client.getSecretValue(valueRequest);
 
-            String secretValue = valueResponse.secretString();
-            if (secretValue == null) {
+            if (valueResponse.secretString() == null) {
                 // This might happen if it's stored as binary, which shouldn't be the case now
                 log.error("Secret '{}' does not contain a string value (secretString is null).", secretName);
                 throw new EncryptionException("Secret '" + secretName + "' is not a string secret.");
             }
-            log.info("Successfully retrieved secret string for: {}", secretName);
-            return secretValue;
+            StructuredEventLog.recordFetched(secretName, valueResponse.versionId());
+            return valueResponse;
 
         } catch (ResourceNotFoundException e) {
             log.error("Secret '{}' not found in AWS Secrets Manager.", secretName);
@@ -150,12 +594,36 @@ public class AwsSecretsManagerUtils {
         } catch (SecretsManagerException e) {
             log.error("Error retrieving secret '{}' from AWS Secrets Manager: {}", secretName, e.awsErrorDetails().errorMessage(), e);
             throw new EncryptionException("AWS error retrieving secret: " + secretName, e);
+        } catch (EncryptionException e) {
+            throw e;
         } catch (Exception e) {
              log.error("Unexpected error retrieving secret '{}': {}", secretName, e.getMessage(), e);
              throw new EncryptionException("Unexpected error retrieving secret: " + secretName, e);
         }
     }
 
+    /**
+     * Looks up the id of the current version of a secret with DescribeSecret, without reading its value.
+     *
+     * @param client     AWS Secrets Manager client.
+     * @param secretName The exact name or ARN of the secret.
+     * @return Id of the version labelled AWSCURRENT, or null if no version is.
+     * @throws EncryptionException if the secret cannot be described.
+     */
+    public static String describeCurrentVersionId(SecretsManagerClient client, String secretName) {
+        Objects.requireNonNull(client, "SecretsManagerClient cannot be null");
+        try {
+            DescribeSecretResponse description = client.describeSecret(DescribeSecretRequest.builder()
+                    .secretId(secretName)
+                    .build());
+            return currentVersionId(description.versionIdsToStages());
+        } catch (SecretsManagerException e) {
+            throw new EncryptionException("AWS error describing secret " + secretName + ": "
+                    + e.awsErrorDetails().errorMessage(), e);
+        } catch (SdkException e) {
+            throw new EncryptionException("Unexpected error describing secret " + secretName + ": " + e.getMessage(), e);
+        }
+    }
 
     /**
      * Updates secrets in AWS Secrets Manager with their encrypted values.
@@ -177,31 +645,432 @@ public class AwsSecretsManagerUtils {
         log.warn("Starting update process. This will OVERWRITE existing secrets in AWS Secrets Manager.");
         int updateCount = 0;
         for (Secret secret : secrets) {
-            if (secret.getEncryptedPassword() == null) {
-                 log.warn("Secret '{}' has null encrypted password. Skipping update.", secret.getIdentifier());
-                 continue;
+            if (updateSecretWithEncryptedValue(client, secret)) {
+                updateCount++;
             }
-            log.debug("Updating secret: {}", secret.getIdentifier());
-            try {
-                UpdateSecretRequest updateRequest = UpdateSecretRequest.builder()
-                        .secretId(secret.getIdentifier())
-                        .secretString(secret.getEncryptedPassword())
-                        .build();
+        }
+         log.warn("Completed update process. Successfully updated {} secrets.", updateCount);
+    }
 
-                client.updateSecret(updateRequest);
-                log.debug("Successfully updated secret: {}", secret.getIdentifier());
-                updateCount++;
-            } catch (ResourceNotFoundException e) {
-                log.error("Cannot update secret '{}' as it was not found (unexpected).", secret.getIdentifier());
-                throw new EncryptionException("Cannot update non-existent secret: " + secret.getIdentifier(), e);
-            } catch (SecretsManagerException e) {
-                log.error("Error updating secret '{}' in AWS Secrets Manager: {}", secret.getIdentifier(), e.awsErrorDetails().errorMessage(), e);
-                throw new EncryptionException("AWS error updating secret: " + secret.getIdentifier(), e);
+    /**
+     * Updates a single secret in AWS Secrets Manager with its encrypted value.
+     * WARNING: This overwrites the existing secret value.
+     *
+     * @param client AWS Secrets Manager client.
+     * @param secret Secret with the encrypted password populated.
+     * @return true if the secret was updated, false if it was skipped because it has no encrypted password.
+     * @throws EncryptionException if update fails.
+     */
+    public static boolean updateSecretWithEncryptedValue(SecretsManagerClient client, Secret secret) {
+        if (secret.getEncryptedPassword() == null) {
+             log.warn("Secret '{}' has null encrypted password. Skipping update.", secret.getIdentifier());
+             RunMetrics.recordOutcome(secret, SecretOutcome.SKIPPED);
+             return false;
+        }
+        RunJournal.awaitDurable();
+        try {
+            sendEncryptedValue(client, secret, isConditionalUpdateEnabled());
+            RunJournal.recordUpdated(secret);
+            RunMetrics.recordOutcome(secret, SecretOutcome.UPDATED);
+            StructuredEventLog.recordUpdated(secret);
+            return true;
+        } catch (Exception e) {
+            throw toUpdateException(secret, e, SecretOutcome.FAILED);
+        }
+    }
+
+    /**
+     * Overwrites the secret value with its encrypted password, letting AWS SDK exceptions propagate so that
+     * callers can decide whether to retry.
+     *
+     * @param conditional Whether to write with {@link #putEncryptedValue} instead of UpdateSecret.
+     */
+    static void sendEncryptedValue(SecretsManagerClient client, Secret secret, boolean conditional) {
+        if (conditional) {
+            putEncryptedValue(client, secret);
+            return;
+        }
+        UpdateSecretRequest updateRequest = UpdateSecretRequest.builder()
+                .secretId(secret.getIdentifier())
+                .secretString(secret.getEncryptedPassword())
+                .build();
+
+        UpdateSecretResponse updateResponse = client.updateSecret(updateRequest);
+        secret.setUpdatedVersionId(updateResponse.versionId());
+    }
+
+    /**
+     * Writes the encrypted password as a new version whose id, the ClientRequestToken, is derived from the id of the
+     * version the plain text was read from. Repeating the request for the same read therefore creates no further
+     * version, so it is safe to retry after a timeout. The version labels are then checked: the version that was
+     * current before the write must be the version that was read. If another value was written in between, it is
+     * made current again so that it is not lost, and the update fails. AWS SDK exceptions propagate so that callers
+     * can decide whether to retry.
+     *
+     * @throws EncryptionException if the secret was written to since it was read.
+     */
+    static void putEncryptedValue(SecretsManagerClient client, Secret secret) {
+        String secretName = secret.getIdentifier();
+        if (secret.getVersionId() == null) {
+            throw new EncryptionException("Cannot update secret '" + secretName + "' conditionally as the version "
+                    + "it was read at is unknown.");
+        }
+        String requestToken = deriveClientRequestToken(secret.getVersionId());
+        PutSecretValueResponse putResponse;
+        try {
+            putResponse = client.putSecretValue(PutSecretValueRequest.builder()
+                    .secretId(secretName)
+                    .secretString(secret.getEncryptedPassword())
+                    .clientRequestToken(requestToken)
+                    .build());
+        } catch (ResourceExistsException e) {
+            throw new EncryptionException("Secret '" + secretName + "' already has a different value written for "
+                    + "version " + secret.getVersionId() + ", e.g. by an earlier run.", e);
+        }
+
+        Map<String, List<String>> versionIdsToStages = client.describeSecret(DescribeSecretRequest.builder()
+                .secretId(secretName)
+                .build()).versionIdsToStages();
+        String currentVersionId = currentVersionId(versionIdsToStages);
+        if (!putResponse.versionId().equals(currentVersionId)) {
+            throw new EncryptionException("Secret '" + secretName + "' was written to while it was being updated. "
+                    + "Its current version " + currentVersionId + " holds the other value.");
+        }
+        String previousVersionId = versionIdWithStage(versionIdsToStages, AWS_PREVIOUS_VERSION_STAGE);
+        if (previousVersionId == null) {
+            throw new EncryptionException("Cannot confirm that secret '" + secretName + "' was not written to after "
+                    + "version " + secret.getVersionId() + " was read, as it has no previous version.");
+        }
+        if (!secret.getVersionId().equals(previousVersionId)) {
+            // The value written in between would otherwise be replaced by the encryption of an outdated value
+            client.updateSecretVersionStage(UpdateSecretVersionStageRequest.builder()
+                    .secretId(secretName)
+                    .versionStage(AWS_CURRENT_VERSION_STAGE)
+                    .moveToVersionId(previousVersionId)
+                    .removeFromVersionId(putResponse.versionId())
+                    .build());
+            throw new EncryptionException("Secret '" + secretName + "' was written to after version "
+                    + secret.getVersionId() + " was read. Version " + previousVersionId + " was made current again "
+                    + "and is not encrypted by this run.");
+        }
+        secret.setUpdatedVersionId(putResponse.versionId());
+    }
+
+    /**
+     * Derives the ClientRequestToken of a conditional update, which becomes the id of the version written, from
+     * the id of the version that was read.
+     */
+    static String deriveClientRequestToken(String readVersionId) {
+        return UUID.nameUUIDFromBytes((CLIENT_REQUEST_TOKEN_NAMESPACE + readVersionId)
+                .getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    /**
+     * Tags an updated secret with the fingerprint of the certificate it was encrypted with and the id of the
+     * version holding the encrypted value, letting AWS SDK exceptions propagate so that callers can decide
+     * whether to retry.
+     */
+    static void sendEncryptionTags(SecretsManagerClient client, Secret secret, String certificateFingerprint) {
+        TagResourceRequest tagRequest = TagResourceRequest.builder()
+                .secretId(secret.getIdentifier())
+                .tags(Tag.builder().key(Constants.ENCRYPTION_CERT_FINGERPRINT_TAG_KEY).value(certificateFingerprint).build(),
+                        Tag.builder().key(Constants.ENCRYPTION_VERSION_ID_TAG_KEY).value(secret.getUpdatedVersionId()).build())
+                .build();
+
+        client.tagResource(tagRequest);
+    }
+
+    /**
+     * Selects the secrets that still need to be encrypted under the given certificate, using DescribeSecret
+     * so that no secret values are read. A secret is skipped only if its tags record the given certificate
+     * fingerprint and its current (AWSCURRENT) version is the version that was written with the encrypted value.
+     * A secret whose value was replaced after it was encrypted is therefore processed again.
+     *
+     * @param secretNames            Names or ARNs of the secrets to check.
+     * @param certificateFingerprint SHA-256 fingerprint of the current certificate.
+     * @param client                 AWS Secrets Manager async client.
+     * @param maxConcurrency         Maximum number of DescribeSecret requests in flight at once.
+     * @return Names of the secrets that are not yet encrypted under the certificate, in input order.
+     * @throws EncryptionException if any secret cannot be described.
+     */
+    public static List<String> filterSecretsPendingEncryption(List<String> secretNames, String certificateFingerprint,
+                                                              SecretsManagerAsyncClient client, int maxConcurrency) {
+        Objects.requireNonNull(secretNames, "Secret names cannot be null");
+        Objects.requireNonNull(certificateFingerprint, "Certificate fingerprint cannot be null");
+        Objects.requireNonNull(client, "SecretsManagerAsyncClient cannot be null");
+
+        log.info("Checking encryption state of {} secrets with up to {} concurrent requests.", secretNames.size(),
+                maxConcurrency);
+        String region = regionOf(client.serviceClientConfiguration());
+        List<DescribeSecretResponse> descriptions = callWithBoundedConcurrency(secretNames, maxConcurrency,
+                secretName -> client.describeSecret(DescribeSecretRequest.builder().secretId(secretName).build()),
+                (secretName, throwable) -> toRetrievalException(region, secretName, throwable));
+
+        List<String> pendingSecretNames = new ArrayList<>(secretNames.size());
+        for (int i = 0; i < secretNames.size(); i++) {
+            DescribeSecretResponse description = descriptions.get(i);
+            if (isEncryptedWith(description.tags(), description.versionIdsToStages(), certificateFingerprint)) {
+                RunMetrics.recordOutcome(region, secretNames.get(i), SecretOutcome.UNCHANGED);
+                StructuredEventLog.recordSkipped(secretNames.get(i), "already encrypted with the current certificate");
+            } else {
+                pendingSecretNames.add(secretNames.get(i));
+            }
+        }
+        log.info("{} of {} secrets are already encrypted with the current certificate and will be skipped.",
+                secretNames.size() - pendingSecretNames.size(), secretNames.size());
+        return pendingSecretNames;
+    }
+
+    /**
+     * Finds the secrets whose current (AWSCURRENT) version is no longer the given version, using DescribeSecret
+     * so that no secret values are read.
+     *
+     * @param versionIds     Version id last known for each secret, keyed by secret name or ARN.
+     * @param client         AWS Secrets Manager async client.
+     * @param maxConcurrency Maximum number of DescribeSecret requests in flight at once.
+     * @return Current version id of each secret whose current version changed.
+     * @throws EncryptionException if any secret cannot be described.
+     */
+    public static Map<String, String> findSecretsChangedSince(Map<String, String> versionIds,
+                                                              SecretsManagerAsyncClient client, int maxConcurrency) {
+        Objects.requireNonNull(versionIds, "Version ids cannot be null");
+        Objects.requireNonNull(client, "SecretsManagerAsyncClient cannot be null");
+
+        List<String> secretNames = new ArrayList<>(versionIds.keySet());
+        log.info("Checking the current version of {} secrets with up to {} concurrent requests.", secretNames.size(),
+                maxConcurrency);
+        String region = regionOf(client.serviceClientConfiguration());
+        List<DescribeSecretResponse> descriptions = callWithBoundedConcurrency(secretNames, maxConcurrency,
+                secretName -> client.describeSecret(DescribeSecretRequest.builder().secretId(secretName).build()),
+                (secretName, throwable) -> toRetrievalException(region, secretName, throwable));
+
+        Map<String, String> changedVersionIds = new HashMap<>();
+        for (int i = 0; i < secretNames.size(); i++) {
+            String currentVersionId = currentVersionId(descriptions.get(i).versionIdsToStages());
+            if (currentVersionId != null && !currentVersionId.equals(versionIds.get(secretNames.get(i)))) {
+                changedVersionIds.put(secretNames.get(i), currentVersionId);
+            }
+        }
+        return changedVersionIds;
+    }
+
+    private static String currentVersionId(Map<String, List<String>> versionIdsToStages) {
+        return versionIdWithStage(versionIdsToStages, AWS_CURRENT_VERSION_STAGE);
+    }
+
+    private static String versionIdWithStage(Map<String, List<String>> versionIdsToStages, String stage) {
+        for (Map.Entry<String, List<String>> versionStages : versionIdsToStages.entrySet()) {
+            if (versionStages.getValue().contains(stage)) {
+                return versionStages.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether the tags of a secret record that its current version was encrypted with the given certificate.
+     *
+     * @param tags                   Tags of the secret.
+     * @param versionIdsToStages     Staging labels of each version of the secret.
+     * @param certificateFingerprint SHA-256 fingerprint of the current certificate.
+     * @return true if the secret does not need to be encrypted again.
+     */
+    static boolean isEncryptedWith(List<Tag> tags, Map<String, List<String>> versionIdsToStages,
+                                   String certificateFingerprint) {
+        String taggedFingerprint = null;
+        String taggedVersionId = null;
+        for (Tag tag : tags) {
+            if (Constants.ENCRYPTION_CERT_FINGERPRINT_TAG_KEY.equals(tag.key())) {
+                taggedFingerprint = tag.value();
+            } else if (Constants.ENCRYPTION_VERSION_ID_TAG_KEY.equals(tag.key())) {
+                taggedVersionId = tag.value();
+            }
+        }
+        if (!certificateFingerprint.equals(taggedFingerprint) || taggedVersionId == null) {
+            return false;
+        }
+        List<String> stages = versionIdsToStages.get(taggedVersionId);
+        return stages != null && stages.contains(AWS_CURRENT_VERSION_STAGE);
+    }
+
+    /**
+     * Converts the failure of a request updating a secret, recording the given outcome for the secret.
+     */
+    static EncryptionException toUpdateException(Secret secret, Throwable throwable, SecretOutcome outcome) {
+        String secretName = secret.getIdentifier();
+        RunMetrics.recordOutcome(secret, outcome);
+        StructuredEventLog.recordFailed(secretName, outcome == SecretOutcome.UNTAGGED
+                ? "written but not tagged: " + throwable.getMessage() : throwable.getMessage());
+        if (throwable instanceof EncryptionException) {
+            log.error("Error updating secret '{}': {}", secretName, throwable.getMessage());
+            return (EncryptionException) throwable;
+        }
+        if (throwable instanceof ResourceNotFoundException) {
+            log.error("Cannot update secret '{}' as it was not found (unexpected).", secretName);
+            return new EncryptionException("Cannot update non-existent secret: " + secretName, throwable);
+        }
+        if (throwable instanceof SecretsManagerException) {
+            log.error("Error updating secret '{}' in AWS Secrets Manager: {}", secretName,
+                    ((SecretsManagerException) throwable).awsErrorDetails().errorMessage(), throwable);
+            return new EncryptionException("AWS error updating secret: " + secretName, throwable);
+        }
+        log.error("Unexpected error updating secret '{}': {}", secretName, throwable.getMessage(), throwable);
+        return new EncryptionException("Unexpected error updating secret: " + secretName, throwable);
+    }
+
+    private static Secret toPlainTextSecret(String region, String secretName, GetSecretValueResponse valueResponse) {
+        String plainTextPassword = valueResponse.secretString();
+        if (plainTextPassword == null) {
+             log.warn("Retrieved null secretString for secret '{}'. Treating as empty.", secretName);
+             plainTextPassword = "";
+        }
+        Secret secret = new Secret(secretName, plainTextPassword, valueResponse.versionId(), region);
+        RunJournal.recordFetched(secret);
+        StructuredEventLog.recordFetched(secretName, secret.getVersionId());
+        return secret;
+    }
+
+    private static List<Secret> toPlainTextSecrets(String region, List<String> secretIds,
+                                                   BatchGetSecretValueResponse batchResponse) {
+        for (APIErrorType error : batchResponse.errors()) {
+            RunMetrics.recordOutcome(region, error.secretId(), SecretOutcome.FAILED);
+            if ("ResourceNotFoundException".equals(error.errorCode())) {
+                log.error("Secret '{}' not found in AWS Secrets Manager.", error.secretId());
+                throw new EncryptionException("Secret not found: " + error.secretId());
+            }
+            log.error("Error retrieving secret '{}' from AWS Secrets Manager: {} ({})", error.secretId(),
+                    error.message(), error.errorCode());
+            throw new EncryptionException("AWS error retrieving secret: " + error.secretId() + " ("
+                    + error.errorCode() + ")");
+        }
+
+        // Secret values may be returned in any order and are keyed by both name and ARN.
+        Map<String, SecretValueEntry> entriesById = new HashMap<>();
+        for (SecretValueEntry entry : batchResponse.secretValues()) {
+            entriesById.put(entry.name(), entry);
+            entriesById.put(entry.arn(), entry);
+        }
+        List<Secret> secrets = new ArrayList<>(secretIds.size());
+        for (String secretId : secretIds) {
+            SecretValueEntry entry = entriesById.get(secretId);
+            if (entry == null) {
+                RunMetrics.recordOutcome(region, secretId, SecretOutcome.FAILED);
+                log.error("Secret '{}' was missing from the BatchGetSecretValue response.", secretId);
+                throw new EncryptionException("Secret not returned by AWS Secrets Manager: " + secretId);
+            }
+            String plainTextPassword = entry.secretString();
+            if (plainTextPassword == null) {
+                log.warn("Retrieved null secretString for secret '{}'. Treating as empty.", secretId);
+                plainTextPassword = "";
+            }
+            Secret secret = new Secret(secretId, plainTextPassword, entry.versionId(), region);
+            RunJournal.recordFetched(secret);
+            StructuredEventLog.recordFetched(secretId, secret.getVersionId());
+            secrets.add(secret);
+        }
+        return secrets;
+    }
+
+    private static EncryptionException toRetrievalException(String region, String secretName, Throwable throwable) {
+        RunMetrics.recordOutcome(region, secretName, SecretOutcome.FAILED);
+        StructuredEventLog.recordFailed(secretName, throwable.getMessage());
+        if (throwable instanceof EncryptionException) {
+            return (EncryptionException) throwable;
+        }
+        if (throwable instanceof ResourceNotFoundException) {
+            log.error("Secret '{}' not found in AWS Secrets Manager.", secretName);
+            return new EncryptionException("Secret not found: " + secretName, throwable);
+        }
+        if (throwable instanceof SecretsManagerException) {
+            log.error("Error retrieving secret '{}' from AWS Secrets Manager: {}", secretName,
+                    ((SecretsManagerException) throwable).awsErrorDetails().errorMessage(), throwable);
+            return new EncryptionException("AWS error retrieving secret: " + secretName, throwable);
+        }
+        log.error("Unexpected error retrieving secret '{}': {}", secretName, throwable.getMessage(), throwable);
+        return new EncryptionException("Unexpected error retrieving secret: " + secretName, throwable);
+    }
+
+    private static String regionOf(AwsServiceClientConfiguration clientConfiguration) {
+        Region region = clientConfiguration.region();
+        return region != null ? region.id() : null;
+    }
+
+    /**
+     * Issues one asynchronous call per item while keeping at most {@code maxConcurrency} calls in flight.
+     * Results are returned in item order. Once a call fails no further calls are issued, and the failure of
+     * the earliest item in input order is thrown after all in-flight calls have settled.
+     */
+    private static <T, R> List<R> callWithBoundedConcurrency(List<T> items, int maxConcurrency,
+                                                             Function<T, CompletableFuture<R>> call,
+                                                             BiFunction<T, Throwable, EncryptionException> errorMapper) {
+        Semaphore inFlight = new Semaphore(maxConcurrency);
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<CompletableFuture<R>> futures = new ArrayList<>(items.size());
+        for (T item : items) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                awaitQuietly(futures);
+                throw new EncryptionException("Interrupted while waiting for AWS Secrets Manager requests.", e);
+            }
+            if (failed.get()) {
+                inFlight.release();
+                break;
+            }
+            CompletableFuture<R> future;
+            try {
+                future = call.apply(item).handle((result, throwable) -> {
+                    // The failure is set before the permit is released, so the dispatch loop never takes the
+                    // permit of a failed call and sends another request
+                    if (throwable != null) {
+                        failed.set(true);
+                    }
+                    inFlight.release();
+                    if (throwable != null) {
+                        throw errorMapper.apply(item, unwrap(throwable));
+                    }
+                    return result;
+                });
             } catch (Exception e) {
-                 log.error("Unexpected error updating secret '{}': {}", secret.getIdentifier(), e.getMessage(), e);
-                 throw new EncryptionException("Unexpected error updating secret: " + secret.getIdentifier(), e);
+                // Request could not be dispatched at all, e.g. the client has been closed.
+                failed.set(true);
+                inFlight.release();
+                future = new CompletableFuture<>();
+                future.completeExceptionally(errorMapper.apply(item, e));
             }
+            futures.add(future);
+        }
+
+        awaitQuietly(futures);
+        List<R> results = new ArrayList<>(futures.size());
+        for (CompletableFuture<R> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof EncryptionException) {
+                    throw (EncryptionException) e.getCause();
+                }
+                throw new EncryptionException("Unexpected error calling AWS Secrets Manager", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while (cause instanceof CompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static void awaitQuietly(List<? extends CompletableFuture<?>> futures) {
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            // Individual failures are reported by the caller in input order.
+            log.debug("At least one request completed exceptionally: {}", e.getMessage());
         }
-         log.warn("Completed update process. Successfully updated {} secrets.", updateCount);
     }
 }
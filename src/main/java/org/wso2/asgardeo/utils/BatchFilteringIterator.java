@@ -0,0 +1,69 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * This Java Class applies a filter that works on lists, such as the DescribeSecret based incremental check, to a
+ * lazy source of secret names. Names are taken from the source in batches, so that only one batch is held in memory
+ * while the filter still runs with its full concurrency.
+ */
+public class BatchFilteringIterator implements Iterator<String> {
+
+    private final Iterator<String> source;
+    private final UnaryOperator<List<String>> filter;
+    private final int batchSize;
+    private Iterator<String> filteredBatch = Collections.emptyIterator();
+
+    /**
+     * @param source    Lazy source of secret names.
+     * @param filter    Filter returning the names of a batch to keep.
+     * @param batchSize Maximum number of names passed to the filter at once.
+     */
+    public BatchFilteringIterator(Iterator<String> source, UnaryOperator<List<String>> filter, int batchSize) {
+        this.source = Objects.requireNonNull(source, "Source cannot be null");
+        this.filter = Objects.requireNonNull(filter, "Filter cannot be null");
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!filteredBatch.hasNext() && source.hasNext()) {
+            List<String> batch = new ArrayList<>();
+            while (batch.size() < batchSize && source.hasNext()) {
+                batch.add(source.next());
+            }
+            filteredBatch = filter.apply(batch).iterator();
+        }
+        return filteredBatch.hasNext();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return filteredBatch.next();
+    }
+}
@@ -0,0 +1,343 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.utils.RegionalClientPool.RegionClients;
+import software.amazon.awssdk.services.secretsmanager.model.GetSecretValueResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.NoSuchAlgorithmException;
+import java.security.PublicKey;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * This Java Class loads the public keys of the certificates held in certificate secrets, parsing each certificate
+ * once. The PEM block is located in the secret value and decoded to DER without parsing, and the certificate is
+ * identified by the SHA-256 fingerprint of its DER encoding; only a fingerprint not seen before is parsed as X.509.
+ * <p>
+ * The public keys can be kept in a cache file between runs, along with the version id each certificate secret was
+ * read at. With the version check enabled, a certificate secret whose current version is still the cached one is
+ * not downloaded again: a DescribeSecret call replaces the GetSecretValue call and the parse.
+ * <p>
+ * Whoever can write the cache file chooses the key secrets are encrypted with, so it must be protected like the
+ * certificate secret itself.
+ */
+public class CertificateCache {
+
+    private static final Logger log = LoggerFactory.getLogger(CertificateCache.class);
+    private static final int CACHE_FORMAT_VERSION = 1;
+    private static final String PEM_BEGIN_MARKER = "-----BEGIN CERTIFICATE-----";
+    private static final String PEM_END_MARKER = "-----END CERTIFICATE-----";
+    private static final String PHASE_CERTIFICATE_FETCH = "certificate_fetch";
+    private static final String PHASE_CERTIFICATE_PARSE = "certificate_parse";
+
+    // Null if the cache is not persisted
+    private final Path path;
+    private final boolean versionCheck;
+    private final ConcurrentMap<String, CachedCertificate> certificatesByFingerprint = new ConcurrentHashMap<>();
+    // Certificate of each secret loaded by this run, keyed by region and secret name
+    private final ConcurrentMap<String, CachedCertificate> certificatesBySecret = new ConcurrentHashMap<>();
+    // Version and certificate of each secret when it was last read, by this or a previous run
+    private final ConcurrentMap<String, SecretEntry> secretVersions = new ConcurrentHashMap<>();
+    private volatile boolean modified;
+
+    private CertificateCache(Path path, boolean versionCheck) {
+        this.path = path;
+        this.versionCheck = versionCheck;
+    }
+
+    /**
+     * Opens the cache configured through system properties. Without a cache file, certificates are only cached for
+     * the lifetime of the process.
+     *
+     * @return Certificate cache.
+     */
+    public static CertificateCache openConfigured() {
+        String cacheFile = SystemPropertyUtils.getString(Constants.CERTIFICATE_CACHE_FILE_SYS_PROPERTY_KEY);
+        boolean versionCheck =
+                SystemPropertyUtils.getBoolean(Constants.CERTIFICATE_CACHE_VERSION_CHECK_SYS_PROPERTY_KEY);
+        if (cacheFile == null) {
+            if (versionCheck) {
+                log.warn("The certificate version check has no effect without a certificate cache file. Set system "
+                        + "property: {}", Constants.CERTIFICATE_CACHE_FILE_SYS_PROPERTY_KEY);
+            }
+            return new CertificateCache(null, false);
+        }
+        return open(Paths.get(cacheFile), versionCheck);
+    }
+
+    /**
+     * Opens a persisted cache, loading the entries of the cache file if it exists. A cache file that cannot be read
+     * is ignored, and replaced when the cache is saved.
+     *
+     * @param path         Cache file.
+     * @param versionCheck Whether to reuse the cached certificate of a secret whose version has not changed.
+     * @return Certificate cache.
+     */
+    public static CertificateCache open(Path path, boolean versionCheck) {
+        Objects.requireNonNull(path, "Certificate cache path cannot be null");
+        CertificateCache cache = new CertificateCache(path, versionCheck);
+        if (Files.exists(path)) {
+            cache.readCacheFile();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the certificate held in a certificate secret, which may hold extra metadata around the PEM block.
+     * Each secret is read at most once per cache.
+     *
+     * @param clients           Clients of the region the secret is in.
+     * @param pemCertSecretName Name of the certificate secret.
+     * @return Public key and fingerprint of the certificate.
+     * @throws EncryptionException if the secret cannot be read or does not hold a valid certificate.
+     */
+    public CachedCertificate get(RegionClients clients, String pemCertSecretName) {
+        String secretKey = clients.getRegion().id() + '/' + pemCertSecretName;
+        return certificatesBySecret.computeIfAbsent(secretKey, key -> loadCertificate(clients, key, pemCertSecretName));
+    }
+
+    /**
+     * Writes the cache file if certificates were read since it was loaded. Only certificates still held by a
+     * certificate secret are kept. A failure is logged, as it does not affect the run.
+     */
+    public void save() {
+        if (path == null || !modified) {
+            return;
+        }
+        CacheFile cacheFile = new CacheFile();
+        cacheFile.formatVersion = CACHE_FORMAT_VERSION;
+        cacheFile.certificates = new ArrayList<>();
+        cacheFile.secrets = new ArrayList<>(secretVersions.values());
+        for (CachedCertificate certificate : certificatesByFingerprint.values()) {
+            if (secretVersions.values().stream().anyMatch(
+                    entry -> certificate.getFingerprint().equals(entry.fingerprint))) {
+                cacheFile.certificates.add(new CertificateEntry(certificate));
+            }
+        }
+        try {
+            RunReportWriter.writeAtomically(path, new GsonBuilder().setPrettyPrinting().create().toJson(cacheFile));
+            modified = false;
+            log.info("Saved {} certificates to certificate cache {}.", cacheFile.certificates.size(), path);
+        } catch (IOException e) {
+            log.warn("Could not write certificate cache {}: {}", path, e.getMessage());
+        }
+    }
+
+    private CachedCertificate loadCertificate(RegionClients clients, String secretKey, String pemCertSecretName) {
+        long phaseStart = System.nanoTime();
+        SecretEntry cachedEntry = secretVersions.get(secretKey);
+        if (versionCheck && cachedEntry != null) {
+            CachedCertificate cachedCertificate = certificatesByFingerprint.get(cachedEntry.fingerprint);
+            if (cachedCertificate != null && isCurrentVersion(clients, pemCertSecretName, cachedEntry.versionId)) {
+                log.info("Certificate secret '{}' is unchanged since version {}. Using the cached certificate.",
+                        pemCertSecretName, cachedEntry.versionId);
+                RunMetrics.recordPhase(PHASE_CERTIFICATE_FETCH, phaseStart);
+                return cachedCertificate;
+            }
+        }
+
+        GetSecretValueResponse response = AwsSecretsManagerUtils.getSecretValue(clients.getClient(),
+                pemCertSecretName);
+        RunMetrics.recordPhase(PHASE_CERTIFICATE_FETCH, phaseStart);
+        phaseStart = System.nanoTime();
+        try {
+            byte[] encodedCertificate = extractEncodedCertificate(response.secretString(), pemCertSecretName);
+            String fingerprint = EncryptionUtils.computeFingerprint(encodedCertificate);
+            CachedCertificate certificate = certificatesByFingerprint.computeIfAbsent(fingerprint,
+                    key -> parse(encodedCertificate, key, pemCertSecretName));
+            if (path != null && response.versionId() != null) {
+                secretVersions.put(secretKey, new SecretEntry(clients.getRegion().id(), pemCertSecretName,
+                        response.versionId(), fingerprint));
+                modified = true;
+            }
+            return certificate;
+        } catch (NoSuchAlgorithmException e) {
+            throw new EncryptionException("Error computing the certificate fingerprint", e);
+        } finally {
+            RunMetrics.recordPhase(PHASE_CERTIFICATE_PARSE, phaseStart);
+        }
+    }
+
+    private static boolean isCurrentVersion(RegionClients clients, String pemCertSecretName, String versionId) {
+        try {
+            return versionId.equals(AwsSecretsManagerUtils.describeCurrentVersionId(clients.getClient(),
+                    pemCertSecretName));
+        } catch (EncryptionException e) {
+            log.warn("Could not check the version of certificate secret '{}', reading it instead: {}",
+                    pemCertSecretName, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Locates the PEM block in a certificate secret and decodes its body, without parsing the certificate.
+     */
+    static byte[] extractEncodedCertificate(String secretValue, String pemCertSecretName) {
+        int beginIndex = secretValue.indexOf(PEM_BEGIN_MARKER);
+        if (beginIndex == -1) {
+            log.error("Could not find '{}' marker in the certificate string retrieved from secret '{}'.",
+                    PEM_BEGIN_MARKER, pemCertSecretName);
+            throw new EncryptionException("Certificate data from secret " + pemCertSecretName
+                    + " is missing the BEGIN marker.");
+        }
+        int bodyIndex = beginIndex + PEM_BEGIN_MARKER.length();
+        int endIndex = secretValue.indexOf(PEM_END_MARKER, bodyIndex);
+        if (endIndex == -1) {
+            log.error("Could not find '{}' marker in the certificate string retrieved from secret '{}'.",
+                    PEM_END_MARKER, pemCertSecretName);
+            throw new EncryptionException("Certificate data from secret " + pemCertSecretName
+                    + " is missing the END marker.");
+        }
+        try {
+            // The MIME decoder skips the line breaks and indentation of the PEM body
+            byte[] encodedCertificate = Base64.getMimeDecoder().decode(secretValue.substring(bodyIndex, endIndex));
+            log.info("Successfully extracted clean PEM certificate block. Length: {}",
+                    endIndex + PEM_END_MARKER.length() - beginIndex);
+            return encodedCertificate;
+        } catch (IllegalArgumentException e) {
+            throw new EncryptionException("Certificate data from secret " + pemCertSecretName
+                    + " is not valid Base64.", e);
+        }
+    }
+
+    private static CachedCertificate parse(byte[] encodedCertificate, String fingerprint, String pemCertSecretName) {
+        try {
+            Certificate certificate = CertificateFactory.getInstance("X.509")
+                    .generateCertificate(new ByteArrayInputStream(encodedCertificate));
+            // Trailing data would give the certificate a fingerprint other than the one it is cached under
+            if (!Arrays.equals(certificate.getEncoded(), encodedCertificate)) {
+                throw new EncryptionException("Certificate data from secret " + pemCertSecretName
+                        + " holds data beyond the certificate.");
+            }
+            log.info("Parsed certificate with SHA-256 fingerprint {} from secret '{}'.", fingerprint,
+                    pemCertSecretName);
+            return new CachedCertificate(fingerprint, certificate.getPublicKey());
+        } catch (CertificateException e) {
+            log.error("Error parsing the certificate from secret '{}': {}", pemCertSecretName, e.getMessage(), e);
+            throw new EncryptionException("Error when parsing the certificate from secret " + pemCertSecretName, e);
+        }
+    }
+
+    private void readCacheFile() {
+        CacheFile cacheFile;
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            cacheFile = new Gson().fromJson(reader, CacheFile.class);
+        } catch (IOException | JsonParseException e) {
+            log.warn("Ignoring certificate cache {} that cannot be read: {}", path, e.getMessage());
+            return;
+        }
+        if (cacheFile == null || cacheFile.formatVersion != CACHE_FORMAT_VERSION || cacheFile.certificates == null
+                || cacheFile.secrets == null) {
+            log.warn("Ignoring certificate cache {} with an unsupported format.", path);
+            return;
+        }
+        for (CertificateEntry entry : cacheFile.certificates) {
+            try {
+                PublicKey publicKey = KeyFactory.getInstance(entry.algorithm)
+                        .generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(entry.publicKey)));
+                certificatesByFingerprint.put(entry.fingerprint, new CachedCertificate(entry.fingerprint, publicKey));
+            } catch (GeneralSecurityException | IllegalArgumentException | NullPointerException e) {
+                log.warn("Ignoring cached certificate {} that cannot be loaded: {}", entry.fingerprint,
+                        e.getMessage());
+            }
+        }
+        for (SecretEntry entry : cacheFile.secrets) {
+            if (entry.region != null && entry.name != null && entry.versionId != null && entry.fingerprint != null) {
+                secretVersions.put(entry.region + '/' + entry.name, entry);
+            }
+        }
+        log.info("Loaded {} certificates of {} certificate secrets from certificate cache {}.",
+                certificatesByFingerprint.size(), secretVersions.size(), path);
+    }
+
+    /**
+     * The public key of a certificate and the SHA-256 fingerprint of its DER encoding.
+     */
+    public static final class CachedCertificate {
+
+        private final String fingerprint;
+        private final PublicKey publicKey;
+
+        CachedCertificate(String fingerprint, PublicKey publicKey) {
+            this.fingerprint = fingerprint;
+            this.publicKey = publicKey;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+
+        public PublicKey getPublicKey() {
+            return publicKey;
+        }
+    }
+
+    private static final class CacheFile {
+        int formatVersion;
+        List<CertificateEntry> certificates;
+        List<SecretEntry> secrets;
+    }
+
+    private static final class CertificateEntry {
+        String fingerprint;
+        String algorithm;
+        // X.509 SubjectPublicKeyInfo, Base64 encoded
+        String publicKey;
+
+        CertificateEntry(CachedCertificate certificate) {
+            this.fingerprint = certificate.getFingerprint();
+            this.algorithm = certificate.getPublicKey().getAlgorithm();
+            this.publicKey = Base64.getEncoder().encodeToString(certificate.getPublicKey().getEncoded());
+        }
+    }
+
+    private static final class SecretEntry {
+        String region;
+        String name;
+        String versionId;
+        String fingerprint;
+
+        SecretEntry(String region, String name, String versionId, String fingerprint) {
+            this.region = region;
+            this.name = name;
+            this.versionId = versionId;
+            this.fingerprint = fingerprint;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+
+import javax.crypto.Cipher;
+import javax.crypto.NoSuchPaddingException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.NoSuchAlgorithmException;
+import java.security.NoSuchProviderException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+/**
+ * This Java Class hands out {@link Cipher} instances initialized with a single key, for encryption with a public
+ * key or, on the reading side, decryption with a private key. The key is parsed once, and each thread lazily gets
+ * its own initialized cipher, so concurrent encryption does not need to serialize on a shared cipher instance.
+ */
+public class CipherPool {
+
+    private static final Logger log = LoggerFactory.getLogger(CipherPool.class);
+
+    private final Key key;
+    private final int mode;
+    private final String certificateFingerprint;
+    private final String transformation;
+    private final String provider;
+    private final ThreadLocal<Cipher> ciphers;
+    private EnvelopeEncryptor envelopeEncryptor;
+    private SecretDecryptor verifier;
+    private boolean detectingEncryptedValues;
+
+    public CipherPool(PublicKey publicKey, String transformation, String provider) {
+        this(publicKey, null, transformation, provider);
+    }
+
+    public CipherPool(PublicKey publicKey, String certificateFingerprint, String transformation, String provider) {
+        this(publicKey, Cipher.ENCRYPT_MODE, certificateFingerprint, transformation, provider);
+    }
+
+    private CipherPool(Key key, int mode, String certificateFingerprint, String transformation, String provider) {
+        this.key = key;
+        this.mode = mode;
+        this.certificateFingerprint = certificateFingerprint;
+        this.transformation = transformation;
+        this.provider = provider;
+        this.ciphers = ThreadLocal.withInitial(this::newCipher);
+    }
+
+    /**
+     * Creates a pool of ciphers that decrypt with the given private key.
+     *
+     * @param privateKey             Private key matching the certificate secrets were encrypted with.
+     * @param certificateFingerprint SHA-256 fingerprint of that certificate, as lowercase hex.
+     * @param transformation         RSA transformation secrets were encrypted with.
+     * @param provider               Security provider of the transformation.
+     * @return Cipher pool initialized for decryption.
+     */
+    public static CipherPool forDecryption(PrivateKey privateKey, String certificateFingerprint,
+                                           String transformation, String provider) {
+        return new CipherPool(privateKey, Cipher.DECRYPT_MODE, certificateFingerprint, transformation, provider);
+    }
+
+    /**
+     * Returns the cipher bound to the calling thread. The cipher must not be shared with other threads.
+     *
+     * @return Cipher initialized with the pool's key, for encryption unless created by {@link #forDecryption}.
+     * @throws EncryptionException if the cipher cannot be initialized.
+     */
+    public Cipher get() {
+        return ciphers.get();
+    }
+
+    public PublicKey getPublicKey() {
+        return key instanceof PublicKey ? (PublicKey) key : null;
+    }
+
+    public boolean isDecryption() {
+        return mode == Cipher.DECRYPT_MODE;
+    }
+
+    /**
+     * Returns the SHA-256 fingerprint of the certificate holding the public key, as lowercase hex.
+     *
+     * @return Certificate fingerprint, or null if the pool was not created from a certificate.
+     */
+    public String getCertificateFingerprint() {
+        return certificateFingerprint;
+    }
+
+    /**
+     * Switches secrets encrypted with this pool to envelope encryption, generating and wrapping the data key.
+     * Must be called before the pool is shared with other threads.
+     *
+     * @throws EncryptionException if the data key cannot be generated or wrapped.
+     */
+    public void enableEnvelopeEncryption() {
+        if (isDecryption()) {
+            throw new EncryptionException("Envelope encryption requires a cipher pool created for encryption.");
+        }
+        if (envelopeEncryptor == null) {
+            envelopeEncryptor = new EnvelopeEncryptor(this);
+        }
+    }
+
+    /**
+     * Returns the envelope encryptor used for secrets, if envelope encryption is enabled.
+     *
+     * @return Envelope encryptor, or null if secrets are encrypted directly with RSA.
+     */
+    public EnvelopeEncryptor getEnvelopeEncryptor() {
+        return envelopeEncryptor;
+    }
+
+    /**
+     * Verifies every secret encrypted with this pool by decrypting it with the given decryptor before it is
+     * updated. Must be called before the pool is shared with other threads.
+     *
+     * @param decryptor Decryptor holding the private key of the pool's certificate.
+     */
+    public void enableVerification(SecretDecryptor decryptor) {
+        if (isDecryption()) {
+            throw new EncryptionException("Round-trip verification requires a cipher pool created for encryption.");
+        }
+        verifier = decryptor;
+    }
+
+    /**
+     * Returns the decryptor secrets encrypted with this pool are verified with, if verification is enabled.
+     *
+     * @return Verifying decryptor, or null if secrets are not verified.
+     */
+    public SecretDecryptor getVerifier() {
+        return verifier;
+    }
+
+    /**
+     * Recognizes values that are already encrypted with the pool's certificate when secrets are encrypted, so that
+     * a secret written but not tagged by an earlier incremental run is tagged instead of encrypted a second time.
+     * Must be called before the pool is shared with other threads.
+     */
+    public void enableEncryptedValueDetection() {
+        if (isDecryption()) {
+            throw new EncryptionException("Encrypted value detection requires a cipher pool created for encryption.");
+        }
+        detectingEncryptedValues = true;
+    }
+
+    public boolean isDetectingEncryptedValues() {
+        return detectingEncryptedValues;
+    }
+
+    public String getTransformation() {
+        return transformation;
+    }
+
+    private Cipher newCipher() {
+        try {
+            Cipher cipher = Cipher.getInstance(transformation, provider);
+            cipher.init(mode, key);
+            log.debug("Initialized {} cipher for thread: {}", transformation, Thread.currentThread().getName());
+            return cipher;
+        } catch (NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException | NoSuchProviderException exception) {
+            log.error("Error initializing cipher: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when initializing the cipher", exception);
+        }
+    }
+}
@@ -17,12 +17,159 @@ public class Constants {
 
     // Name of the JSON file containing the secret identifiers
     static final String INPUT_SECRETS_SOURCE_FILE = "secrets.json";
-    static final String CIPHER_TRANSFORMATION_SYSTEM_PROPERTY = "org.wso2.asgardeo.cipher.transformation";
+    public static final String CIPHER_TRANSFORMATION_SYSTEM_PROPERTY = "org.wso2.asgardeo.cipher.transformation";
+    // Number of worker threads used to encrypt secrets in parallel
+    static final String ENCRYPTION_PARALLELISM_SYS_PROPERTY_KEY = "org.wso2.asgardeo.encryption.parallelism";
 
     // --- AWS Configuration System Property Keys ---
-    static final String AWS_REGION_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.region";
+    public static final String AWS_REGION_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.region";
+    // Endpoint URL overriding the regional AWS Secrets Manager endpoint, e.g. a local stand-in for load testing
+    public static final String AWS_ENDPOINT_OVERRIDE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.endpoint.override";
+    // Maximum number of concurrent in-flight requests to AWS Secrets Manager
+    static final String AWS_MAX_CONCURRENCY_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.max.concurrency";
+    // Retrieve secrets in bulk using BatchGetSecretValue instead of one GetSecretValue call per secret
+    static final String AWS_BATCH_GET_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.batch.get";
+    // Upper bound of the adaptive concurrency limit for UpdateSecret requests
+    static final String AWS_UPDATE_MAX_CONCURRENCY_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.update.max.concurrency";
+    // Maximum number of retries of a throttled UpdateSecret request for a single secret
+    static final String AWS_UPDATE_MAX_RETRIES_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.update.max.retries";
+    // Write with PutSecretValue under a request token derived from the version read, and fail a secret that was
+    // written to since it was read instead of overwriting that value
+    static final String AWS_UPDATE_CONDITIONAL_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.update.conditional";
     // *** CHANGED: Key for the NAME of the STRING secret holding the full PEM certificate ***
     public static final String PUBLIC_PEM_CERT_SECRET_NAME_SYS_PROPERTY_KEY = "org.wso2.asgardeo.aws.pem.cert.secret.name"; // Renamed for clarity
 
+    // --- Pipelined Execution System Property Keys ---
+    // Run fetch, encrypt and update as concurrent stages connected by bounded queues
+    public static final String PIPELINE_ENABLED_SYS_PROPERTY_KEY = "org.wso2.asgardeo.pipeline.enabled";
+    // Capacity of each queue between pipeline stages
+    public static final String PIPELINE_QUEUE_CAPACITY_SYS_PROPERTY_KEY = "org.wso2.asgardeo.pipeline.queue.capacity";
+
+    // --- Envelope Encryption ---
+    // Encrypt secrets with AES-GCM under a single RSA-wrapped data key instead of RSA per secret
+    static final String ENVELOPE_ENCRYPTION_ENABLED_SYS_PROPERTY_KEY = "org.wso2.asgardeo.encryption.envelope.enabled";
+
+    // --- Incremental Mode ---
+    // Skip secrets whose current version is already encrypted under the current certificate
+    public static final String INCREMENTAL_ENABLED_SYS_PROPERTY_KEY = "org.wso2.asgardeo.incremental.enabled";
+    // Tag recording the SHA-256 fingerprint of the certificate a secret was encrypted with
+    static final String ENCRYPTION_CERT_FINGERPRINT_TAG_KEY = "org.wso2.asgardeo.encryption.cert.fingerprint";
+    // Tag recording the id of the secret version holding the encrypted value
+    static final String ENCRYPTION_VERSION_ID_TAG_KEY = "org.wso2.asgardeo.encryption.version.id";
+
+    // --- Secret Discovery ---
+    // Discover secrets with ListSecrets by name prefix instead of reading the manifest
+    static final String DISCOVERY_NAME_PREFIX_SYS_PROPERTY_KEY = "org.wso2.asgardeo.discovery.name.prefix";
+    // Discover secrets with ListSecrets by tag key instead of reading the manifest
+    static final String DISCOVERY_TAG_KEY_SYS_PROPERTY_KEY = "org.wso2.asgardeo.discovery.tag.key";
+    // Discover secrets with ListSecrets by tag value instead of reading the manifest
+    static final String DISCOVERY_TAG_VALUE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.discovery.tag.value";
+
+    // --- Streamed Secret Sources ---
+    // Manifest file read incrementally instead of the bundled secrets.json
+    public static final String MANIFEST_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.manifest.file";
+    // Format of the manifest file: "json" or "ndjson" (default: derived from the file extension)
+    static final String MANIFEST_FORMAT_SYS_PROPERTY_KEY = "org.wso2.asgardeo.manifest.format";
+    // Number of discovered or streamed secrets retrieved, encrypted and updated together when not pipelining
+    static final String BATCH_SIZE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.batch.size";
+
+    // --- Multi-Manifest Runs ---
+    // JSON file listing several manifests, each with its own certificate secret, processed together in one run
+    public static final String MANIFESTS_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.manifests.file";
+    // Number of manifests whose batches are processed at once (default: 4)
+    public static final String MANIFEST_PARALLELISM_SYS_PROPERTY_KEY = "org.wso2.asgardeo.manifests.parallelism";
+
+    // --- Sharding ---
+    // Zero-based index of the shard of the secrets this node processes
+    static final String SHARD_INDEX_SYS_PROPERTY_KEY = "org.wso2.asgardeo.shard.index";
+    // Number of nodes the secrets are split across; each name is assigned to a shard by a stable hash
+    static final String SHARD_COUNT_SYS_PROPERTY_KEY = "org.wso2.asgardeo.shard.count";
+
+    // --- Checkpoint Journal ---
+    // Append-only file recording the progress of each secret, so that an interrupted run can be resumed
+    static final String JOURNAL_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.journal.file";
+    // Continue the run recorded in the journal, skipping secrets it already updated
+    static final String JOURNAL_RESUME_SYS_PROPERTY_KEY = "org.wso2.asgardeo.journal.resume";
+
+    // --- Startup ---
+    // Favour JVM startup time: leave PKCS#1 to the JDK provider and use the URLConnection HTTP client if bundled
+    public static final String STARTUP_OPTIMIZED_SYS_PROPERTY_KEY = "org.wso2.asgardeo.startup.optimized";
+
+    // --- Run Metrics ---
+    // File the JSON run report is written to at the end of a run
+    static final String METRICS_REPORT_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.metrics.report.file";
+    // File the Prometheus textfile collector metrics are written to at the end of a run
+    static final String METRICS_PROMETHEUS_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.metrics.prometheus.file";
+
+    // --- Certificate Rotation ---
+    // Keystore holding the private key of the previous certificate; enables re-wrapping of encrypted secrets
+    static final String REWRAP_KEYSTORE_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.rewrap.keystore.file";
+    // Type of the re-wrap keystore, e.g. PKCS12 or JKS; the JVM default if not set
+    static final String REWRAP_KEYSTORE_TYPE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.rewrap.keystore.type";
+    // Password of the re-wrap keystore, also used for the key unless a key password is set
+    static final String REWRAP_KEYSTORE_PASSWORD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.rewrap.keystore.password";
+    // Environment variable holding the re-wrap keystore password; takes precedence over the system property
+    static final String REWRAP_KEYSTORE_PASSWORD_ENV_VAR = "REWRAP_KEYSTORE_PASSWORD";
+    // Alias of the previous private key; optional if the keystore holds a single key
+    static final String REWRAP_KEY_ALIAS_SYS_PROPERTY_KEY = "org.wso2.asgardeo.rewrap.key.alias";
+    // Password of the previous private key entry
+    static final String REWRAP_KEY_PASSWORD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.rewrap.key.password";
+    // Environment variable holding the previous private key password; takes precedence over the system property
+    static final String REWRAP_KEY_PASSWORD_ENV_VAR = "REWRAP_KEY_PASSWORD";
+
+    // --- Round-Trip Verification ---
+    // Keystore holding the private key of the certificate; enables decrypting each secret before it is written
+    static final String VERIFY_KEYSTORE_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.verify.keystore.file";
+    // Type of the verification keystore, e.g. PKCS12 or JKS; the JVM default if not set
+    static final String VERIFY_KEYSTORE_TYPE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.verify.keystore.type";
+    // Password of the verification keystore, also used for the key unless a key password is set
+    static final String VERIFY_KEYSTORE_PASSWORD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.verify.keystore.password";
+    // Environment variable holding the verification keystore password; takes precedence over the system property
+    static final String VERIFY_KEYSTORE_PASSWORD_ENV_VAR = "VERIFY_KEYSTORE_PASSWORD";
+    // Alias of the private key entry; optional if the keystore holds a single key
+    static final String VERIFY_KEY_ALIAS_SYS_PROPERTY_KEY = "org.wso2.asgardeo.verify.key.alias";
+    // Password of the private key entry
+    static final String VERIFY_KEY_PASSWORD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.verify.key.password";
+    // Environment variable holding the private key password; takes precedence over the system property
+    static final String VERIFY_KEY_PASSWORD_ENV_VAR = "VERIFY_KEY_PASSWORD";
+    // RSA transformation consuming services decrypt with (default: RSA/ECB/PKCS1Padding), independent of the one
+    // secrets are encrypted with, so that a misconfigured encryption transformation is caught
+    static final String VERIFY_TRANSFORMATION_SYS_PROPERTY_KEY = "org.wso2.asgardeo.verify.transformation";
+
+    // --- Certificate Cache ---
+    // File the public keys of parsed certificates are kept in between runs, keyed by certificate fingerprint
+    static final String CERTIFICATE_CACHE_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.certificate.cache.file";
+    // If true, a cached certificate secret is only downloaded again when DescribeSecret reports a new version
+    static final String CERTIFICATE_CACHE_VERSION_CHECK_SYS_PROPERTY_KEY =
+            "org.wso2.asgardeo.certificate.cache.version.check";
+
+    // --- Structured Logging ---
+    // File per-secret events are appended to as JSON lines by a background writer, or "-" for standard output
+    static final String STRUCTURED_LOG_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.log.structured.file";
+    // Number of events buffered for the writer; further events are dropped and counted (default: 8192)
+    static final String STRUCTURED_LOG_BUFFER_SIZE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.log.structured.buffer.size";
+
+    // --- Secret Reader ---
+    // Keystore holding the private key that decrypts secrets for consuming services
+    static final String READER_KEYSTORE_FILE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.keystore.file";
+    // Keystore type, e.g. PKCS12 or JKS; the JVM default if not set
+    static final String READER_KEYSTORE_TYPE_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.keystore.type";
+    // Password of the keystore, also used for the key unless a key password is set
+    static final String READER_KEYSTORE_PASSWORD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.keystore.password";
+    // Environment variable holding the keystore password; takes precedence over the system property
+    static final String READER_KEYSTORE_PASSWORD_ENV_VAR = "READER_KEYSTORE_PASSWORD";
+    // Alias of the private key entry; optional if the keystore holds a single key
+    static final String READER_KEY_ALIAS_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.key.alias";
+    // Password of the private key entry
+    static final String READER_KEY_PASSWORD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.key.password";
+    // Environment variable holding the private key password; takes precedence over the system property
+    static final String READER_KEY_PASSWORD_ENV_VAR = "READER_KEY_PASSWORD";
+    // Seconds a decrypted secret is served from the cache
+    static final String READER_CACHE_TTL_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.cache.ttl.seconds";
+    // Seconds before expiry at which a cached secret that is still read is reloaded in the background
+    static final String READER_REFRESH_AHEAD_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.cache.refresh.ahead.seconds";
+    // Maximum number of decrypted secrets held; the least recently read are evicted first
+    static final String READER_CACHE_MAX_ENTRIES_SYS_PROPERTY_KEY = "org.wso2.asgardeo.reader.cache.max.entries";
+
     private Constants() {}
 }
@@ -0,0 +1,147 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * This Java Class holds the working buffers of one encryption thread, so that encrypting a secret does not allocate
+ * a plain text byte array and a cipher text array per secret. Buffers grow to the largest secret seen and are then
+ * reused.
+ * <p>
+ * The plain text buffer must be cleared with {@link #clearPlainText()} once the cipher text has been produced, so
+ * that plain text bytes do not stay resident until the buffer is next overwritten.
+ */
+final class EncryptionBuffers {
+
+    private static final ThreadLocal<EncryptionBuffers> BUFFERS = ThreadLocal.withInitial(EncryptionBuffers::new);
+    private static final ThreadLocal<EncryptionBuffers> VERIFICATION_BUFFERS =
+            ThreadLocal.withInitial(EncryptionBuffers::new);
+    private static final int INITIAL_CAPACITY = 512;
+
+    // Replaces unpaired surrogates with '?' as String.getBytes does, so the encoded bytes are identical
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private char[] chars = new char[INITIAL_CAPACITY];
+    private byte[] plainText = new byte[INITIAL_CAPACITY];
+    private int plainTextLength;
+    private byte[] cipherText = new byte[INITIAL_CAPACITY];
+
+    /**
+     * Returns the buffers of the calling thread. They must not be shared with other threads.
+     */
+    static EncryptionBuffers get() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Returns a second set of buffers of the calling thread, which a value is decrypted into while the plain text
+     * it was encrypted from is still held by {@link #get()}.
+     */
+    static EncryptionBuffers getForVerification() {
+        return VERIFICATION_BUFFERS.get();
+    }
+
+    /**
+     * Encodes a value as UTF-8 into the plain text buffer.
+     *
+     * @param value Value to encode.
+     * @return Number of bytes written to the start of {@link #plainText()}.
+     */
+    int encodePlainText(String value) {
+        clearPlainText();
+        int length = value.length();
+        ensurePlainTextCapacity((int) (length * (double) encoder.maxBytesPerChar()));
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+        }
+        // The encoder's fast path needs an array backed input, which a String wrapped in a CharBuffer is not
+        value.getChars(0, length, chars, 0);
+        ByteBuffer output = ByteBuffer.wrap(plainText);
+        try {
+            CoderResult result = encoder.reset().encode(CharBuffer.wrap(chars, 0, length), output, true);
+            if (result.isUnderflow()) {
+                result = encoder.flush(output);
+            }
+            if (!result.isUnderflow()) {
+                throw new IllegalStateException("Unexpected result encoding plain text: " + result);
+            }
+        } finally {
+            Arrays.fill(chars, 0, length, '\0');
+            plainTextLength = output.position();
+        }
+        return plainTextLength;
+    }
+
+    /**
+     * Returns the plain text buffer, growing it to hold at least the given number of bytes. Bytes written to it
+     * directly, e.g. by a decrypting cipher, must be recorded with {@link #setPlainTextLength(int)} so that they are
+     * cleared.
+     */
+    byte[] plainText(int capacity) {
+        ensurePlainTextCapacity(capacity);
+        return plainText;
+    }
+
+    byte[] plainText() {
+        return plainText;
+    }
+
+    void setPlainTextLength(int length) {
+        plainTextLength = length;
+    }
+
+    /**
+     * Returns the cipher text buffer, growing it to hold at least the given number of bytes.
+     */
+    byte[] cipherText(int capacity) {
+        if (cipherText.length < capacity) {
+            cipherText = new byte[Math.max(capacity, cipherText.length * 2)];
+        }
+        return cipherText;
+    }
+
+    /**
+     * Zeroes the plain text bytes written since the buffer was last cleared.
+     */
+    void clearPlainText() {
+        Arrays.fill(plainText, 0, plainTextLength, (byte) 0);
+        plainTextLength = 0;
+    }
+
+    /**
+     * Encodes a range of bytes as padded Base64 with the standard alphabet. The range is encoded in place by the
+     * JDK encoder, so no copy of the cipher text is made.
+     */
+    static String toBase64(byte[] source, int offset, int length) {
+        ByteBuffer encoded = Base64.getEncoder().encode(ByteBuffer.wrap(source, offset, length));
+        return new String(encoded.array(), 0, encoded.limit(), StandardCharsets.US_ASCII);
+    }
+
+    private void ensurePlainTextCapacity(int capacity) {
+        if (plainText.length < capacity) {
+            // The old buffer may hold plain text; it is zeroed before being dropped
+            Arrays.fill(plainText, (byte) 0);
+            plainText = new byte[Math.max(capacity, plainText.length * 2)];
+        }
+    }
+}
@@ -20,40 +20,78 @@ import org.slf4j.LoggerFactory;
 import org.wso2.asgardeo.exception.EncryptionException;
 import org.wso2.asgardeo.model.InputSecrets;
 import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretOutcome;
+import org.wso2.asgardeo.model.SecretShard;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
-import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
-import java.security.InvalidKeyException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
+import java.security.PublicKey;
 import java.security.Security;
 import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
 import java.security.cert.CertificateException;
 import java.security.cert.CertificateFactory;
-import java.util.List;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 public class EncryptionUtils {
 
     private static final Logger log = LoggerFactory.getLogger(EncryptionUtils.class);
     private static final String DEFAULT_TRANSFORMATION = "RSA/ECB/PKCS1Padding"; 
     private static final String BOUNCY_CASTLE_PROVIDER = BouncyCastleProvider.PROVIDER_NAME;
+    private static final String JDK_CIPHER_PROVIDER = "SunJCE";
+    private static final String MANIFEST_FORMAT_JSON = "json";
+    private static final String MANIFEST_FORMAT_NDJSON = "ndjson";
 
-    static {
-        if (Security.getProvider(BOUNCY_CASTLE_PROVIDER) == null) {
-            log.info("Adding BouncyCastleProvider.");
-            Security.addProvider(new BouncyCastleProvider());
+    public static void encryptPlainTextSecretsUsingCertString(List<Secret> secrets, String certificateString) {
+        if (secrets == null || secrets.isEmpty()) {
+            log.warn("No input secrets provided to encrypt.");
+            return;
+        }
+        if (certificateString == null || certificateString.isEmpty()) {
+             throw new EncryptionException("Certificate string provided for encryption is null or empty.");
         }
+
+        log.info("Initializing cipher for encryption...");
+        CipherPool cipherPool = initializeCipherPoolUsingCertString(certificateString);
+        log.info("Cipher initialized successfully.");
+
+        secrets.forEach(secret -> encryptSecret(cipherPool, secret));
+        log.info("Completed encryption for {} secrets.", secrets.size());
     }
 
-    public static void encryptPlainTextSecretsUsingCertString(List<Secret> secrets, String certificateString) {
+    /**
+     * Encrypts the plain text secrets in parallel on the given pool. The certificate is parsed once and every
+     * worker thread encrypts with its own cipher instance.
+     *
+     * @param secrets           Secrets to encrypt. Encrypted values are set on each secret.
+     * @param certificateString PEM encoded certificate holding the public key.
+     * @param pool              Pool to run the encryption on.
+     * @throws EncryptionException if any secret cannot be encrypted.
+     */
+    public static void encryptPlainTextSecretsUsingCertString(List<Secret> secrets, String certificateString,
+                                                               ForkJoinPool pool) {
         if (secrets == null || secrets.isEmpty()) {
             log.warn("No input secrets provided to encrypt.");
             return;
@@ -61,60 +99,93 @@ public class EncryptionUtils {
         if (certificateString == null || certificateString.isEmpty()) {
              throw new EncryptionException("Certificate string provided for encryption is null or empty.");
         }
+        Objects.requireNonNull(pool, "ForkJoinPool cannot be null");
 
         log.info("Initializing cipher for encryption...");
-        Cipher cipherForEncryption = initializeCipherUsingCertString(certificateString);
+        CipherPool cipherPool = initializeCipherPoolUsingCertString(certificateString);
         log.info("Cipher initialized successfully.");
+        encryptPlainTextSecrets(secrets, cipherPool, pool);
+    }
 
-        secrets.forEach(secret -> {
-            if (secret.getPassword() != null && !secret.getPassword().isEmpty()) {
-                log.debug("Encrypting secret: {}", secret.getIdentifier());
-                secret.setEncryptedPassword(performEncryption(cipherForEncryption, secret.getPassword()));
-                log.debug("Successfully encrypted secret: {}", secret.getIdentifier());
-            } else {
-                 log.warn("Plain text password for secret '{}' is null or empty. Skipping encryption.", secret.getIdentifier());
-                 secret.setEncryptedPassword("");
-            }
-        });
-        log.info("Completed encryption for {} secrets.", secrets.size());
+    /**
+     * Encrypts the plain text secrets in parallel on the given pool, using a cipher pool that has already been
+     * initialized from the certificate.
+     *
+     * @param secrets    Secrets to encrypt. Encrypted values are set on each secret.
+     * @param cipherPool Per-thread ciphers initialized with the public key.
+     * @param pool       Pool to run the encryption on.
+     * @throws EncryptionException if any secret cannot be encrypted.
+     */
+    public static void encryptPlainTextSecrets(List<Secret> secrets, CipherPool cipherPool, ForkJoinPool pool) {
+        encryptPlainTextSecrets(secrets, cipherPool, null, pool);
     }
 
-    private static String performEncryption(Cipher cipher, String plainTextPassword) {
-        if (plainTextPassword == null || plainTextPassword.isEmpty()) {
-            log.warn("Attempted to encrypt a null or empty password.");
-            return "";
+    /**
+     * Encrypts the secrets in parallel on the given pool. If a previous decryptor is given, the secrets hold values
+     * encrypted under the previous certificate, and each is decrypted and encrypted again under the new one.
+     *
+     * @param secrets           Secrets to encrypt. Encrypted values are set on each secret.
+     * @param cipherPool        Per-thread ciphers initialized with the public key.
+     * @param previousDecryptor Decryptor of the previous certificate when re-wrapping, otherwise null.
+     * @param pool              Pool to run the encryption on.
+     * @throws EncryptionException if any secret cannot be encrypted.
+     */
+    public static void encryptPlainTextSecrets(List<Secret> secrets, CipherPool cipherPool,
+                                               SecretDecryptor previousDecryptor, ForkJoinPool pool) {
+        if (secrets == null || secrets.isEmpty()) {
+            log.warn("No input secrets provided to encrypt.");
+            return;
         }
+        Objects.requireNonNull(cipherPool, "CipherPool cannot be null");
+        Objects.requireNonNull(pool, "ForkJoinPool cannot be null");
+        log.info("{} {} secrets with parallelism: {}", previousDecryptor != null ? "Re-wrapping" : "Encrypting",
+                secrets.size(), pool.getParallelism());
 
-        String encodedValue;
         try {
-            byte[] plainTextBytes = plainTextPassword.getBytes(StandardCharsets.UTF_8);
-            byte[] encryptedPasswordBytes;
-            synchronized (cipher) {
-                 encryptedPasswordBytes = cipher.doFinal(plainTextBytes);
+            // A parallel stream started from within a ForkJoinPool task runs on that pool.
+            pool.submit(() -> secrets.parallelStream()
+                    .forEach(secret -> encryptSecret(cipherPool, previousDecryptor, secret))).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EncryptionException("Interrupted while encrypting secrets.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof EncryptionException) {
+                throw (EncryptionException) e.getCause();
             }
-            encodedValue = Base64.getEncoder().encodeToString(encryptedPasswordBytes);
-        } catch (BadPaddingException | IllegalBlockSizeException exception) {
-            log.error("Error during encryption: {}", exception.getMessage(), exception);
-            throw new EncryptionException("Error when encrypting the provided password", exception);
+            log.error("Unexpected error during parallel encryption: {}", e.getCause().getMessage(), e.getCause());
+            throw new EncryptionException("Unexpected error during parallel encryption", e.getCause());
         }
-        return encodedValue;
+        log.debug("Completed encryption for {} secrets.", secrets.size());
     }
 
-    private static Cipher initializeCipherUsingCertString(String certificateString) {
+    /**
+     * Resolves the number of worker threads used for parallel encryption.
+     *
+     * @return Configured parallelism, or the number of available processors if not set.
+     * @throws EncryptionException if the configured value is not a positive integer.
+     */
+    public static int resolveEncryptionParallelism() {
+        return SystemPropertyUtils.getPositiveInt(Constants.ENCRYPTION_PARALLELISM_SYS_PROPERTY_KEY,
+                Runtime.getRuntime().availableProcessors());
+    }
 
-        String transformation = System.getProperty(Constants.CIPHER_TRANSFORMATION_SYSTEM_PROPERTY, DEFAULT_TRANSFORMATION);
-        log.info("Using cipher transformation: {}", transformation);
+    /**
+     * Parses the certificate once and creates a pool handing out per-thread ciphers for its public key.
+     *
+     * @param certificateString PEM encoded certificate holding the public key.
+     * @return Cipher pool for the certificate's public key.
+     * @throws EncryptionException if the certificate cannot be parsed or the cipher cannot be initialized.
+     */
+    public static CipherPool initializeCipherPoolUsingCertString(String certificateString) {
 
+        String provider = resolveProvider(resolveTransformation());
         try (InputStream stream = new ByteArrayInputStream(certificateString.getBytes(StandardCharsets.UTF_8))) {
-            CertificateFactory certificateFactory = CertificateFactory.getInstance("X.509", BOUNCY_CASTLE_PROVIDER);
+            // The JDK parses X.509 certificates itself; Bouncy Castle is only used where its cipher is used
+            CertificateFactory certificateFactory = BOUNCY_CASTLE_PROVIDER.equals(provider)
+                    ? CertificateFactory.getInstance("X.509", provider) : CertificateFactory.getInstance("X.509");
             Certificate certificate = certificateFactory.generateCertificate(stream);
-
-            Cipher cipher = Cipher.getInstance(transformation, BOUNCY_CASTLE_PROVIDER);
-            synchronized(cipher) {
-                cipher.init(Cipher.ENCRYPT_MODE, certificate.getPublicKey());
-            }
-            return cipher;
-        } catch (CertificateException | NoSuchPaddingException | NoSuchAlgorithmException | InvalidKeyException | NoSuchProviderException exception) {
+            return initializeCipherPool(certificate.getPublicKey(), computeFingerprint(certificate));
+        } catch (CertificateException | NoSuchProviderException | NoSuchAlgorithmException exception) {
              log.error("Error initializing cipher: {}", exception.getMessage(), exception);
             throw new EncryptionException("Error when initializing the cipher", exception);
         } catch (java.io.IOException e) {
@@ -123,6 +194,351 @@ public class EncryptionUtils {
         }
     }
 
+    /**
+     * Creates a pool handing out per-thread ciphers for a public key that has already been extracted from its
+     * certificate, e.g. by {@link CertificateCache}.
+     *
+     * @param publicKey              Public key of the certificate.
+     * @param certificateFingerprint SHA-256 fingerprint of the certificate.
+     * @return Cipher pool for the public key.
+     * @throws EncryptionException if the cipher cannot be initialized.
+     */
+    public static CipherPool initializeCipherPool(PublicKey publicKey, String certificateFingerprint) {
+
+        String transformation = resolveTransformation();
+        String provider = resolveProvider(transformation);
+        log.info("Using cipher transformation: {} (provider: {})", transformation, provider);
+        log.info("Certificate SHA-256 fingerprint: {}", certificateFingerprint);
+        CipherPool cipherPool = new CipherPool(publicKey, certificateFingerprint, transformation, provider);
+        // Initialize the calling thread's cipher eagerly so configuration errors surface before any work starts.
+        cipherPool.get();
+        if (SystemPropertyUtils.getBoolean(Constants.ENVELOPE_ENCRYPTION_ENABLED_SYS_PROPERTY_KEY)) {
+            cipherPool.enableEnvelopeEncryption();
+        }
+        return cipherPool;
+    }
+
+    /**
+     * Loads the private key of the previous certificate when re-wrapping is configured.
+     *
+     * @param certificateFingerprint Fingerprint of the new certificate, which must differ from the previous one.
+     * @return Decryptor of the previous certificate, or null if re-wrapping is not configured.
+     * @throws EncryptionException if the keystore cannot be loaded or holds the key of the new certificate.
+     */
+    public static SecretDecryptor initializeRewrapDecryptor(String certificateFingerprint) {
+        if (SystemPropertyUtils.getString(Constants.REWRAP_KEYSTORE_FILE_SYS_PROPERTY_KEY) == null) {
+            return null;
+        }
+        SecretDecryptor decryptor = SecretDecryptor.fromKeyStoreProperties(
+                Constants.REWRAP_KEYSTORE_FILE_SYS_PROPERTY_KEY, Constants.REWRAP_KEYSTORE_TYPE_SYS_PROPERTY_KEY,
+                Constants.REWRAP_KEYSTORE_PASSWORD_SYS_PROPERTY_KEY, Constants.REWRAP_KEYSTORE_PASSWORD_ENV_VAR,
+                Constants.REWRAP_KEY_ALIAS_SYS_PROPERTY_KEY, Constants.REWRAP_KEY_PASSWORD_SYS_PROPERTY_KEY,
+                Constants.REWRAP_KEY_PASSWORD_ENV_VAR, resolveTransformation());
+        if (decryptor.getCertificateFingerprint().equals(certificateFingerprint)) {
+            throw new EncryptionException("The re-wrap keystore holds the key of the new certificate. Configure the "
+                    + "key of the certificate the secrets are currently encrypted with.");
+        }
+        log.info("Re-wrapping secrets from the certificate with SHA-256 fingerprint: {}",
+                decryptor.getCertificateFingerprint());
+        return decryptor;
+    }
+
+    /**
+     * Enables round-trip verification on the given pool when a verification keystore is configured. Every secret
+     * encrypted with the pool is then decrypted with the keystore's private key, using the transformation consuming
+     * services decrypt with, and compared with its plain text by the worker that encrypted it.
+     * <p>
+     * No secret is written before the first secrets are verified: a batch is only updated once all of its secrets
+     * are encrypted and verified, and the pipeline holds its update stage until its first queue capacity worth of
+     * secrets are verified. A wrong key or transformation therefore fails the run before the first write. A
+     * mismatch found later still fails the run before the mismatching value is written, but secrets of earlier
+     * batches, and in a pipelined run secrets already passed to the update stage, stay updated.
+     *
+     * @param cipherPool Cipher pool secrets are encrypted with.
+     * @throws EncryptionException if the keystore cannot be loaded or does not hold the key of the pool's certificate.
+     */
+    public static void initializeVerification(CipherPool cipherPool) {
+        if (SystemPropertyUtils.getString(Constants.VERIFY_KEYSTORE_FILE_SYS_PROPERTY_KEY) == null) {
+            return;
+        }
+        String transformation = System.getProperty(Constants.VERIFY_TRANSFORMATION_SYS_PROPERTY_KEY,
+                DEFAULT_TRANSFORMATION);
+        SecretDecryptor verifier = SecretDecryptor.fromKeyStoreProperties(
+                Constants.VERIFY_KEYSTORE_FILE_SYS_PROPERTY_KEY, Constants.VERIFY_KEYSTORE_TYPE_SYS_PROPERTY_KEY,
+                Constants.VERIFY_KEYSTORE_PASSWORD_SYS_PROPERTY_KEY, Constants.VERIFY_KEYSTORE_PASSWORD_ENV_VAR,
+                Constants.VERIFY_KEY_ALIAS_SYS_PROPERTY_KEY, Constants.VERIFY_KEY_PASSWORD_SYS_PROPERTY_KEY,
+                Constants.VERIFY_KEY_PASSWORD_ENV_VAR, transformation);
+        if (!verifier.getCertificateFingerprint().equals(cipherPool.getCertificateFingerprint())) {
+            throw new EncryptionException("The verification keystore holds the key of the certificate with SHA-256 "
+                    + "fingerprint " + verifier.getCertificateFingerprint() + ", but secrets are encrypted with the "
+                    + "certificate with fingerprint " + cipherPool.getCertificateFingerprint() + ".");
+        }
+        cipherPool.enableVerification(verifier);
+        log.info("Verifying each encrypted secret before it is written (transformation: {}).", transformation);
+    }
+
+    /**
+     * Returns the RSA transformation secrets are encrypted with.
+     */
+    static String resolveTransformation() {
+        return System.getProperty(Constants.CIPHER_TRANSFORMATION_SYSTEM_PROPERTY, DEFAULT_TRANSFORMATION);
+    }
+
+    /**
+     * Returns the security provider of the given transformation. Bouncy Castle is used by default, and registered
+     * on first use. In startup optimized mode, PKCS#1 v1.5 padding is left to the JDK, whose output it is
+     * interchangeable with, so that Bouncy Castle is never loaded. OAEP stays with Bouncy Castle, as the JDK
+     * defaults to a different MGF1 digest for the same transformation name.
+     */
+    static String resolveProvider(String transformation) {
+        if (SystemPropertyUtils.getBoolean(Constants.STARTUP_OPTIMIZED_SYS_PROPERTY_KEY)
+                && DEFAULT_TRANSFORMATION.equalsIgnoreCase(transformation)) {
+            return JDK_CIPHER_PROVIDER;
+        }
+        registerBouncyCastle();
+        return BOUNCY_CASTLE_PROVIDER;
+    }
+
+    private static synchronized void registerBouncyCastle() {
+        if (Security.getProvider(BOUNCY_CASTLE_PROVIDER) == null) {
+            log.info("Adding BouncyCastleProvider.");
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    static String computeFingerprint(Certificate certificate)
+            throws CertificateEncodingException, NoSuchAlgorithmException {
+        return computeFingerprint(certificate.getEncoded());
+    }
+
+    /**
+     * Computes the SHA-256 fingerprint of a DER encoded certificate as lower case hex.
+     */
+    static String computeFingerprint(byte[] encodedCertificate) throws NoSuchAlgorithmException {
+        byte[] digest = MessageDigest.getInstance("SHA-256").digest(encodedCertificate);
+        StringBuilder fingerprint = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            fingerprint.append(String.format("%02x", b));
+        }
+        return fingerprint.toString();
+    }
+
+    /**
+     * Encrypts a single secret with the calling thread's cipher from the given pool and sets its encrypted value.
+     * If envelope encryption is enabled on the pool, the secret is encrypted into an envelope instead.
+     *
+     * @param cipherPool Cipher pool for the certificate's public key.
+     * @param secret     Secret to encrypt.
+     * @throws EncryptionException if the secret cannot be encrypted.
+     */
+    public static void encryptSecret(CipherPool cipherPool, Secret secret) {
+        encryptSecret(cipherPool, null, secret);
+    }
+
+    /**
+     * Encrypts a single secret as {@link #encryptSecret(CipherPool, Secret)} does. If a previous decryptor is given,
+     * the secret holds a value encrypted under the previous certificate, which is decrypted first. The plain text is
+     * only held for the duration of the call and never set on the secret.
+     * <p>
+     * If encrypted value detection is enabled on the pool, a value that is already encrypted with the pool's
+     * certificate is kept as it is, see {@link #hasEncryptedForm(CipherPool, String)}.
+     *
+     * @param cipherPool        Cipher pool for the certificate's public key.
+     * @param previousDecryptor Decryptor of the previous certificate when re-wrapping, otherwise null.
+     * @param secret            Secret to encrypt.
+     * @throws EncryptionException if the secret cannot be decrypted or encrypted, or holds a value that has the
+     *                             form of an encrypted value while no verification key is configured to check it.
+     */
+    public static void encryptSecret(CipherPool cipherPool, SecretDecryptor previousDecryptor, Secret secret) {
+        if (secret.getPassword() != null && !secret.getPassword().isEmpty()) {
+            EnvelopeEncryptor envelopeEncryptor = cipherPool.getEnvelopeEncryptor();
+            EncryptionBuffers buffers = EncryptionBuffers.get();
+            int plainTextLength;
+            try {
+                // When re-wrapping, values of either certificate are RSA blocks of the same length, so the value is
+                // only checked once it fails to decrypt with the previous key
+                if (previousDecryptor == null && isEncryptedByEarlierRun(cipherPool, secret)) {
+                    keepEncryptedValue(secret);
+                    return;
+                }
+                if (previousDecryptor != null) {
+                    try {
+                        plainTextLength = previousDecryptor.decryptInto(secret.getPassword(), buffers);
+                    } catch (EncryptionException e) {
+                        if (!isEncryptedByEarlierRun(cipherPool, secret)) {
+                            throw e;
+                        }
+                        keepEncryptedValue(secret);
+                        return;
+                    }
+                } else {
+                    plainTextLength = buffers.encodePlainText(secret.getPassword());
+                }
+                secret.setEncryptedPassword(envelopeEncryptor != null
+                        ? envelopeEncryptor.encrypt(buffers.plainText(), plainTextLength, buffers)
+                        : performEncryption(cipherPool.get(), buffers.plainText(), plainTextLength, buffers));
+                if (cipherPool.getVerifier() != null) {
+                    verifyRoundTrip(cipherPool.getVerifier(), secret, buffers.plainText(), plainTextLength);
+                }
+            } catch (RuntimeException e) {
+                RunMetrics.recordOutcome(secret, SecretOutcome.FAILED);
+                StructuredEventLog.recordFailed(secret.getIdentifier(), e.getMessage());
+                throw e;
+            } finally {
+                buffers.clearPlainText();
+            }
+            secret.clearPassword();
+            RunMetrics.recordEncryption(plainTextLength);
+            RunJournal.recordEncrypted(secret);
+            StructuredEventLog.recordEncrypted(secret, previousDecryptor != null);
+        } else {
+             log.warn("Plain text password for secret '{}' is null or empty. Skipping encryption.", secret.getIdentifier());
+             secret.setEncryptedPassword("");
+        }
+    }
+
+    /**
+     * Checks whether the value read from a secret was already encrypted with the pool's certificate by an earlier
+     * run that wrote it but did not tag it. Only a value that decrypts with the verification key counts as such, as
+     * tagging a plain text value would make every later incremental run skip it.
+     *
+     * @return true if the secret only needs to be tagged.
+     * @throws EncryptionException if the value has the form of an encrypted value but no verification key is
+     *                             configured to check it.
+     */
+    private static boolean isEncryptedByEarlierRun(CipherPool cipherPool, Secret secret) {
+        if (!cipherPool.isDetectingEncryptedValues() || secret.getVersionId() == null
+                || !hasEncryptedForm(cipherPool, secret.getPassword())) {
+            return false;
+        }
+        SecretDecryptor verifier = cipherPool.getVerifier();
+        if (verifier == null) {
+            throw new EncryptionException("Secret '" + secret.getIdentifier() + "' is not tagged as encrypted, but its "
+                    + "value has the form of a value encrypted with the current certificate, e.g. written by an "
+                    + "earlier run that did not tag it. Configure a verification keystore, so that the value is only "
+                    + "tagged if it decrypts with the certificate's private key and encrypted otherwise.");
+        }
+        EncryptionBuffers decrypted = EncryptionBuffers.getForVerification();
+        try {
+            verifier.decryptInto(secret.getPassword(), decrypted);
+            return true;
+        } catch (EncryptionException e) {
+            return false;
+        } finally {
+            decrypted.clearPlainText();
+        }
+    }
+
+    /**
+     * Checks whether a value read from a secret has the form of a value encrypted with the pool's certificate, as
+     * written by an earlier run that was interrupted, or failed to tag the secret, after writing it. Incremental
+     * mode decides from tags alone, so such a value would otherwise be encrypted a second time. The form is an
+     * envelope recording the certificate's fingerprint, or a Base64 encoded RSA block of the length of the
+     * certificate's modulus. A plain text value, e.g. a random key, can have the same form, so the form alone never
+     * decides that a value is encrypted.
+     *
+     * @param cipherPool Cipher pool of the current certificate.
+     * @param value      Value read from the secret.
+     * @return true if the value may be encrypted with the certificate.
+     */
+    static boolean hasEncryptedForm(CipherPool cipherPool, String value) {
+        byte[] valueBytes;
+        try {
+            valueBytes = Base64.getDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        byte[] fingerprint = EnvelopeEncryptor.hexToBytes(cipherPool.getCertificateFingerprint());
+        if (valueBytes.length > 1 + fingerprint.length && valueBytes[0] == EnvelopeEncryptor.FORMAT_VERSION
+                && Arrays.equals(fingerprint, Arrays.copyOfRange(valueBytes, 1, 1 + fingerprint.length))) {
+            return true;
+        }
+        if (!(cipherPool.getPublicKey() instanceof RSAPublicKey)) {
+            return false;
+        }
+        BigInteger modulus = ((RSAPublicKey) cipherPool.getPublicKey()).getModulus();
+        return valueBytes.length == (modulus.bitLength() + 7) / 8
+                && new BigInteger(1, valueBytes).compareTo(modulus) < 0;
+    }
+
+    private static void keepEncryptedValue(Secret secret) {
+        log.info("Secret '{}' already holds a value encrypted with the current certificate, written by an earlier run "
+                + "that did not tag it. Tagging it without encrypting it again.", secret.getIdentifier());
+        secret.keepEncryptedValue();
+    }
+
+    /**
+     * Decrypts the encrypted value of a secret and compares it with the plain text it was encrypted from, so that a
+     * value consuming services cannot decrypt is never written.
+     *
+     * @throws EncryptionException if the value fails to decrypt or does not match the plain text.
+     */
+    private static void verifyRoundTrip(SecretDecryptor verifier, Secret secret, byte[] plainText,
+                                        int plainTextLength) {
+        EncryptionBuffers decrypted = EncryptionBuffers.getForVerification();
+        try {
+            int decryptedLength;
+            try {
+                decryptedLength = verifier.decryptInto(secret.getEncryptedPassword(), decrypted);
+            } catch (RuntimeException e) {
+                throw new EncryptionException("Round-trip verification failed for secret '" + secret.getIdentifier()
+                        + "': the encrypted value cannot be decrypted.", e);
+            }
+            // Compares every byte, so that the time taken does not depend on where the values differ
+            int difference = decryptedLength ^ plainTextLength;
+            byte[] decryptedBytes = decrypted.plainText();
+            for (int i = 0; i < Math.min(decryptedLength, plainTextLength); i++) {
+                difference |= decryptedBytes[i] ^ plainText[i];
+            }
+            if (difference != 0) {
+                throw new EncryptionException("Round-trip verification failed for secret '" + secret.getIdentifier()
+                        + "': the decrypted value does not match the plain text.");
+            }
+        } finally {
+            decrypted.clearPlainText();
+        }
+        RunMetrics.recordVerification();
+    }
+
+    /**
+     * Encrypts the given plain text with the given cipher. The cipher must be confined to the calling thread,
+     * e.g. obtained from {@link CipherPool#get()}.
+     *
+     * @param cipher            Cipher initialized for encryption.
+     * @param plainTextPassword Plain text to encrypt.
+     * @return Base64 encoded cipher text, or an empty string if the plain text is null or empty.
+     * @throws EncryptionException if encryption fails.
+     */
+    public static String performEncryption(Cipher cipher, String plainTextPassword) {
+        if (plainTextPassword == null || plainTextPassword.isEmpty()) {
+            log.warn("Attempted to encrypt a null or empty password.");
+            return "";
+        }
+
+        EncryptionBuffers buffers = EncryptionBuffers.get();
+        try {
+            int plainTextLength = buffers.encodePlainText(plainTextPassword);
+            return performEncryption(cipher, buffers.plainText(), plainTextLength, buffers);
+        } finally {
+            buffers.clearPlainText();
+        }
+    }
+
+    /**
+     * Encrypts the first bytes of a plain text buffer into the cipher text buffer of the calling thread and returns
+     * them Base64 encoded. The plain text buffer is left for the caller to clear.
+     */
+    static String performEncryption(Cipher cipher, byte[] plainText, int length, EncryptionBuffers buffers) {
+        try {
+            byte[] cipherText = buffers.cipherText(cipher.getOutputSize(length));
+            int cipherTextLength = cipher.doFinal(plainText, 0, length, cipherText, 0);
+            return EncryptionBuffers.toBase64(cipherText, 0, cipherTextLength);
+        } catch (BadPaddingException | IllegalBlockSizeException | ShortBufferException exception) {
+            log.error("Error during encryption: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when encrypting the provided password", exception);
+        }
+    }
+
     public static InputSecrets loadInputSecrets() {
          log.info("Loading input secret identifiers from {}...", Constants.INPUT_SECRETS_SOURCE_FILE);
          Gson gson = new Gson();
@@ -147,6 +563,83 @@ public class EncryptionUtils {
          }
      }
 
+    /**
+     * Resolves the manifest file to read secret identifiers from instead of the bundled secrets.json.
+     *
+     * @return Configured manifest path, or null to use the bundled manifest.
+     */
+    public static String resolveManifestFile() {
+        return SystemPropertyUtils.getString(Constants.MANIFEST_FILE_SYS_PROPERTY_KEY);
+    }
+
+    /**
+     * Resolves the shard of the secrets this node processes when a run is split across several nodes.
+     *
+     * @return Configured shard, or null if the run is not sharded.
+     * @throws EncryptionException if the shard index or count is missing or out of range.
+     */
+    public static SecretShard resolveShard() {
+        String shardIndex = SystemPropertyUtils.getString(Constants.SHARD_INDEX_SYS_PROPERTY_KEY);
+        String shardCount = SystemPropertyUtils.getString(Constants.SHARD_COUNT_SYS_PROPERTY_KEY);
+        if (shardIndex == null && shardCount == null) {
+            return null;
+        }
+        if (shardIndex == null || shardCount == null) {
+            throw new EncryptionException("Sharding requires both " + Constants.SHARD_INDEX_SYS_PROPERTY_KEY
+                    + " and " + Constants.SHARD_COUNT_SYS_PROPERTY_KEY + " to be set.");
+        }
+        int count = SystemPropertyUtils.getPositiveInt(Constants.SHARD_COUNT_SYS_PROPERTY_KEY, 1);
+        int index;
+        try {
+            index = Integer.parseInt(shardIndex);
+        } catch (NumberFormatException e) {
+            throw new EncryptionException("Invalid value for system property " + Constants.SHARD_INDEX_SYS_PROPERTY_KEY
+                    + ": " + shardIndex, e);
+        }
+        if (index < 0 || index >= count) {
+            throw new EncryptionException("Shard index must be between 0 and " + (count - 1) + ". Invalid value for "
+                    + "system property " + Constants.SHARD_INDEX_SYS_PROPERTY_KEY + ": " + shardIndex);
+        }
+        return new SecretShard(index, count);
+    }
+
+    /**
+     * Opens a manifest file for streaming. The format is taken from the manifest format system property, or
+     * otherwise from the file extension: .ndjson, .jsonl and .txt files are read as newline-delimited names and
+     * all other files as JSON.
+     *
+     * @param manifestFile Path of the manifest file.
+     * @return Lazy iterator over the secret identifiers in the file. The caller must close it.
+     * @throws EncryptionException if the file cannot be opened or the format is not supported.
+     */
+    public static ManifestSecretIterator openManifestFile(String manifestFile) {
+        Objects.requireNonNull(manifestFile, "Manifest file cannot be null");
+        Path manifestPath = Paths.get(manifestFile);
+        String format = SystemPropertyUtils.getString(Constants.MANIFEST_FORMAT_SYS_PROPERTY_KEY);
+        if (format == null) {
+            String fileName = manifestPath.getFileName().toString().toLowerCase(Locale.ROOT);
+            format = fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl") || fileName.endsWith(".txt")
+                    ? MANIFEST_FORMAT_NDJSON : MANIFEST_FORMAT_JSON;
+        }
+        format = format.toLowerCase(Locale.ROOT);
+        if (!MANIFEST_FORMAT_JSON.equals(format) && !MANIFEST_FORMAT_NDJSON.equals(format)) {
+            throw new EncryptionException("Unsupported manifest format '" + format + "'. Set system property "
+                    + Constants.MANIFEST_FORMAT_SYS_PROPERTY_KEY + " to " + MANIFEST_FORMAT_JSON + " or "
+                    + MANIFEST_FORMAT_NDJSON + ".");
+        }
+        BufferedReader reader;
+        try {
+            reader = Files.newBufferedReader(manifestPath, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            log.error("Failed to open manifest file {}: {}", manifestFile, e.getMessage(), e);
+            throw new EncryptionException("Could not open manifest file: " + manifestFile, e);
+        }
+        log.info("Streaming secret identifiers from {} manifest {}...", format, manifestFile);
+        return MANIFEST_FORMAT_NDJSON.equals(format)
+                ? ManifestSecretIterator.newlineDelimited(manifestFile, reader)
+                : ManifestSecretIterator.json(manifestFile, reader);
+    }
+
      private static InputStream loadResourceFileAsStream(String resourceName) {
         ClassLoader classLoader = EncryptionUtils.class.getClassLoader();
         InputStream inputStream = classLoader.getResourceAsStream(resourceName);
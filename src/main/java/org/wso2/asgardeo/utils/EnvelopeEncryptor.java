@@ -0,0 +1,158 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+
+import javax.crypto.BadPaddingException;
+import javax.crypto.Cipher;
+import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.KeyGenerator;
+import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Objects;
+
+/**
+ * This Java Class encrypts secrets with a hybrid envelope scheme. A random AES-256 data key is generated once
+ * and wrapped with the RSA public key of a {@link CipherPool}; every secret is then encrypted with AES-GCM under
+ * the data key and its own random nonce. Only one RSA operation is needed per run, and secrets are not limited
+ * to the RSA block size.
+ * <p>
+ * Each secret is stored as a Base64 encoded envelope with the following layout:
+ * <pre>
+ * version (1 byte, 0x01) | certificate SHA-256 fingerprint (32 bytes) | wrapped key length (2 bytes, big endian)
+ *     | wrapped data key | nonce (12 bytes) | AES-GCM cipher text with 128-bit tag
+ * </pre>
+ * Every byte before the nonce is authenticated as additional data, so the header cannot be altered without the
+ * decryption failing. To decrypt, unwrap the data key with the private key matching the fingerprint, using the
+ * same RSA transformation that was configured for encryption, then decrypt the cipher text with AES/GCM/NoPadding,
+ * as {@link SecretDecryptor} does.
+ */
+public class EnvelopeEncryptor {
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeEncryptor.class);
+    public static final byte FORMAT_VERSION = 0x01;
+    static final String DATA_KEY_ALGORITHM = "AES";
+    static final String DATA_CIPHER_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int DATA_KEY_SIZE_BITS = 256;
+    static final int NONCE_LENGTH_BYTES = 12;
+    static final int TAG_LENGTH_BITS = 128;
+
+    private final SecretKey dataKey;
+    private final byte[] header;
+    private final SecureRandom random = new SecureRandom();
+    private final ThreadLocal<Cipher> ciphers = ThreadLocal.withInitial(EnvelopeEncryptor::newCipher);
+
+    /**
+     * Generates a data key and wraps it with the public key of the given pool.
+     *
+     * @param cipherPool RSA cipher pool created from a certificate.
+     * @throws EncryptionException if the data key cannot be generated or wrapped.
+     */
+    public EnvelopeEncryptor(CipherPool cipherPool) {
+        Objects.requireNonNull(cipherPool, "CipherPool cannot be null");
+        if (cipherPool.getCertificateFingerprint() == null) {
+            throw new EncryptionException("Envelope encryption requires a cipher pool created from a certificate.");
+        }
+        try {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance(DATA_KEY_ALGORITHM);
+            keyGenerator.init(DATA_KEY_SIZE_BITS, random);
+            this.dataKey = keyGenerator.generateKey();
+            byte[] wrappedKey = cipherPool.get().doFinal(dataKey.getEncoded());
+            byte[] fingerprint = hexToBytes(cipherPool.getCertificateFingerprint());
+            this.header = ByteBuffer.allocate(1 + fingerprint.length + 2 + wrappedKey.length)
+                    .put(FORMAT_VERSION)
+                    .put(fingerprint)
+                    .putShort((short) wrappedKey.length)
+                    .put(wrappedKey)
+                    .array();
+        } catch (NoSuchAlgorithmException | BadPaddingException | IllegalBlockSizeException exception) {
+            log.error("Error generating envelope data key: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when generating the envelope data key", exception);
+        }
+        // Fail before any work starts if AES-GCM is unavailable.
+        ciphers.get();
+        log.info("Generated {}-bit data key for envelope encryption (format version {}).", DATA_KEY_SIZE_BITS,
+                FORMAT_VERSION);
+    }
+
+    /**
+     * Encrypts a plain text value into a Base64 encoded envelope. Safe to call from multiple threads.
+     *
+     * @param plainText Value to encrypt.
+     * @return Base64 encoded envelope, or an empty string for a null or empty value.
+     * @throws EncryptionException if encryption fails.
+     */
+    public String encrypt(String plainText) {
+        if (plainText == null || plainText.isEmpty()) {
+            log.warn("Attempted to encrypt a null or empty password.");
+            return "";
+        }
+        EncryptionBuffers buffers = EncryptionBuffers.get();
+        try {
+            int plainTextLength = buffers.encodePlainText(plainText);
+            return encrypt(buffers.plainText(), plainTextLength, buffers);
+        } finally {
+            buffers.clearPlainText();
+        }
+    }
+
+    /**
+     * Encrypts the first bytes of a plain text buffer into an envelope built in the cipher text buffer of the calling
+     * thread. The plain text buffer is left for the caller to clear.
+     */
+    String encrypt(byte[] plainText, int length, EncryptionBuffers buffers) {
+        int nonceOffset = header.length;
+        int envelopeLength = nonceOffset + NONCE_LENGTH_BYTES + length + TAG_LENGTH_BITS / 8;
+        byte[] envelope = buffers.cipherText(envelopeLength);
+        System.arraycopy(header, 0, envelope, 0, header.length);
+        byte[] nonce = new byte[NONCE_LENGTH_BYTES];
+        random.nextBytes(nonce);
+        System.arraycopy(nonce, 0, envelope, nonceOffset, NONCE_LENGTH_BYTES);
+        try {
+            Cipher cipher = ciphers.get();
+            cipher.init(Cipher.ENCRYPT_MODE, dataKey, new GCMParameterSpec(TAG_LENGTH_BITS, nonce));
+            cipher.updateAAD(header);
+            cipher.doFinal(plainText, 0, length, envelope, nonceOffset + NONCE_LENGTH_BYTES);
+        } catch (GeneralSecurityException exception) {
+            log.error("Error during envelope encryption: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when encrypting the provided password", exception);
+        }
+        return EncryptionBuffers.toBase64(envelope, 0, envelopeLength);
+    }
+
+    static Cipher newCipher() {
+        try {
+            return Cipher.getInstance(DATA_CIPHER_TRANSFORMATION);
+        } catch (NoSuchAlgorithmException | NoSuchPaddingException exception) {
+            log.error("Error initializing envelope cipher: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when initializing the envelope cipher", exception);
+        }
+    }
+
+    static byte[] hexToBytes(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(2 * i, 2 * i + 2), 16);
+        }
+        return bytes;
+    }
+}
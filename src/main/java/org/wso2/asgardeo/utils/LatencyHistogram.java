@@ -0,0 +1,117 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This Java Class counts latencies into fixed buckets, in the same shape as a Prometheus histogram.
+ * Recording is lock free, so it can be called from SDK and worker threads concurrently.
+ */
+public class LatencyHistogram {
+
+    // Inclusive upper bounds of the buckets in milliseconds; a final overflow bucket holds everything slower.
+    private static final long[] BUCKET_BOUNDS_MILLIS = {5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_BOUNDS_MILLIS.length + 1];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        int bucket = 0;
+        while (bucket < BUCKET_BOUNDS_MILLIS.length && nanos > TimeUnit.MILLISECONDS.toNanos(BUCKET_BOUNDS_MILLIS[bucket])) {
+            bucket++;
+        }
+        buckets[bucket].increment();
+        count.increment();
+        sumNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+    }
+
+    public static long[] getBucketBoundsMillis() {
+        return BUCKET_BOUNDS_MILLIS.clone();
+    }
+
+    /**
+     * Returns the number of recorded latencies per bucket, not cumulative. The last element is the overflow bucket.
+     *
+     * @return Bucket counts.
+     */
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Estimates a quantile as the upper bound of the bucket it falls in, capped at the maximum recorded latency.
+     *
+     * @param quantile Quantile between 0 and 1, e.g. 0.99.
+     * @return Estimated latency in milliseconds, or 0 if nothing was recorded.
+     */
+    public long getQuantileMillis(double quantile) {
+        return getQuantileMillis(getBucketCounts(), TimeUnit.NANOSECONDS.toMillis(getMaxNanos()), quantile);
+    }
+
+    /**
+     * Estimates a quantile from bucket counts as {@link #getQuantileMillis(double)} does, e.g. for the merged
+     * histograms of several reports.
+     *
+     * @param counts    Count of each bucket, not cumulative, with the overflow bucket last.
+     * @param maxMillis Maximum recorded latency in milliseconds.
+     * @param quantile  Quantile between 0 and 1, e.g. 0.99.
+     * @return Estimated latency in milliseconds, or 0 if nothing was recorded.
+     */
+    static long getQuantileMillis(long[] counts, long maxMillis, double quantile) {
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_BOUNDS_MILLIS.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(BUCKET_BOUNDS_MILLIS[i], maxMillis);
+            }
+        }
+        return maxMillis;
+    }
+}
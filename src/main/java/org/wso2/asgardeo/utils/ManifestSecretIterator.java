@@ -0,0 +1,182 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This Java Class reads secret names from a manifest file one at a time, so that manifests of any size can be
+ * processed without loading them into memory. Two formats are supported:
+ * <ul>
+ *     <li>JSON: an object with a "secrets" array of names, as in the bundled secrets.json, or a bare array of
+ *     names. Other members of the object are skipped.</li>
+ *     <li>Newline-delimited: one name per line, either plain or as a JSON string. Blank lines and lines starting
+ *     with '#' are ignored.</li>
+ * </ul>
+ */
+public class ManifestSecretIterator implements Iterator<String>, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(ManifestSecretIterator.class);
+    private static final String SECRETS_MEMBER_NAME = "secrets";
+
+    private final String source;
+    private final BufferedReader reader;
+    private final JsonReader jsonReader;
+    private String nextSecretName;
+    private boolean exhausted;
+    private boolean positioned;
+    private long lineNumber;
+    private long readCount;
+
+    private ManifestSecretIterator(String source, BufferedReader reader, boolean newlineDelimited) {
+        this.source = source;
+        this.reader = reader;
+        this.jsonReader = newlineDelimited ? null : new JsonReader(reader);
+    }
+
+    /**
+     * Creates an iterator over a JSON manifest.
+     *
+     * @param source Description of the manifest used in log and error messages, e.g. its path.
+     * @param reader Reader positioned at the start of the manifest. Closed by {@link #close()}.
+     * @return Manifest iterator.
+     */
+    public static ManifestSecretIterator json(String source, BufferedReader reader) {
+        return new ManifestSecretIterator(source, reader, false);
+    }
+
+    /**
+     * Creates an iterator over a newline-delimited manifest.
+     *
+     * @param source Description of the manifest used in log and error messages, e.g. its path.
+     * @param reader Reader positioned at the start of the manifest. Closed by {@link #close()}.
+     * @return Manifest iterator.
+     */
+    public static ManifestSecretIterator newlineDelimited(String source, BufferedReader reader) {
+        return new ManifestSecretIterator(source, reader, true);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextSecretName == null && !exhausted) {
+            try {
+                nextSecretName = jsonReader != null ? readJsonName() : readLineName();
+            } catch (IOException | JsonParseException | IllegalStateException e) {
+                log.error("Error reading secret names from manifest {}: {}", source, e.getMessage(), e);
+                throw new EncryptionException("Invalid or unreadable manifest: " + source, e);
+            }
+            if (nextSecretName == null) {
+                exhausted = true;
+                log.info("Read {} secret identifiers from manifest {}.", readCount, source);
+            } else {
+                readCount++;
+            }
+        }
+        return nextSecretName != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String secretName = nextSecretName;
+        nextSecretName = null;
+        return secretName;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * Advances the JSON reader to the next name in the secrets array.
+     *
+     * @return the next name, or null once the array has been read.
+     */
+    private String readJsonName() throws IOException {
+        if (!positioned) {
+            positioned = true;
+            if (!positionAtSecretsArray()) {
+                return null;
+            }
+        }
+        if (jsonReader.peek() == JsonToken.END_ARRAY) {
+            return null;
+        }
+        String secretName = jsonReader.nextString().trim();
+        if (secretName.isEmpty()) {
+            throw new JsonParseException("Empty secret name at " + jsonReader.getPath());
+        }
+        return secretName;
+    }
+
+    /**
+     * Moves past the opening bracket of the array holding the names.
+     *
+     * @return false if the manifest holds no secrets array.
+     */
+    private boolean positionAtSecretsArray() throws IOException {
+        if (jsonReader.peek() == JsonToken.BEGIN_ARRAY) {
+            jsonReader.beginArray();
+            return true;
+        }
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+            if (SECRETS_MEMBER_NAME.equals(jsonReader.nextName())) {
+                jsonReader.beginArray();
+                return true;
+            }
+            jsonReader.skipValue();
+        }
+        log.warn("Manifest {} contains no \"{}\" array.", source, SECRETS_MEMBER_NAME);
+        return false;
+    }
+
+    private String readLineName() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String secretName = line.trim();
+            if (secretName.isEmpty() || secretName.startsWith("#")) {
+                continue;
+            }
+            if (secretName.startsWith("\"")) {
+                try {
+                    secretName = JsonParser.parseString(secretName).getAsString().trim();
+                } catch (RuntimeException e) {
+                    throw new JsonParseException("Invalid JSON string on line " + lineNumber, e);
+                }
+                if (secretName.isEmpty()) {
+                    throw new JsonParseException("Empty secret name on line " + lineNumber);
+                }
+            }
+            return secretName;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerAsyncClient;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This Java Class keeps one set of AWS Secrets Manager clients per region, so that the connection pools of a
+ * region are shared by all the work done in that region. Clients are created on first use and closed together.
+ */
+public class RegionalClientPool implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RegionalClientPool.class);
+
+    private final Map<Region, RegionClients> clients = new LinkedHashMap<>();
+
+    /**
+     * Returns the clients of a region, creating them on first use. Safe to call from multiple threads.
+     *
+     * @param region AWS region.
+     * @return Clients of the region.
+     * @throws org.wso2.asgardeo.exception.EncryptionException if a client cannot be created.
+     */
+    public synchronized RegionClients get(Region region) {
+        RegionClients regionClients = clients.get(region);
+        if (regionClients == null) {
+            regionClients = new RegionClients(region);
+            clients.put(region, regionClients);
+        }
+        return regionClients;
+    }
+
+    /**
+     * Closes the clients of every region.
+     */
+    @Override
+    public void close() {
+        List<RegionClients> created;
+        synchronized (this) {
+            created = new ArrayList<>(clients.values());
+            clients.clear();
+        }
+        Collections.reverse(created);
+        for (RegionClients regionClients : created) {
+            regionClients.close();
+        }
+    }
+
+    /**
+     * The clients used in a single region: a client for reads, an async client for concurrent reads, and a client
+     * for adaptive updates that leaves throttling to the updater.
+     */
+    public static class RegionClients {
+
+        private final Region region;
+        private SecretsManagerClient client;
+        private SecretsManagerAsyncClient asyncClient;
+        private SecretsManagerClient updateClient;
+
+        private RegionClients(Region region) {
+            this.region = region;
+            try {
+                this.client = AwsSecretsManagerUtils.createSecretsManagerClient(region);
+                this.asyncClient = AwsSecretsManagerUtils.createSecretsManagerAsyncClient(region);
+                this.updateClient = AwsSecretsManagerUtils.createSecretsManagerUpdateClient(region);
+            } catch (RuntimeException e) {
+                close();
+                throw e;
+            }
+        }
+
+        public Region getRegion() {
+            return region;
+        }
+
+        public SecretsManagerClient getClient() {
+            return client;
+        }
+
+        public SecretsManagerAsyncClient getAsyncClient() {
+            return asyncClient;
+        }
+
+        public SecretsManagerClient getUpdateClient() {
+            return updateClient;
+        }
+
+        private void close() {
+            if (updateClient != null) {
+                log.info("Closing AWS Secrets Manager update client for region {}.", region);
+                updateClient.close();
+            }
+            if (asyncClient != null) {
+                log.info("Closing AWS Secrets Manager async client for region {}.", region);
+                asyncClient.close();
+            }
+            if (client != null) {
+                log.info("Closing AWS Secrets Manager client for region {}.", region);
+                client.close();
+            }
+        }
+    }
+}
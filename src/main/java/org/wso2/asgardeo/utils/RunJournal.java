@@ -0,0 +1,415 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretOutcome;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerAsyncClient;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * This Java Class keeps an append-only journal of the progress of a run, so that an interrupted run can be resumed
+ * without encrypting any secret twice. Each line is a JSON record: the start of a run with the certificate
+ * fingerprint, each secret as it is fetched (with the version id read), encrypted and updated (with the version id
+ * written), and the completion of the run.
+ * <p>
+ * Records are buffered and written to disk in groups. Before any update is sent, every record written so far is
+ * forced to disk, so a secret whose update may have reached AWS Secrets Manager always has a durable encrypted
+ * record. On resume, secrets with an updated record are skipped, and secrets with only an encrypted record are
+ * skipped if their current version is no longer the version that was fetched, i.e. the update landed before the
+ * run was interrupted.
+ * <p>
+ * Like {@link RunMetrics}, the journal is process wide; recording is a no-op while no journal is open.
+ */
+public class RunJournal implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RunJournal.class);
+    private static final Gson GSON = new Gson();
+    // Updated records are forced to disk at least this often; records preceding an update are forced at once
+    private static final int SYNC_INTERVAL_RECORDS = 100;
+
+    private static volatile RunJournal activeJournal;
+
+    private final Path path;
+    private final FileOutputStream outputStream;
+    private final FileChannel channel;
+    private final BufferedWriter writer;
+    private final Object syncLock = new Object();
+    // Last state of each secret recorded by previous runs, only populated when resuming
+    private final Map<String, Record> previousStates;
+    private long appendedRecords;
+    private volatile long syncedRecords;
+
+    private RunJournal(Path path, boolean append, Map<String, Record> previousStates) throws IOException {
+        this.path = path;
+        this.outputStream = new FileOutputStream(path.toFile(), append);
+        this.channel = outputStream.getChannel();
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        this.previousStates = previousStates;
+    }
+
+    /**
+     * Opens the journal for this run and makes it the active journal.
+     * <p>
+     * Without resume, an existing journal of a completed run is replaced, while a journal of an unfinished run is
+     * rejected so that its secrets are not encrypted a second time. With resume, the existing journal is replayed
+     * and new records are appended to it.
+     *
+     * @param path                   Journal file.
+     * @param certificateFingerprint Fingerprint of the certificate used by this run.
+     * @param resume                 Whether to continue the run recorded in the journal.
+     * @return Opened journal.
+     * @throws EncryptionException if the journal cannot be read or written, belongs to an unfinished run while not
+     *                             resuming, or was written with a different certificate.
+     */
+    public static RunJournal open(Path path, String certificateFingerprint, boolean resume) {
+        Objects.requireNonNull(path, "Journal path cannot be null");
+        Objects.requireNonNull(certificateFingerprint, "Certificate fingerprint cannot be null");
+        Map<String, Record> previousStates = new HashMap<>();
+        Replay replay = Files.exists(path) ? replay(path, previousStates) : null;
+        if (replay != null && replay.fingerprint != null && !resume && !replay.completed) {
+            throw new EncryptionException("Journal " + path + " records an unfinished run. Rerun with resume "
+                    + "enabled to continue it, or delete the journal to start over.");
+        }
+        if (resume) {
+            if (replay == null || replay.fingerprint == null) {
+                log.warn("No previous run recorded in journal {}. Starting a new run.", path);
+            } else if (!certificateFingerprint.equals(replay.fingerprint)) {
+                throw new EncryptionException("Journal " + path + " was written with certificate " + replay.fingerprint
+                        + " but the current certificate is " + certificateFingerprint
+                        + ". Finish the recorded run with its certificate before rotating.");
+            } else {
+                log.info("Resuming run from journal {}: {} secrets recorded, {} of them updated.", path,
+                        previousStates.size(), countUpdated(previousStates));
+            }
+        }
+
+        RunJournal journal;
+        try {
+            journal = new RunJournal(path, resume, resume ? previousStates : new HashMap<>());
+        } catch (IOException e) {
+            log.error("Failed to open journal {}: {}", path, e.getMessage(), e);
+            throw new EncryptionException("Could not open journal: " + path, e);
+        }
+        journal.append(new Record(Event.RUN_STARTED, null, null, certificateFingerprint));
+        journal.sync();
+        activeJournal = journal;
+        log.info("Recording progress in journal {}.", path);
+        return journal;
+    }
+
+    /**
+     * Checks whether a journal file is configured with system properties.
+     *
+     * @return true if a journal file is configured.
+     */
+    public static boolean isConfigured() {
+        return SystemPropertyUtils.getString(Constants.JOURNAL_FILE_SYS_PROPERTY_KEY) != null;
+    }
+
+    /**
+     * Opens the journal configured with system properties.
+     *
+     * @param certificateFingerprint Fingerprint of the certificate used by this run.
+     * @return Opened journal, or null if no journal file is configured.
+     * @throws EncryptionException if resume is enabled without a journal file, or the journal cannot be opened.
+     */
+    public static RunJournal openConfigured(String certificateFingerprint) {
+        String journalFile = SystemPropertyUtils.getString(Constants.JOURNAL_FILE_SYS_PROPERTY_KEY);
+        boolean resume = SystemPropertyUtils.getBoolean(Constants.JOURNAL_RESUME_SYS_PROPERTY_KEY);
+        if (journalFile == null) {
+            if (resume) {
+                throw new EncryptionException("Resume requires a journal file. Set system property: "
+                        + Constants.JOURNAL_FILE_SYS_PROPERTY_KEY);
+            }
+            return null;
+        }
+        return open(Paths.get(journalFile), certificateFingerprint, resume);
+    }
+
+    public static void recordFetched(Secret secret) {
+        RunJournal journal = activeJournal;
+        if (journal != null) {
+            journal.append(new Record(Event.FETCHED, secret.getIdentifier(), secret.getVersionId(), null));
+        }
+    }
+
+    public static void recordEncrypted(Secret secret) {
+        RunJournal journal = activeJournal;
+        if (journal != null) {
+            journal.append(new Record(Event.ENCRYPTED, secret.getIdentifier(), secret.getVersionId(), null));
+        }
+    }
+
+    public static void recordUpdated(Secret secret) {
+        RunJournal journal = activeJournal;
+        if (journal != null) {
+            journal.append(new Record(Event.UPDATED, secret.getIdentifier(), secret.getUpdatedVersionId(), null));
+            if (journal.appendedRecordCount() - journal.syncedRecords >= SYNC_INTERVAL_RECORDS) {
+                journal.sync();
+            }
+        }
+    }
+
+    /**
+     * Forces all records written so far to disk. Called before an update is sent. Concurrent callers share a
+     * single force of the file, so the cost is paid once per group of updates rather than once per secret.
+     */
+    public static void awaitDurable() {
+        RunJournal journal = activeJournal;
+        if (journal != null) {
+            journal.sync();
+        }
+    }
+
+    /**
+     * Checks whether this run continues a run recorded in the journal.
+     *
+     * @return true if the journal recorded secrets of a previous run.
+     */
+    public boolean isResuming() {
+        return !previousStates.isEmpty();
+    }
+
+    /**
+     * Selects the secrets of a batch that the resumed run has not finished. Secrets recorded as updated are
+     * skipped. Secrets recorded as encrypted but not updated are checked with DescribeSecret and skipped if their
+     * current version differs from the version that was fetched, in which case the update is recorded now.
+     *
+     * @param secretNames    Names or ARNs of the secrets to check.
+     * @param client         AWS Secrets Manager async client.
+     * @param maxConcurrency Maximum number of DescribeSecret requests in flight at once.
+     * @return Names of the secrets still to be processed, in input order.
+     * @throws EncryptionException if any secret with an unknown update state cannot be described.
+     */
+    public List<String> selectUnfinished(List<String> secretNames, SecretsManagerAsyncClient client,
+                                         int maxConcurrency) {
+        Map<String, String> fetchedVersionIds = new LinkedHashMap<>();
+        List<String> unfinished = new ArrayList<>(secretNames.size());
+        int finishedCount = 0;
+        for (String secretName : secretNames) {
+            Record state = previousStates.get(secretName);
+            if (state != null && state.event == Event.UPDATED) {
+                finishedCount++;
+                RunMetrics.recordOutcome(secretName, SecretOutcome.UNCHANGED);
+                StructuredEventLog.recordSkipped(secretName, "updated by the resumed run");
+            } else if (state != null && state.event == Event.ENCRYPTED) {
+                if (state.versionId == null) {
+                    throw new EncryptionException("Cannot determine whether secret " + secretName + " was updated "
+                            + "before the run was interrupted, as no version id was recorded. Check the secret and "
+                            + "remove it from the input or the journal.");
+                }
+                fetchedVersionIds.put(secretName, state.versionId);
+            }
+        }
+        Map<String, String> changedVersionIds = fetchedVersionIds.isEmpty() ? new HashMap<>()
+                : AwsSecretsManagerUtils.findSecretsChangedSince(fetchedVersionIds, client, maxConcurrency);
+        for (String secretName : secretNames) {
+            Record state = previousStates.get(secretName);
+            if (state != null && state.event == Event.UPDATED) {
+                continue;
+            }
+            String currentVersionId = changedVersionIds.get(secretName);
+            if (currentVersionId != null) {
+                finishedCount++;
+                RunMetrics.recordOutcome(secretName, SecretOutcome.UNCHANGED);
+                log.info("Update of secret '{}' reached AWS Secrets Manager before the run was interrupted "
+                        + "(current version: {}). Skipping.", secretName, currentVersionId);
+                append(new Record(Event.UPDATED, secretName, currentVersionId, null));
+            } else {
+                unfinished.add(secretName);
+            }
+        }
+        if (finishedCount > 0) {
+            log.info("{} of {} secrets were already updated by the resumed run and will be skipped.", finishedCount,
+                    secretNames.size());
+        }
+        return unfinished;
+    }
+
+    /**
+     * Records that the run completed, so that the next run without resume starts a new journal.
+     */
+    public void complete() {
+        append(new Record(Event.RUN_COMPLETED, null, null, null));
+        sync();
+    }
+
+    /**
+     * Forces outstanding records to disk and closes the journal.
+     */
+    @Override
+    public void close() throws IOException {
+        if (activeJournal == this) {
+            activeJournal = null;
+        }
+        synchronized (syncLock) {
+            synchronized (this) {
+                writer.flush();
+            }
+            channel.force(false);
+            writer.close();
+        }
+    }
+
+    private synchronized void append(Record record) {
+        try {
+            writer.write(GSON.toJson(record));
+            writer.newLine();
+            appendedRecords++;
+        } catch (IOException e) {
+            log.error("Failed to write to journal {}: {}", path, e.getMessage(), e);
+            throw new EncryptionException("Could not write to journal: " + path, e);
+        }
+    }
+
+    private synchronized long appendedRecordCount() {
+        return appendedRecords;
+    }
+
+    private void sync() {
+        long target = appendedRecordCount();
+        if (syncedRecords >= target) {
+            return;
+        }
+        // A caller that waited for the lock usually finds its records were forced by the previous holder.
+        synchronized (syncLock) {
+            if (syncedRecords >= target) {
+                return;
+            }
+            try {
+                long flushedRecords;
+                synchronized (this) {
+                    writer.flush();
+                    flushedRecords = appendedRecords;
+                }
+                channel.force(false);
+                syncedRecords = flushedRecords;
+            } catch (IOException e) {
+                log.error("Failed to sync journal {}: {}", path, e.getMessage(), e);
+                throw new EncryptionException("Could not sync journal: " + path, e);
+            }
+        }
+    }
+
+    /**
+     * Reads an existing journal into the last recorded state of each secret.
+     */
+    private static Replay replay(Path path, Map<String, Record> states) {
+        Replay replay = new Replay();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Record record;
+                try {
+                    record = GSON.fromJson(line, Record.class);
+                } catch (JsonParseException e) {
+                    // A crash can leave the last line incomplete; records before it are intact.
+                    log.warn("Ignoring unreadable record in journal {}: {}", path, line);
+                    continue;
+                }
+                if (record == null || record.event == null) {
+                    continue;
+                }
+                switch (record.event) {
+                    case RUN_STARTED:
+                        replay.fingerprint = record.fingerprint;
+                        replay.completed = false;
+                        break;
+                    case RUN_COMPLETED:
+                        replay.completed = true;
+                        break;
+                    default:
+                        if (record.secret != null) {
+                            mergeState(states, record);
+                        }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to read journal {}: {}", path, e.getMessage(), e);
+            throw new EncryptionException("Could not read journal: " + path, e);
+        }
+        return replay;
+    }
+
+    /**
+     * Keeps the latest state of a secret. An updated secret stays updated, so that a secret listed twice is
+     * never encrypted again.
+     */
+    private static void mergeState(Map<String, Record> states, Record record) {
+        Record previous = states.get(record.secret);
+        if (previous == null || previous.event != Event.UPDATED) {
+            states.put(record.secret, record);
+        }
+    }
+
+    private static long countUpdated(Map<String, Record> states) {
+        return states.values().stream().filter(state -> state.event == Event.UPDATED).count();
+    }
+
+    private enum Event {
+        RUN_STARTED, FETCHED, ENCRYPTED, UPDATED, RUN_COMPLETED
+    }
+
+    /**
+     * A single journal line. The version id is the version read for fetched and encrypted records, and the
+     * version written for updated records.
+     */
+    private static final class Record {
+
+        private final Event event;
+        private final String secret;
+        private final String versionId;
+        private final String fingerprint;
+
+        private Record(Event event, String secret, String versionId, String fingerprint) {
+
+            this.event = event;
+            this.secret = secret;
+            this.versionId = versionId;
+            this.fingerprint = fingerprint;
+        }
+    }
+
+    private static final class Replay {
+
+        private String fingerprint;
+        private boolean completed;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.wso2.asgardeo.model.ManifestResult;
+import org.wso2.asgardeo.model.RegionResult;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.SecretOutcome;
+import org.wso2.asgardeo.model.SecretShard;
+import org.wso2.asgardeo.model.UpdateSummary;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This Java Class collects the metrics of a single run: wall-clock time per phase, latency and outcome of every
+ * AWS Secrets Manager call, the amount of data encrypted, and the outcome of each input secret.
+ * Metrics are process wide, matching the one run per JVM of this application, and are written out at the end of
+ * the run by {@link RunReportWriter}.
+ */
+public class RunMetrics {
+
+    private static final Map<String, Long> phaseNanos = Collections.synchronizedMap(new LinkedHashMap<>());
+    private static final ConcurrentMap<String, ApiCallMetrics> apiCalls = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, SecretOutcome> outcomes = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, SecretOutcome> regionalOutcomes = new ConcurrentHashMap<>();
+    private static final LongAdder secretsEncrypted = new LongAdder();
+    private static final LongAdder bytesEncrypted = new LongAdder();
+    private static final LongAdder secretsVerified = new LongAdder();
+    private static volatile List<String> inputSecretNames = Collections.emptyList();
+    private static volatile UpdateSummary updateSummary;
+    private static final List<RegionResult> regionResults = Collections.synchronizedList(new ArrayList<>());
+    private static final List<ManifestResult> manifestResults = Collections.synchronizedList(new ArrayList<>());
+    private static volatile SecretShard shard;
+
+    private RunMetrics() {}
+
+    /**
+     * Records the wall-clock time of a phase that started at the given time and ends now.
+     * A phase recorded more than once accumulates its time.
+     *
+     * @param phase      Phase name, e.g. "encrypt".
+     * @param startNanos Value of {@link System#nanoTime()} when the phase started.
+     */
+    public static void recordPhase(String phase, long startNanos) {
+        phaseNanos.merge(phase, System.nanoTime() - startNanos, Long::sum);
+    }
+
+    /**
+     * Records one transmission of a request, including each retry issued by the AWS SDK.
+     */
+    public static void recordApiAttempt(String operation) {
+        apiCallMetrics(operation).attempts.increment();
+    }
+
+    /**
+     * Records a completed API call, from the first attempt until the SDK returned a response or gave up.
+     *
+     * @param operation Operation name, e.g. "GetSecretValue".
+     * @param nanos     Latency of the call.
+     * @param failure   Failure of the call, or null if it succeeded.
+     */
+    public static void recordApiCall(String operation, long nanos, Throwable failure) {
+        ApiCallMetrics metrics = apiCallMetrics(operation);
+        metrics.latency.record(nanos);
+        if (failure != null) {
+            metrics.failures.increment();
+            if (failure instanceof SdkServiceException && ((SdkServiceException) failure).isThrottlingException()) {
+                metrics.throttled.increment();
+            }
+        }
+    }
+
+    public static void recordEncryption(int plainTextBytes) {
+        secretsEncrypted.increment();
+        bytesEncrypted.add(plainTextBytes);
+    }
+
+    public static void recordVerification() {
+        secretsVerified.increment();
+    }
+
+    /**
+     * Sets the secrets the run was asked to process. Secrets without a recorded outcome are reported as
+     * {@link SecretOutcome#NOT_PROCESSED}.
+     */
+    public static void recordInputSecrets(List<String> secretNames) {
+        inputSecretNames = secretNames != null ? new ArrayList<>(secretNames) : Collections.<String>emptyList();
+    }
+
+    public static void recordOutcome(String secretName, SecretOutcome outcome) {
+        recordOutcome(null, secretName, outcome);
+    }
+
+    public static void recordOutcome(Secret secret, SecretOutcome outcome) {
+        recordOutcome(secret.getRegion(), secret.getIdentifier(), outcome);
+    }
+
+    /**
+     * Records the outcome of a secret. The run report lists outcomes by secret name; the region keeps apart secrets
+     * of the same name in different regions, which a multi-manifest run reports per manifest.
+     *
+     * @param region Id of the region the secret belongs to, or null if unknown.
+     */
+    public static void recordOutcome(String region, String secretName, SecretOutcome outcome) {
+        outcomes.put(secretName, outcome);
+        if (region != null) {
+            regionalOutcomes.put(region + '/' + secretName, outcome);
+        }
+    }
+
+    public static void recordUpdateSummary(UpdateSummary summary) {
+        updateSummary = summary;
+    }
+
+    /**
+     * Records the result of one region of a multi-region run. Secret outcomes are not tracked per region.
+     */
+    public static void recordRegionResult(RegionResult result) {
+        regionResults.add(result);
+    }
+
+    /**
+     * Records the result of one manifest of a multi-manifest run.
+     */
+    public static void recordManifestResult(ManifestResult result) {
+        manifestResults.add(result);
+    }
+
+    /**
+     * Records the shard of the secrets a node processed when a run is split across several nodes, so that its
+     * partial report can be merged with those of the other nodes.
+     */
+    public static void recordShard(SecretShard secretShard) {
+        shard = secretShard;
+    }
+
+    /**
+     * Clears all metrics, e.g. between runs in the same JVM.
+     */
+    public static void reset() {
+        phaseNanos.clear();
+        apiCalls.clear();
+        outcomes.clear();
+        regionalOutcomes.clear();
+        secretsEncrypted.reset();
+        bytesEncrypted.reset();
+        secretsVerified.reset();
+        inputSecretNames = Collections.emptyList();
+        updateSummary = null;
+        regionResults.clear();
+        manifestResults.clear();
+        shard = null;
+    }
+
+    public static Map<String, Long> getPhaseNanos() {
+        synchronized (phaseNanos) {
+            return new LinkedHashMap<>(phaseNanos);
+        }
+    }
+
+    public static Map<String, ApiCallMetrics> getApiCalls() {
+        return new TreeMap<>(apiCalls);
+    }
+
+    /**
+     * Returns the outcome of each input secret in input order, followed by any other secrets with an outcome.
+     *
+     * @return Outcomes keyed by secret name.
+     */
+    public static Map<String, SecretOutcome> getOutcomes() {
+        Map<String, SecretOutcome> orderedOutcomes = new LinkedHashMap<>();
+        for (String secretName : inputSecretNames) {
+            orderedOutcomes.put(secretName, outcomes.getOrDefault(secretName, SecretOutcome.NOT_PROCESSED));
+        }
+        outcomes.forEach(orderedOutcomes::putIfAbsent);
+        return orderedOutcomes;
+    }
+
+    public static long getSecretsEncrypted() {
+        return secretsEncrypted.sum();
+    }
+
+    public static long getBytesEncrypted() {
+        return bytesEncrypted.sum();
+    }
+
+    public static long getSecretsVerified() {
+        return secretsVerified.sum();
+    }
+
+    /**
+     * Returns the summary of the adaptive updater.
+     *
+     * @return Update summary, or null if the run did not reach the update phase.
+     */
+    public static UpdateSummary getUpdateSummary() {
+        return updateSummary;
+    }
+
+    /**
+     * Returns the results of each region of a multi-region run, in the order they were recorded.
+     *
+     * @return Region results, empty for a single-region run.
+     */
+    public static List<RegionResult> getRegionResults() {
+        synchronized (regionResults) {
+            return new ArrayList<>(regionResults);
+        }
+    }
+
+    /**
+     * Returns the results of each manifest of a multi-manifest run, in the order the manifests finished.
+     *
+     * @return Manifest results, empty unless several manifests were processed.
+     */
+    public static List<ManifestResult> getManifestResults() {
+        synchronized (manifestResults) {
+            return new ArrayList<>(manifestResults);
+        }
+    }
+
+    /**
+     * Returns the outcome recorded for a secret of a region.
+     *
+     * @param region     Id of the region of the secret.
+     * @param secretName Name of the secret.
+     * @return Outcome, or {@link SecretOutcome#NOT_PROCESSED} if none was recorded.
+     */
+    public static SecretOutcome getOutcome(String region, String secretName) {
+        return regionalOutcomes.getOrDefault(region + '/' + secretName, SecretOutcome.NOT_PROCESSED);
+    }
+
+    /**
+     * Returns the shard the run processed.
+     *
+     * @return Shard, or null if the run was not sharded.
+     */
+    public static SecretShard getShard() {
+        return shard;
+    }
+
+    private static ApiCallMetrics apiCallMetrics(String operation) {
+        return apiCalls.computeIfAbsent(operation, key -> new ApiCallMetrics());
+    }
+
+    /**
+     * Latency histogram and counters of a single AWS Secrets Manager operation.
+     */
+    public static class ApiCallMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder throttled = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getCalls() {
+            return latency.getCount();
+        }
+
+        public long getAttempts() {
+            return attempts.sum();
+        }
+
+        /**
+         * Returns the number of retries issued by the AWS SDK, i.e. attempts beyond the first of each call.
+         */
+        public long getSdkRetries() {
+            return Math.max(0, attempts.sum() - latency.getCount());
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getThrottled() {
+            return throttled.sum();
+        }
+    }
+}
@@ -0,0 +1,366 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.SecretOutcome;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This Java Class merges the JSON run reports written by the nodes of a sharded run into a single report of the
+ * same format, covering every secret of the run. Counters, encrypted data and API call histograms are summed, and
+ * latency quantiles are recomputed from the merged histograms. The merged run starts when the first shard started
+ * and lasts until the last shard finished; phase times are summed across shards.
+ * <p>
+ * The merged report is marked failed if any shard failed or if the report of any shard is missing. A shard
+ * reported twice, reports of different shard counts, or a secret reported by more than one shard are rejected.
+ * <p>
+ * Usage: {@code java -cp aws-encryption-manager.jar org.wso2.asgardeo.utils.RunReportAggregator <merged report>
+ * <shard report>...}. The exit code is 0 only if the merged run succeeded.
+ */
+public class RunReportAggregator {
+
+    private static final Logger log = LoggerFactory.getLogger(RunReportAggregator.class);
+    private static final int REPORT_FORMAT_VERSION = 1;
+    private static final String STATUS_SUCCEEDED = "succeeded";
+    private static final String STATUS_FAILED = "failed";
+
+    private RunReportAggregator() {}
+
+    public static void main(String... args) {
+        if (args.length < 2) {
+            System.err.println("Usage: RunReportAggregator <merged report file> <shard report file>...");
+            System.exit(2);
+        }
+        try {
+            List<JsonObject> reports = new ArrayList<>();
+            for (int i = 1; i < args.length; i++) {
+                reports.add(readReport(Paths.get(args[i])));
+            }
+            JsonObject merged = aggregate(reports);
+            Path output = Paths.get(args[0]);
+            RunReportWriter.writeAtomically(output,
+                    new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create().toJson(merged));
+            log.info("Merged {} shard reports into {} - status: {}, secrets: {}", reports.size(), output,
+                    merged.get("status").getAsString(), merged.getAsJsonArray("secrets").size());
+            if (!STATUS_SUCCEEDED.equals(merged.get("status").getAsString())) {
+                System.exit(1);
+            }
+        } catch (IOException | EncryptionException e) {
+            log.error("Failed to merge run reports: {}", e.getMessage(), e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Merges the reports of the shards of a run.
+     *
+     * @param reports JSON reports written with a shard configured, in any order.
+     * @return Merged report.
+     * @throws EncryptionException if the reports do not belong to the shards of a single run.
+     */
+    public static JsonObject aggregate(List<JsonObject> reports) {
+        if (reports.isEmpty()) {
+            throw new EncryptionException("No run reports to merge.");
+        }
+        List<JsonObject> orderedReports = new ArrayList<>(reports);
+        int shardCount = validateShards(orderedReports);
+        orderedReports.sort(Comparator.comparingInt(report -> shardOf(report).get("index").getAsInt()));
+
+        JsonObject merged = new JsonObject();
+        merged.addProperty("formatVersion", REPORT_FORMAT_VERSION);
+        Set<Integer> missingShards = new TreeSet<>();
+        for (int i = 0; i < shardCount; i++) {
+            missingShards.add(i);
+        }
+        boolean succeeded = true;
+        Instant startedAt = null;
+        Instant finishedAt = null;
+        for (JsonObject report : orderedReports) {
+            missingShards.remove(shardOf(report).get("index").getAsInt());
+            succeeded &= STATUS_SUCCEEDED.equals(report.get("status").getAsString());
+            Instant shardStartedAt = Instant.parse(report.get("startedAt").getAsString());
+            Instant shardFinishedAt = shardStartedAt.plusNanos(
+                    (long) (report.get("durationSeconds").getAsDouble() * TimeUnit.SECONDS.toNanos(1)));
+            startedAt = startedAt == null || shardStartedAt.isBefore(startedAt) ? shardStartedAt : startedAt;
+            finishedAt = finishedAt == null || shardFinishedAt.isAfter(finishedAt) ? shardFinishedAt : finishedAt;
+        }
+        merged.addProperty("status", succeeded && missingShards.isEmpty() ? STATUS_SUCCEEDED : STATUS_FAILED);
+        merged.addProperty("startedAt", startedAt.toString());
+        merged.addProperty("durationSeconds",
+                (finishedAt.toEpochMilli() - startedAt.toEpochMilli()) / (double) TimeUnit.SECONDS.toMillis(1));
+
+        JsonArray shards = new JsonArray();
+        for (JsonObject report : orderedReports) {
+            JsonObject shard = new JsonObject();
+            shard.addProperty("index", shardOf(report).get("index").getAsInt());
+            shard.add("status", report.get("status"));
+            shard.add("startedAt", report.get("startedAt"));
+            shard.add("durationSeconds", report.get("durationSeconds"));
+            shard.addProperty("secrets", report.has("secrets") ? report.getAsJsonArray("secrets").size() : 0);
+            shards.add(shard);
+        }
+        JsonObject shardSummary = new JsonObject();
+        shardSummary.addProperty("count", shardCount);
+        JsonArray missing = new JsonArray();
+        missingShards.forEach(missing::add);
+        shardSummary.add("missing", missing);
+        shardSummary.add("reports", shards);
+        merged.add("shards", shardSummary);
+
+        merged.add("phaseSeconds", sumNumbers(orderedReports, "phaseSeconds"));
+        merged.add("apiCalls", mergeApiCalls(orderedReports));
+        merged.add("encryption", sumNumbers(orderedReports, "encryption"));
+        JsonObject update = mergeUpdates(orderedReports);
+        if (update != null) {
+            merged.add("update", update);
+        }
+
+        JsonArray regions = new JsonArray();
+        for (JsonObject report : orderedReports) {
+            if (report.has("regions")) {
+                for (JsonElement region : report.getAsJsonArray("regions")) {
+                    JsonObject shardRegion = region.getAsJsonObject().deepCopy();
+                    shardRegion.add("shard", shardOf(report).get("index"));
+                    regions.add(shardRegion);
+                }
+            }
+        }
+        if (regions.size() > 0) {
+            merged.add("regions", regions);
+        }
+
+        Map<SecretOutcome, Integer> outcomeCounts = new EnumMap<>(SecretOutcome.class);
+        for (SecretOutcome outcome : SecretOutcome.values()) {
+            outcomeCounts.put(outcome, 0);
+        }
+        Set<String> secretNames = new HashSet<>();
+        JsonArray secrets = new JsonArray();
+        for (JsonObject report : orderedReports) {
+            if (!report.has("secrets")) {
+                continue;
+            }
+            for (JsonElement element : report.getAsJsonArray("secrets")) {
+                JsonObject secret = element.getAsJsonObject();
+                String secretName = secret.get("name").getAsString();
+                if (!secretNames.add(secretName)) {
+                    throw new EncryptionException("Secret '" + secretName + "' is reported by more than one shard.");
+                }
+                outcomeCounts.merge(SecretOutcome.valueOf(secret.get("outcome").getAsString()), 1, Integer::sum);
+                secrets.add(secret);
+            }
+        }
+        JsonObject outcomeCountsJson = new JsonObject();
+        outcomeCounts.forEach((outcome, count) -> outcomeCountsJson.addProperty(outcome.name(), count));
+        merged.add("secretOutcomeCounts", outcomeCountsJson);
+        merged.add("secrets", secrets);
+        if (!missingShards.isEmpty()) {
+            log.warn("No report for shards {} of {}. The merged report is incomplete.", missingShards, shardCount);
+        }
+        return merged;
+    }
+
+    private static JsonObject readReport(Path path) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            JsonObject report = new Gson().fromJson(reader, JsonObject.class);
+            if (report == null) {
+                throw new EncryptionException("Run report is empty: " + path);
+            }
+            return report;
+        } catch (JsonParseException e) {
+            throw new EncryptionException("Run report is not valid JSON: " + path, e);
+        }
+    }
+
+    /**
+     * Checks that every report is of a supported format and belongs to a distinct shard of the same shard count.
+     *
+     * @return The shard count.
+     */
+    private static int validateShards(List<JsonObject> reports) {
+        int shardCount = -1;
+        Set<Integer> indexes = new HashSet<>();
+        for (JsonObject report : reports) {
+            if (!report.has("formatVersion") || report.get("formatVersion").getAsInt() != REPORT_FORMAT_VERSION) {
+                throw new EncryptionException("Unsupported run report format version: " + report.get("formatVersion"));
+            }
+            JsonObject shard = shardOf(report);
+            if (shard == null) {
+                throw new EncryptionException("Run report of a run started at " + report.get("startedAt")
+                        + " was not written by a sharded run.");
+            }
+            int count = shard.get("count").getAsInt();
+            if (shardCount != -1 && count != shardCount) {
+                throw new EncryptionException("Run reports are of different shard counts: " + shardCount + " and "
+                        + count + ".");
+            }
+            shardCount = count;
+            if (!indexes.add(shard.get("index").getAsInt())) {
+                throw new EncryptionException("Shard " + shard.get("index").getAsInt() + " is reported more than once.");
+            }
+        }
+        return shardCount;
+    }
+
+    private static JsonObject shardOf(JsonObject report) {
+        return report.has("shard") ? report.getAsJsonObject("shard") : null;
+    }
+
+    /**
+     * Sums the numeric properties of an object present in the reports, in the order they first appear.
+     */
+    private static JsonObject sumNumbers(List<JsonObject> reports, String member) {
+        Map<String, Double> sums = new LinkedHashMap<>();
+        for (JsonObject report : reports) {
+            if (report.has(member)) {
+                report.getAsJsonObject(member).entrySet().forEach(entry ->
+                        sums.merge(entry.getKey(), entry.getValue().getAsDouble(), Double::sum));
+            }
+        }
+        JsonObject result = new JsonObject();
+        sums.forEach((key, value) -> result.addProperty(key, toNumber(value)));
+        return result;
+    }
+
+    private static JsonObject mergeApiCalls(List<JsonObject> reports) {
+        Map<String, List<JsonObject>> callsByOperation = new TreeMap<>();
+        for (JsonObject report : reports) {
+            if (report.has("apiCalls")) {
+                report.getAsJsonObject("apiCalls").entrySet().forEach(entry -> callsByOperation
+                        .computeIfAbsent(entry.getKey(), key -> new ArrayList<>()).add(entry.getValue().getAsJsonObject()));
+            }
+        }
+        JsonObject apiCalls = new JsonObject();
+        callsByOperation.forEach((operation, shardCalls) -> apiCalls.add(operation, mergeApiCall(shardCalls)));
+        return apiCalls;
+    }
+
+    private static JsonObject mergeApiCall(List<JsonObject> shardCalls) {
+        long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+        long[] counts = new long[bounds.length + 1];
+        long calls = 0;
+        long attempts = 0;
+        long sdkRetries = 0;
+        long failures = 0;
+        long throttled = 0;
+        double latencySumMillis = 0;
+        long maxMillis = 0;
+        for (JsonObject shardCall : shardCalls) {
+            long shardCallCount = shardCall.get("calls").getAsLong();
+            calls += shardCallCount;
+            attempts += shardCall.get("attempts").getAsLong();
+            sdkRetries += shardCall.get("sdkRetries").getAsLong();
+            failures += shardCall.get("failures").getAsLong();
+            throttled += shardCall.get("throttled").getAsLong();
+            JsonObject latencyMillis = shardCall.getAsJsonObject("latencyMillis");
+            latencySumMillis += latencyMillis.get("mean").getAsDouble() * shardCallCount;
+            maxMillis = Math.max(maxMillis, latencyMillis.get("max").getAsLong());
+            JsonArray histogram = shardCall.getAsJsonArray("histogram");
+            if (histogram.size() != counts.length) {
+                throw new EncryptionException("Run reports have different latency histogram buckets.");
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += histogram.get(i).getAsJsonObject().get("count").getAsLong();
+            }
+        }
+        JsonObject json = new JsonObject();
+        json.addProperty("calls", calls);
+        json.addProperty("attempts", attempts);
+        json.addProperty("sdkRetries", sdkRetries);
+        json.addProperty("failures", failures);
+        json.addProperty("throttled", throttled);
+
+        JsonObject latencyMillis = new JsonObject();
+        latencyMillis.addProperty("mean", calls == 0 ? 0 : Math.round(latencySumMillis / calls));
+        latencyMillis.addProperty("p50", LatencyHistogram.getQuantileMillis(counts, maxMillis, 0.5));
+        latencyMillis.addProperty("p90", LatencyHistogram.getQuantileMillis(counts, maxMillis, 0.9));
+        latencyMillis.addProperty("p99", LatencyHistogram.getQuantileMillis(counts, maxMillis, 0.99));
+        latencyMillis.addProperty("max", maxMillis);
+        json.add("latencyMillis", latencyMillis);
+
+        JsonArray buckets = new JsonArray();
+        for (int i = 0; i < counts.length; i++) {
+            JsonObject bucket = new JsonObject();
+            bucket.addProperty("leMillis", i < bounds.length ? String.valueOf(bounds[i]) : "+Inf");
+            bucket.addProperty("count", counts[i]);
+            buckets.add(bucket);
+        }
+        json.add("histogram", buckets);
+        return json;
+    }
+
+    /**
+     * Merges the update summaries. The nodes update concurrently against the same account, so their concurrency
+     * limits are summed, except for the minimum, which is the lowest limit any node dropped to.
+     *
+     * @return Merged summary, or null if no shard reached the update phase.
+     */
+    private static JsonObject mergeUpdates(List<JsonObject> reports) {
+        JsonObject update = null;
+        for (JsonObject report : reports) {
+            if (!report.has("update")) {
+                continue;
+            }
+            JsonObject shardUpdate = report.getAsJsonObject("update");
+            if (update == null) {
+                update = shardUpdate.deepCopy();
+                continue;
+            }
+            for (Map.Entry<String, JsonElement> entry : shardUpdate.entrySet()) {
+                long value = entry.getValue().getAsLong();
+                if (!update.has(entry.getKey())) {
+                    update.addProperty(entry.getKey(), value);
+                    continue;
+                }
+                long current = update.get(entry.getKey()).getAsLong();
+                update.addProperty(entry.getKey(), "minConcurrencyLimit".equals(entry.getKey())
+                        ? Math.min(current, value) : current + value);
+            }
+        }
+        return update;
+    }
+
+    private static Number toNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return (long) value;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,433 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.model.ManifestResult;
+import org.wso2.asgardeo.model.RegionResult;
+import org.wso2.asgardeo.model.SecretOutcome;
+import org.wso2.asgardeo.model.SecretShard;
+import org.wso2.asgardeo.model.UpdateSummary;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * This Java Class writes the {@link RunMetrics} of a run as a JSON report and as a Prometheus text file for the
+ * node exporter's textfile collector. Files are written to a temporary file first and moved into place, so a
+ * collector never reads a partially written file.
+ */
+public class RunReportWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(RunReportWriter.class);
+    private static final int REPORT_FORMAT_VERSION = 1;
+    private static final String METRIC_PREFIX = "asgardeo_encryption_";
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private RunReportWriter() {}
+
+    /**
+     * Logs the phase timings and writes the reports configured through system properties. Failures to write a
+     * report are logged and do not fail the run.
+     *
+     * @param succeeded        Whether the run completed successfully.
+     * @param startEpochMillis Wall-clock time the run started at.
+     * @param durationNanos    Duration of the run.
+     */
+    public static void writeConfiguredReports(boolean succeeded, long startEpochMillis, long durationNanos) {
+        logPhaseSummary(durationNanos);
+        String reportFile = SystemPropertyUtils.getString(Constants.METRICS_REPORT_FILE_SYS_PROPERTY_KEY);
+        if (reportFile != null) {
+            try {
+                writeJsonReport(Paths.get(reportFile), succeeded, startEpochMillis, durationNanos);
+                log.info("Wrote run report to {}", reportFile);
+            } catch (IOException e) {
+                log.error("Failed to write run report to {}: {}", reportFile, e.getMessage(), e);
+            }
+        }
+        String prometheusFile = SystemPropertyUtils.getString(Constants.METRICS_PROMETHEUS_FILE_SYS_PROPERTY_KEY);
+        if (prometheusFile != null) {
+            try {
+                writePrometheusTextFile(Paths.get(prometheusFile), succeeded, startEpochMillis, durationNanos);
+                log.info("Wrote Prometheus metrics to {}", prometheusFile);
+            } catch (IOException e) {
+                log.error("Failed to write Prometheus metrics to {}: {}", prometheusFile, e.getMessage(), e);
+            }
+        }
+    }
+
+    public static void writeJsonReport(Path path, boolean succeeded, long startEpochMillis, long durationNanos)
+            throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        writeAtomically(path, gson.toJson(buildJsonReport(succeeded, startEpochMillis, durationNanos)));
+    }
+
+    public static void writePrometheusTextFile(Path path, boolean succeeded, long startEpochMillis, long durationNanos)
+            throws IOException {
+        writeAtomically(path, buildPrometheusText(succeeded, startEpochMillis, durationNanos));
+    }
+
+    /**
+     * Writes the report of one manifest of a multi-manifest run: its status, update summary and the outcome of
+     * each of its secrets. Timings and API calls are shared by all manifests and only included in the run report.
+     *
+     * @param path   File to write the report to.
+     * @param result Result of the manifest.
+     * @throws IOException if the report cannot be written.
+     */
+    public static void writeManifestReport(Path path, ManifestResult result) throws IOException {
+        JsonObject report = new JsonObject();
+        report.addProperty("formatVersion", REPORT_FORMAT_VERSION);
+        report.addProperty("status", result.isSucceeded() ? "succeeded" : "failed");
+        report.addProperty("startedAt", Instant.ofEpochMilli(result.getStartEpochMillis()).toString());
+        report.addProperty("durationSeconds", result.getDurationNanos() / NANOS_PER_SECOND);
+        report.add("manifest", toJson(result));
+        report.addProperty("certificateSecretName", result.getJob().getPemCertSecretName());
+        if (result.getCertificateFingerprint() != null) {
+            report.addProperty("certificateFingerprint", result.getCertificateFingerprint());
+        }
+        addOutcomes(report, result.getOutcomes());
+        Gson gson = new GsonBuilder().setPrettyPrinting().disableHtmlEscaping().create();
+        writeAtomically(path, gson.toJson(report));
+    }
+
+    static JsonObject buildJsonReport(boolean succeeded, long startEpochMillis, long durationNanos) {
+        JsonObject report = new JsonObject();
+        report.addProperty("formatVersion", REPORT_FORMAT_VERSION);
+        report.addProperty("status", succeeded ? "succeeded" : "failed");
+        report.addProperty("startedAt", Instant.ofEpochMilli(startEpochMillis).toString());
+        report.addProperty("durationSeconds", durationNanos / NANOS_PER_SECOND);
+        SecretShard shard = RunMetrics.getShard();
+        if (shard != null) {
+            JsonObject shardJson = new JsonObject();
+            shardJson.addProperty("index", shard.getIndex());
+            shardJson.addProperty("count", shard.getCount());
+            report.add("shard", shardJson);
+        }
+
+        JsonObject phases = new JsonObject();
+        RunMetrics.getPhaseNanos().forEach((phase, nanos) -> phases.addProperty(phase, nanos / NANOS_PER_SECOND));
+        report.add("phaseSeconds", phases);
+
+        JsonObject apiCalls = new JsonObject();
+        RunMetrics.getApiCalls().forEach((operation, metrics) -> apiCalls.add(operation, toJson(metrics)));
+        report.add("apiCalls", apiCalls);
+
+        JsonObject encryption = new JsonObject();
+        encryption.addProperty("secrets", RunMetrics.getSecretsEncrypted());
+        encryption.addProperty("bytes", RunMetrics.getBytesEncrypted());
+        encryption.addProperty("verified", RunMetrics.getSecretsVerified());
+        report.add("encryption", encryption);
+
+        UpdateSummary summary = RunMetrics.getUpdateSummary();
+        if (summary != null) {
+            report.add("update", toJson(summary));
+        }
+
+        List<RegionResult> regionResults = RunMetrics.getRegionResults();
+        if (!regionResults.isEmpty()) {
+            JsonArray regions = new JsonArray();
+            for (RegionResult result : regionResults) {
+                JsonObject region = new JsonObject();
+                region.addProperty("region", result.getRegion());
+                region.addProperty("status", result.isSucceeded() ? "succeeded" : "failed");
+                region.addProperty("durationSeconds", result.getDurationNanos() / NANOS_PER_SECOND);
+                if (result.getFailureMessage() != null) {
+                    region.addProperty("failure", result.getFailureMessage());
+                }
+                if (result.getUpdateSummary() != null) {
+                    region.add("update", toJson(result.getUpdateSummary()));
+                }
+                regions.add(region);
+            }
+            report.add("regions", regions);
+        }
+
+        List<ManifestResult> manifestResults = RunMetrics.getManifestResults();
+        if (!manifestResults.isEmpty()) {
+            JsonArray manifests = new JsonArray();
+            manifestResults.forEach(result -> manifests.add(toJson(result)));
+            report.add("manifests", manifests);
+        }
+
+        addOutcomes(report, RunMetrics.getOutcomes());
+        return report;
+    }
+
+    private static void addOutcomes(JsonObject report, Map<String, SecretOutcome> outcomes) {
+        JsonObject outcomeCounts = new JsonObject();
+        countOutcomes(outcomes).forEach((outcome, count) -> outcomeCounts.addProperty(outcome.name(), count));
+        JsonArray secrets = new JsonArray();
+        outcomes.forEach((secretName, outcome) -> {
+            JsonObject secret = new JsonObject();
+            secret.addProperty("name", secretName);
+            secret.addProperty("outcome", outcome.name());
+            secrets.add(secret);
+        });
+        report.add("secretOutcomeCounts", outcomeCounts);
+        report.add("secrets", secrets);
+    }
+
+    static String buildPrometheusText(boolean succeeded, long startEpochMillis, long durationNanos) {
+        StringBuilder text = new StringBuilder();
+        gauge(text, "run_success", "Whether the last run completed successfully.");
+        sample(text, "run_success", "", succeeded ? 1 : 0);
+        gauge(text, "run_start_timestamp_seconds", "Start time of the last run since the Unix epoch.");
+        sample(text, "run_start_timestamp_seconds", "", TimeUnit.MILLISECONDS.toSeconds(startEpochMillis));
+        gauge(text, "run_duration_seconds", "Wall-clock duration of the last run.");
+        sample(text, "run_duration_seconds", "", durationNanos / NANOS_PER_SECOND);
+        SecretShard shard = RunMetrics.getShard();
+        if (shard != null) {
+            gauge(text, "shard_index", "Shard of the secrets processed by this node in the last run.");
+            sample(text, "shard_index", "", shard.getIndex());
+            gauge(text, "shard_count", "Number of shards the last run was split into.");
+            sample(text, "shard_count", "", shard.getCount());
+        }
+
+        gauge(text, "phase_duration_seconds", "Wall-clock duration of each phase of the last run.");
+        RunMetrics.getPhaseNanos().forEach((phase, nanos) ->
+                sample(text, "phase_duration_seconds", label("phase", phase), nanos / NANOS_PER_SECOND));
+
+        Map<String, RunMetrics.ApiCallMetrics> apiCalls = RunMetrics.getApiCalls();
+        text.append("# HELP ").append(METRIC_PREFIX).append("api_call_duration_seconds ")
+                .append("Latency of AWS Secrets Manager calls in the last run, including SDK retries.\n");
+        text.append("# TYPE ").append(METRIC_PREFIX).append("api_call_duration_seconds histogram\n");
+        long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+        apiCalls.forEach((operation, metrics) -> {
+            LatencyHistogram latency = metrics.getLatency();
+            long[] counts = latency.getBucketCounts();
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += counts[i];
+                sample(text, "api_call_duration_seconds_bucket",
+                        label("operation", operation) + "," + label("le", formatNumber(bounds[i] / 1000.0)), cumulative);
+            }
+            sample(text, "api_call_duration_seconds_bucket",
+                    label("operation", operation) + "," + label("le", "+Inf"), latency.getCount());
+            sample(text, "api_call_duration_seconds_sum", label("operation", operation),
+                    latency.getSumNanos() / NANOS_PER_SECOND);
+            sample(text, "api_call_duration_seconds_count", label("operation", operation), latency.getCount());
+        });
+        apiCallCounter(text, apiCalls, "api_call_attempts", "HTTP requests sent per operation in the last run.",
+                RunMetrics.ApiCallMetrics::getAttempts);
+        apiCallCounter(text, apiCalls, "api_call_failures", "Failed calls per operation in the last run.",
+                RunMetrics.ApiCallMetrics::getFailures);
+        apiCallCounter(text, apiCalls, "api_call_throttled", "Throttled calls per operation in the last run.",
+                RunMetrics.ApiCallMetrics::getThrottled);
+
+        gauge(text, "secrets_encrypted", "Secrets encrypted in the last run.");
+        sample(text, "secrets_encrypted", "", RunMetrics.getSecretsEncrypted());
+        gauge(text, "bytes_encrypted", "Plain text bytes encrypted in the last run.");
+        sample(text, "bytes_encrypted", "", RunMetrics.getBytesEncrypted());
+        gauge(text, "secrets_verified", "Encrypted secrets verified by decrypting them in the last run.");
+        sample(text, "secrets_verified", "", RunMetrics.getSecretsVerified());
+
+        UpdateSummary summary = RunMetrics.getUpdateSummary();
+        if (summary != null) {
+            gauge(text, "update_retries", "Throttled updates retried by the adaptive updater in the last run.");
+            sample(text, "update_retries", "", summary.getRetryCount());
+            gauge(text, "update_throttled", "Updates throttled by AWS in the last run.");
+            sample(text, "update_throttled", "", summary.getThrottledCount());
+            gauge(text, "update_concurrency_limit", "Adaptive update concurrency limit at the end of the last run.");
+            sample(text, "update_concurrency_limit", "", summary.getConcurrencyLimit());
+        }
+
+        List<RegionResult> regionResults = RunMetrics.getRegionResults();
+        if (!regionResults.isEmpty()) {
+            gauge(text, "region_success", "Whether each region of the last run completed successfully.");
+            regionResults.forEach(result ->
+                    sample(text, "region_success", label("region", result.getRegion()), result.isSucceeded() ? 1 : 0));
+            gauge(text, "region_duration_seconds", "Wall-clock duration of each region of the last run.");
+            regionResults.forEach(result -> sample(text, "region_duration_seconds", label("region", result.getRegion()),
+                    result.getDurationNanos() / NANOS_PER_SECOND));
+            gauge(text, "region_secrets_updated", "Secrets updated in each region in the last run.");
+            regionResults.forEach(result -> sample(text, "region_secrets_updated", label("region", result.getRegion()),
+                    result.getUpdateSummary() != null ? result.getUpdateSummary().getUpdatedCount() : 0));
+        }
+
+        List<ManifestResult> manifestResults = RunMetrics.getManifestResults();
+        if (!manifestResults.isEmpty()) {
+            gauge(text, "manifest_success", "Whether each manifest of the last run completed successfully.");
+            manifestResults.forEach(result -> sample(text, "manifest_success",
+                    label("manifest", result.getJob().getName()), result.isSucceeded() ? 1 : 0));
+            gauge(text, "manifest_duration_seconds", "Wall-clock duration of each manifest of the last run.");
+            manifestResults.forEach(result -> sample(text, "manifest_duration_seconds",
+                    label("manifest", result.getJob().getName()), result.getDurationNanos() / NANOS_PER_SECOND));
+            gauge(text, "manifest_secrets_updated", "Secrets updated for each manifest in the last run.");
+            manifestResults.forEach(result -> sample(text, "manifest_secrets_updated",
+                    label("manifest", result.getJob().getName()),
+                    result.getUpdateSummary() != null ? result.getUpdateSummary().getUpdatedCount() : 0));
+        }
+
+        gauge(text, "secrets", "Input secrets by outcome in the last run.");
+        countOutcomes(RunMetrics.getOutcomes()).forEach((outcome, count) ->
+                sample(text, "secrets", label("outcome", outcome.name().toLowerCase(Locale.ROOT)), count));
+        return text.toString();
+    }
+
+    private static JsonObject toJson(UpdateSummary summary) {
+        JsonObject update = new JsonObject();
+        update.addProperty("updated", summary.getUpdatedCount());
+        update.addProperty("skipped", summary.getSkippedCount());
+        update.addProperty("retries", summary.getRetryCount());
+        update.addProperty("throttled", summary.getThrottledCount());
+        update.addProperty("concurrencyLimit", summary.getConcurrencyLimit());
+        update.addProperty("minConcurrencyLimit", summary.getMinConcurrencyLimit());
+        update.addProperty("peakConcurrencyLimit", summary.getPeakConcurrencyLimit());
+        return update;
+    }
+
+    private static JsonObject toJson(ManifestResult result) {
+        JsonObject manifest = new JsonObject();
+        manifest.addProperty("name", result.getJob().getName());
+        manifest.addProperty("manifestFile", result.getJob().getManifestFile());
+        manifest.addProperty("region", result.getRegion());
+        manifest.addProperty("status", result.isSucceeded() ? "succeeded" : "failed");
+        manifest.addProperty("durationSeconds", result.getDurationNanos() / NANOS_PER_SECOND);
+        if (result.getFailureMessage() != null) {
+            manifest.addProperty("failure", result.getFailureMessage());
+        }
+        manifest.addProperty("batches", result.getBatchCount());
+        manifest.addProperty("secrets", result.getOutcomes().size());
+        if (result.getUpdateSummary() != null) {
+            manifest.add("update", toJson(result.getUpdateSummary()));
+        }
+        return manifest;
+    }
+
+    private static JsonObject toJson(RunMetrics.ApiCallMetrics metrics) {
+        LatencyHistogram latency = metrics.getLatency();
+        JsonObject json = new JsonObject();
+        json.addProperty("calls", metrics.getCalls());
+        json.addProperty("attempts", metrics.getAttempts());
+        json.addProperty("sdkRetries", metrics.getSdkRetries());
+        json.addProperty("failures", metrics.getFailures());
+        json.addProperty("throttled", metrics.getThrottled());
+
+        JsonObject latencyMillis = new JsonObject();
+        latencyMillis.addProperty("mean", latency.getCount() == 0 ? 0
+                : TimeUnit.NANOSECONDS.toMillis(latency.getSumNanos() / latency.getCount()));
+        latencyMillis.addProperty("p50", latency.getQuantileMillis(0.5));
+        latencyMillis.addProperty("p90", latency.getQuantileMillis(0.9));
+        latencyMillis.addProperty("p99", latency.getQuantileMillis(0.99));
+        latencyMillis.addProperty("max", TimeUnit.NANOSECONDS.toMillis(latency.getMaxNanos()));
+        json.add("latencyMillis", latencyMillis);
+
+        JsonArray buckets = new JsonArray();
+        long[] bounds = LatencyHistogram.getBucketBoundsMillis();
+        long[] counts = latency.getBucketCounts();
+        for (int i = 0; i < counts.length; i++) {
+            JsonObject bucket = new JsonObject();
+            bucket.addProperty("leMillis", i < bounds.length ? String.valueOf(bounds[i]) : "+Inf");
+            bucket.addProperty("count", counts[i]);
+            buckets.add(bucket);
+        }
+        json.add("histogram", buckets);
+        return json;
+    }
+
+    private static Map<SecretOutcome, Integer> countOutcomes(Map<String, SecretOutcome> outcomes) {
+        Map<SecretOutcome, Integer> counts = new EnumMap<>(SecretOutcome.class);
+        for (SecretOutcome outcome : SecretOutcome.values()) {
+            counts.put(outcome, 0);
+        }
+        outcomes.values().forEach(outcome -> counts.merge(outcome, 1, Integer::sum));
+        return counts;
+    }
+
+    private static void apiCallCounter(StringBuilder text, Map<String, RunMetrics.ApiCallMetrics> apiCalls, String name,
+                                       String help, ToLongFunction<RunMetrics.ApiCallMetrics> value) {
+        gauge(text, name, help);
+        apiCalls.forEach((operation, metrics) ->
+                sample(text, name, label("operation", operation), value.applyAsLong(metrics)));
+    }
+
+    // Values describe the last run rather than accumulating across runs, so they are exposed as gauges.
+    private static void gauge(StringBuilder text, String name, String help) {
+        text.append("# HELP ").append(METRIC_PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(METRIC_PREFIX).append(name).append(" gauge\n");
+    }
+
+    private static void sample(StringBuilder text, String name, String labels, double value) {
+        text.append(METRIC_PREFIX).append(name);
+        if (!labels.isEmpty()) {
+            text.append('{').append(labels).append('}');
+        }
+        text.append(' ').append(formatNumber(value)).append('\n');
+    }
+
+    private static String label(String name, String value) {
+        String escaped = value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+        return name + "=\"" + escaped + "\"";
+    }
+
+    private static String formatNumber(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static void logPhaseSummary(long durationNanos) {
+        StringBuilder phases = new StringBuilder();
+        RunMetrics.getPhaseNanos().forEach((phase, nanos) -> phases.append(phases.length() > 0 ? ", " : "")
+                .append(phase).append(": ").append(TimeUnit.NANOSECONDS.toMillis(nanos)).append(" ms"));
+        log.info("Run took {} ms - {}", TimeUnit.NANOSECONDS.toMillis(durationNanos), phases);
+        RunMetrics.getApiCalls().forEach((operation, metrics) -> log.info(
+                "{} - calls: {}, sdk retries: {}, failures: {}, throttled: {}, p50: {} ms, p99: {} ms, max: {} ms",
+                operation, metrics.getCalls(), metrics.getSdkRetries(), metrics.getFailures(), metrics.getThrottled(),
+                metrics.getLatency().getQuantileMillis(0.5), metrics.getLatency().getQuantileMillis(0.99),
+                TimeUnit.NANOSECONDS.toMillis(metrics.getLatency().getMaxNanos())));
+    }
+
+    static void writeAtomically(Path path, String content) throws IOException {
+        Path absolutePath = path.toAbsolutePath();
+        Path directory = absolutePath.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temporaryFile = Files.createTempFile(directory, "." + absolutePath.getFileName(), ".tmp");
+        try {
+            // Temporary files are only readable by the owner; collectors usually run as a different user.
+            if (Files.getFileStore(temporaryFile).supportsFileAttributeView(PosixFileAttributeView.class)) {
+                Files.setPosixFilePermissions(temporaryFile, PosixFilePermissions.fromString("rw-r--r--"));
+            }
+            try (Writer writer = Files.newBufferedWriter(temporaryFile, StandardCharsets.UTF_8)) {
+                writer.write(content);
+            }
+            Files.move(temporaryFile, absolutePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+}
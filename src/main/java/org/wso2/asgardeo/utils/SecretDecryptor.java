@@ -0,0 +1,313 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.Certificate;
+import java.security.interfaces.RSAKey;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * This Java Class decrypts the values written by the encryptor with the private key of the certificate. Both formats
+ * are accepted: values encrypted directly with RSA, and envelopes as described in {@link EnvelopeEncryptor}. The two
+ * are told apart by length, since a direct RSA value is always exactly one block of the key's modulus.
+ * <p>
+ * The private key is parsed once and each thread decrypts with its own cipher. An envelope's data key is unwrapped
+ * once and kept, so that only the first secret of each run costs an RSA operation.
+ */
+public class SecretDecryptor {
+
+    private static final Logger log = LoggerFactory.getLogger(SecretDecryptor.class);
+    private static final int FINGERPRINT_LENGTH_BYTES = 32;
+    // Every run wraps a new data key; a few are kept so that secrets of recent runs can be read side by side
+    private static final int MAX_DATA_KEYS = 64;
+
+    private final CipherPool cipherPool;
+    private final byte[] fingerprint;
+    private final int modulusLength;
+    private final Map<ByteBuffer, SecretKey> dataKeys = new ConcurrentHashMap<>();
+    private final ThreadLocal<Cipher> dataCiphers = ThreadLocal.withInitial(EnvelopeEncryptor::newCipher);
+
+    /**
+     * @param privateKey  RSA private key of the certificate secrets were encrypted with.
+     * @param certificate The certificate itself, used to recognise envelopes wrapped for it.
+     * @throws EncryptionException if the key cannot be used for decryption.
+     */
+    public SecretDecryptor(PrivateKey privateKey, Certificate certificate) {
+        this(privateKey, certificate, EncryptionUtils.resolveTransformation());
+    }
+
+    /**
+     * @param transformation RSA transformation secrets were encrypted with.
+     */
+    SecretDecryptor(PrivateKey privateKey, Certificate certificate, String transformation) {
+        Objects.requireNonNull(privateKey, "PrivateKey cannot be null");
+        Objects.requireNonNull(certificate, "Certificate cannot be null");
+        if (!(privateKey instanceof RSAKey)) {
+            throw new EncryptionException("Secrets can only be decrypted with an RSA private key, not "
+                    + privateKey.getAlgorithm() + ".");
+        }
+        String certificateFingerprint;
+        try {
+            certificateFingerprint = EncryptionUtils.computeFingerprint(certificate);
+        } catch (GeneralSecurityException exception) {
+            log.error("Error computing certificate fingerprint: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when computing the certificate fingerprint", exception);
+        }
+        this.fingerprint = EnvelopeEncryptor.hexToBytes(certificateFingerprint);
+        this.modulusLength = (((RSAKey) privateKey).getModulus().bitLength() + 7) / 8;
+        this.cipherPool = CipherPool.forDecryption(privateKey, certificateFingerprint, transformation,
+                EncryptionUtils.resolveProvider(transformation));
+        // Fail on a misconfigured transformation before any secret is read.
+        cipherPool.get();
+        log.info("Initialized secret decryption for certificate with SHA-256 fingerprint: {}", certificateFingerprint);
+    }
+
+    /**
+     * Loads the private key and its certificate from a keystore.
+     *
+     * @param keystoreFile Path of the keystore.
+     * @param type         Keystore type, or null for the JVM default.
+     * @param password     Password of the keystore.
+     * @param alias        Alias of the private key entry, or null if the keystore holds a single key.
+     * @param keyPassword  Password of the key entry, or null if it is the keystore password.
+     * @return Decryptor for the key.
+     * @throws EncryptionException if the keystore cannot be read or holds no matching RSA key.
+     */
+    public static SecretDecryptor fromKeyStore(Path keystoreFile, String type, char[] password, String alias,
+                                               char[] keyPassword) {
+        return fromKeyStore(keystoreFile, type, password, alias, keyPassword, EncryptionUtils.resolveTransformation());
+    }
+
+    private static SecretDecryptor fromKeyStore(Path keystoreFile, String type, char[] password, String alias,
+                                                char[] keyPassword, String transformation) {
+        Objects.requireNonNull(keystoreFile, "Keystore file cannot be null");
+        try (InputStream stream = Files.newInputStream(keystoreFile)) {
+            KeyStore keyStore = KeyStore.getInstance(type != null ? type : KeyStore.getDefaultType());
+            keyStore.load(stream, password);
+            String keyAlias = alias != null ? alias : findSingleKeyAlias(keyStore, keystoreFile);
+            Key key = keyStore.getKey(keyAlias, keyPassword != null ? keyPassword : password);
+            if (!(key instanceof PrivateKey)) {
+                throw new EncryptionException("Keystore " + keystoreFile + " holds no private key with alias: "
+                        + keyAlias);
+            }
+            Certificate certificate = keyStore.getCertificate(keyAlias);
+            if (certificate == null) {
+                throw new EncryptionException("Keystore " + keystoreFile + " holds no certificate for alias: "
+                        + keyAlias);
+            }
+            log.info("Loaded private key '{}' from keystore: {}", keyAlias, keystoreFile);
+            return new SecretDecryptor((PrivateKey) key, certificate, transformation);
+        } catch (IOException | GeneralSecurityException exception) {
+            log.error("Error loading keystore {}: {}", keystoreFile, exception.getMessage(), exception);
+            throw new EncryptionException("Error when loading the keystore: " + keystoreFile, exception);
+        }
+    }
+
+    /**
+     * Loads the private key from the keystore configured by the given system properties. Passwords are read from
+     * environment variables, so that they do not have to be passed on the command line where other users of the
+     * host can read them, and from the system properties if the variables are not set.
+     *
+     * @param fileKey           Property holding the keystore path, which must be set.
+     * @param typeKey           Property holding the keystore type.
+     * @param passwordKey       Property holding the keystore password.
+     * @param passwordEnvVar    Environment variable holding the keystore password.
+     * @param aliasKey          Property holding the key alias.
+     * @param keyPasswordKey    Property holding the key password.
+     * @param keyPasswordEnvVar Environment variable holding the key password.
+     * @param transformation    RSA transformation secrets were encrypted with.
+     * @return Decryptor for the key.
+     * @throws EncryptionException if the keystore cannot be read or holds no matching RSA key.
+     */
+    static SecretDecryptor fromKeyStoreProperties(String fileKey, String typeKey, String passwordKey,
+                                                  String passwordEnvVar, String aliasKey, String keyPasswordKey,
+                                                  String keyPasswordEnvVar, String transformation) {
+        String keystoreFile = SystemPropertyUtils.getString(fileKey);
+        if (keystoreFile == null) {
+            throw new EncryptionException("The keystore holding the private key is not configured. Set the "
+                    + fileKey + " system property.");
+        }
+        String password = resolvePassword(passwordEnvVar, passwordKey);
+        String keyPassword = resolvePassword(keyPasswordEnvVar, keyPasswordKey);
+        return fromKeyStore(Paths.get(keystoreFile), SystemPropertyUtils.getString(typeKey),
+                password != null ? password.toCharArray() : new char[0], SystemPropertyUtils.getString(aliasKey),
+                keyPassword != null ? keyPassword.toCharArray() : null, transformation);
+    }
+
+    private static String resolvePassword(String environmentVariable, String propertyKey) {
+        String password = System.getenv(environmentVariable);
+        return password != null ? password : System.getProperty(propertyKey);
+    }
+
+    /**
+     * Decrypts a Base64 encoded value. Safe to call from multiple threads.
+     *
+     * @param encryptedValue Value as stored by the encryptor.
+     * @return Plain text value, or an empty string for a null or empty value.
+     * @throws EncryptionException if the value is malformed, was encrypted for another certificate or fails to
+     *                             decrypt.
+     */
+    public String decrypt(String encryptedValue) {
+        if (encryptedValue == null || encryptedValue.isEmpty()) {
+            return "";
+        }
+        EncryptionBuffers buffers = EncryptionBuffers.get();
+        try {
+            int plainTextLength = decryptInto(encryptedValue, buffers);
+            return new String(buffers.plainText(), 0, plainTextLength, StandardCharsets.UTF_8);
+        } finally {
+            buffers.clearPlainText();
+        }
+    }
+
+    /**
+     * Decrypts a Base64 encoded value into the plain text buffer of the calling thread, without creating a plain
+     * text String. The caller must clear the buffer once the plain text has been used.
+     *
+     * @return Number of plain text bytes written to the start of {@link EncryptionBuffers#plainText()}.
+     * @throws EncryptionException if the value is malformed, was encrypted for another certificate or fails to
+     *                             decrypt.
+     */
+    int decryptInto(String encryptedValue, EncryptionBuffers buffers) {
+        buffers.clearPlainText();
+        if (encryptedValue == null || encryptedValue.isEmpty()) {
+            return 0;
+        }
+        byte[] encryptedBytes;
+        try {
+            encryptedBytes = Base64.getDecoder().decode(encryptedValue.trim());
+        } catch (IllegalArgumentException e) {
+            throw new EncryptionException("Encrypted value is not valid Base64.", e);
+        }
+        try {
+            Cipher cipher;
+            int offset = 0;
+            if (encryptedBytes.length == modulusLength) {
+                cipher = cipherPool.get();
+            } else {
+                cipher = dataCiphers.get();
+                offset = initEnvelopeCipher(cipher, encryptedBytes);
+            }
+            int length = encryptedBytes.length - offset;
+            int capacity = cipher.getOutputSize(length);
+            byte[] plainText = buffers.plainText(capacity);
+            // Covers whatever a failing cipher may have written before the actual length is known
+            buffers.setPlainTextLength(capacity);
+            int plainTextLength = cipher.doFinal(encryptedBytes, offset, length, plainText, 0);
+            buffers.setPlainTextLength(plainTextLength);
+            return plainTextLength;
+        } catch (GeneralSecurityException exception) {
+            buffers.clearPlainText();
+            log.error("Error during decryption: {}", exception.getMessage(), exception);
+            throw new EncryptionException("Error when decrypting the provided value", exception);
+        }
+    }
+
+    public String getCertificateFingerprint() {
+        return cipherPool.getCertificateFingerprint();
+    }
+
+    /**
+     * Validates an envelope's header and initializes the cipher for its cipher text.
+     *
+     * @return Offset of the cipher text within the envelope.
+     */
+    private int initEnvelopeCipher(Cipher cipher, byte[] envelope) throws GeneralSecurityException {
+        ByteBuffer buffer = ByteBuffer.wrap(envelope);
+        int minimumLength = 1 + FINGERPRINT_LENGTH_BYTES + 2 + EnvelopeEncryptor.NONCE_LENGTH_BYTES
+                + EnvelopeEncryptor.TAG_LENGTH_BITS / 8;
+        if (envelope.length < minimumLength || buffer.get() != EnvelopeEncryptor.FORMAT_VERSION) {
+            throw new EncryptionException("Encrypted value is neither an RSA block nor a supported envelope.");
+        }
+        byte[] envelopeFingerprint = new byte[FINGERPRINT_LENGTH_BYTES];
+        buffer.get(envelopeFingerprint);
+        if (!Arrays.equals(fingerprint, envelopeFingerprint)) {
+            throw new EncryptionException("Envelope was encrypted for another certificate.");
+        }
+        int wrappedKeyLength = buffer.getShort() & 0xFFFF;
+        if (buffer.remaining() < wrappedKeyLength + EnvelopeEncryptor.NONCE_LENGTH_BYTES
+                + EnvelopeEncryptor.TAG_LENGTH_BITS / 8) {
+            throw new EncryptionException("Envelope is truncated.");
+        }
+        ByteBuffer wrappedKey = ByteBuffer.wrap(envelope, buffer.position(), wrappedKeyLength).slice();
+        buffer.position(buffer.position() + wrappedKeyLength);
+        int headerLength = buffer.position();
+        SecretKey dataKey = unwrapDataKey(wrappedKey);
+
+        cipher.init(Cipher.DECRYPT_MODE, dataKey, new GCMParameterSpec(EnvelopeEncryptor.TAG_LENGTH_BITS, envelope,
+                headerLength, EnvelopeEncryptor.NONCE_LENGTH_BYTES));
+        cipher.updateAAD(envelope, 0, headerLength);
+        return headerLength + EnvelopeEncryptor.NONCE_LENGTH_BYTES;
+    }
+
+    private SecretKey unwrapDataKey(ByteBuffer wrappedKey) throws GeneralSecurityException {
+        SecretKey dataKey = dataKeys.get(wrappedKey);
+        if (dataKey != null) {
+            return dataKey;
+        }
+        byte[] wrappedKeyBytes = new byte[wrappedKey.remaining()];
+        wrappedKey.duplicate().get(wrappedKeyBytes);
+        dataKey = new SecretKeySpec(cipherPool.get().doFinal(wrappedKeyBytes), EnvelopeEncryptor.DATA_KEY_ALGORITHM);
+        if (dataKeys.size() >= MAX_DATA_KEYS) {
+            dataKeys.clear();
+        }
+        // The map owns its own copy of the key bytes, independent of the envelope they were read from
+        dataKeys.put(ByteBuffer.wrap(wrappedKeyBytes), dataKey);
+        log.debug("Unwrapped envelope data key ({} held).", dataKeys.size());
+        return dataKey;
+    }
+
+    private static String findSingleKeyAlias(KeyStore keyStore, Path keystoreFile) throws GeneralSecurityException {
+        String keyAlias = null;
+        for (Enumeration<String> aliases = keyStore.aliases(); aliases.hasMoreElements(); ) {
+            String alias = aliases.nextElement();
+            if (keyStore.isKeyEntry(alias)) {
+                if (keyAlias != null) {
+                    throw new EncryptionException("Keystore " + keystoreFile + " holds several keys ("
+                            + Collections.list(keyStore.aliases()) + "). Set the key alias.");
+                }
+                keyAlias = alias;
+            }
+        }
+        if (keyAlias == null) {
+            throw new EncryptionException("Keystore " + keystoreFile + " holds no private key.");
+        }
+        return keyAlias;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.DiscoveryFilter;
+import org.wso2.asgardeo.model.SecretOutcome;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.secretsmanager.model.ListSecretsResponse;
+import software.amazon.awssdk.services.secretsmanager.model.SecretListEntry;
+import software.amazon.awssdk.services.secretsmanager.model.Tag;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * This Java Class yields the names of the secrets returned by a lazily paginated ListSecrets call, one page at a time.
+ * ListSecrets matches name prefixes case-insensitively and matches tag keys and tag values independently of each
+ * other, so each entry is checked again here: the name must start with the prefix exactly, and if both a tag key
+ * and a tag value are given, a single tag must carry both.
+ */
+class SecretDiscoveryIterator implements Iterator<String> {
+
+    private static final Logger log = LoggerFactory.getLogger(SecretDiscoveryIterator.class);
+
+    private final Iterator<ListSecretsResponse> pages;
+    private final DiscoveryFilter filter;
+    private final String excludedSecretName;
+    private final String certificateFingerprint;
+    private Iterator<SecretListEntry> entries = Collections.emptyIterator();
+    private String nextSecretName;
+    private boolean exhausted;
+    private int discoveredCount;
+    private int unchangedCount;
+
+    SecretDiscoveryIterator(Iterator<ListSecretsResponse> pages, DiscoveryFilter filter, String excludedSecretName,
+                            String certificateFingerprint) {
+        this.pages = pages;
+        this.filter = filter;
+        this.excludedSecretName = excludedSecretName;
+        this.certificateFingerprint = certificateFingerprint;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextSecretName == null && !exhausted) {
+            SecretListEntry entry;
+            try {
+                // Only the current page is held; the next one is requested once it has been consumed.
+                while (!entries.hasNext() && pages.hasNext()) {
+                    entries = pages.next().secretList().iterator();
+                }
+                if (!entries.hasNext()) {
+                    exhausted = true;
+                    log.info("Discovered {} secrets. {} were already encrypted with the current certificate and "
+                            + "were skipped.", discoveredCount, unchangedCount);
+                    break;
+                }
+                entry = entries.next();
+            } catch (SdkException e) {
+                log.error("Error listing secrets in AWS Secrets Manager: {}", e.getMessage(), e);
+                throw new EncryptionException("AWS error listing secrets", e);
+            }
+            if (accept(entry)) {
+                nextSecretName = entry.name();
+            }
+        }
+        return nextSecretName != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String secretName = nextSecretName;
+        nextSecretName = null;
+        return secretName;
+    }
+
+    private boolean accept(SecretListEntry entry) {
+        if (entry.name().equals(excludedSecretName) || entry.arn().equals(excludedSecretName)) {
+            log.debug("Skipping discovered secret '{}' as it holds the certificate.", entry.name());
+            return false;
+        }
+        if (filter.getNamePrefix() != null && !entry.name().startsWith(filter.getNamePrefix())) {
+            log.debug("Skipping discovered secret '{}' as its name only matches the prefix ignoring case.", entry.name());
+            return false;
+        }
+        if (filter.getTagKey() != null && filter.getTagValue() != null && !hasTag(entry)) {
+            log.debug("Skipping discovered secret '{}' as no single tag matches both the key and the value.",
+                    entry.name());
+            return false;
+        }
+        discoveredCount++;
+        if (certificateFingerprint != null && AwsSecretsManagerUtils.isEncryptedWith(entry.tags(),
+                entry.secretVersionsToStages(), certificateFingerprint)) {
+            unchangedCount++;
+            RunMetrics.recordOutcome(entry.name(), SecretOutcome.UNCHANGED);
+            log.debug("Secret '{}' is already encrypted with the current certificate. Skipping.", entry.name());
+            return false;
+        }
+        log.debug("Discovered secret: {}", entry.name());
+        return true;
+    }
+
+    private boolean hasTag(SecretListEntry entry) {
+        for (Tag tag : entry.tags()) {
+            if (filter.getTagKey().equals(tag.key()) && filter.getTagValue().equals(tag.value())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
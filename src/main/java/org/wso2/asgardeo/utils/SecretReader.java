@@ -0,0 +1,283 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import software.amazon.awssdk.services.secretsmanager.SecretsManagerClient;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This Java Class lets consuming services read the secrets written by the encryptor. Each secret is fetched from
+ * AWS Secrets Manager, decrypted with the service's private key and cached as plain text, so that repeated reads
+ * cost neither a Secrets Manager call nor an RSA operation.
+ * <p>
+ * The cache is bounded: the least recently read secret is evicted once it holds the configured number of entries,
+ * and every entry expires after the TTL. A secret that is read within the refresh-ahead window before its expiry is
+ * reloaded in the background while the cached value is still served, so frequently read secrets never expire on a
+ * request path. Concurrent reads of a secret that is not cached share a single load.
+ */
+public class SecretReader implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SecretReader.class);
+    private static final int DEFAULT_CACHE_TTL_SECONDS = 300;
+    private static final int DEFAULT_REFRESH_AHEAD_SECONDS = 60;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 1000;
+    private static final int REFRESH_THREADS = 2;
+
+    private final SecretsManagerClient client;
+    private final boolean ownsClient;
+    private final SecretDecryptor decryptor;
+    private final long ttlNanos;
+    private final long refreshAheadNanos;
+    private final Map<String, CacheEntry> entries;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> loads = new ConcurrentHashMap<>();
+    private final ExecutorService refreshExecutor;
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder loadCount = new LongAdder();
+    private final LongAdder loadFailureCount = new LongAdder();
+
+    /**
+     * @param client       Client the secrets are fetched with. Not closed by {@link #close()}.
+     * @param decryptor    Decryptor holding the private key.
+     * @param ttl          How long a decrypted secret is served from the cache.
+     * @param refreshAhead How long before expiry a secret that is still read is reloaded in the background.
+     *                     Must be shorter than the TTL; zero disables refresh-ahead.
+     * @param maxEntries   Maximum number of decrypted secrets held.
+     * @param unit         Unit of the TTL and the refresh-ahead window.
+     */
+    public SecretReader(SecretsManagerClient client, SecretDecryptor decryptor, long ttl, long refreshAhead,
+                        int maxEntries, TimeUnit unit) {
+        this(client, false, decryptor, ttl, refreshAhead, maxEntries, unit);
+    }
+
+    private SecretReader(SecretsManagerClient client, boolean ownsClient, SecretDecryptor decryptor, long ttl,
+                         long refreshAhead, int maxEntries, TimeUnit unit) {
+        this.ownsClient = ownsClient;
+        this.client = Objects.requireNonNull(client, "SecretsManagerClient cannot be null");
+        this.decryptor = Objects.requireNonNull(decryptor, "SecretDecryptor cannot be null");
+        Objects.requireNonNull(unit, "TimeUnit cannot be null");
+        if (ttl <= 0 || refreshAhead < 0 || refreshAhead >= ttl) {
+            throw new IllegalArgumentException("The TTL must be positive and longer than the refresh-ahead window.");
+        }
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("The cache must hold at least one entry.");
+        }
+        this.ttlNanos = unit.toNanos(ttl);
+        this.refreshAheadNanos = unit.toNanos(refreshAhead);
+        // Access ordered, so that the eldest entry is the least recently read one
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        AtomicInteger threadCount = new AtomicInteger();
+        this.refreshExecutor = Executors.newFixedThreadPool(REFRESH_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "secret-reader-refresh-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Creates a reader configured from system properties, fetching secrets with the client of the configured
+     * region and decrypting them with the key of the configured keystore.
+     *
+     * @return Secret reader. The caller must close it, which also closes its client.
+     * @throws EncryptionException if the keystore is not configured or cannot be loaded.
+     */
+    public static SecretReader createFromSystemProperties() {
+        SecretDecryptor decryptor = SecretDecryptor.fromKeyStoreProperties(
+                Constants.READER_KEYSTORE_FILE_SYS_PROPERTY_KEY, Constants.READER_KEYSTORE_TYPE_SYS_PROPERTY_KEY,
+                Constants.READER_KEYSTORE_PASSWORD_SYS_PROPERTY_KEY, Constants.READER_KEYSTORE_PASSWORD_ENV_VAR,
+                Constants.READER_KEY_ALIAS_SYS_PROPERTY_KEY, Constants.READER_KEY_PASSWORD_SYS_PROPERTY_KEY,
+                Constants.READER_KEY_PASSWORD_ENV_VAR, EncryptionUtils.resolveTransformation());
+        int ttlSeconds = SystemPropertyUtils.getPositiveInt(Constants.READER_CACHE_TTL_SYS_PROPERTY_KEY,
+                DEFAULT_CACHE_TTL_SECONDS);
+        int refreshAheadSeconds = SystemPropertyUtils.getPositiveInt(Constants.READER_REFRESH_AHEAD_SYS_PROPERTY_KEY,
+                Math.min(DEFAULT_REFRESH_AHEAD_SECONDS, ttlSeconds / 5));
+        if (refreshAheadSeconds >= ttlSeconds) {
+            throw new EncryptionException("The refresh-ahead window of " + refreshAheadSeconds
+                    + " seconds must be shorter than the cache TTL of " + ttlSeconds + " seconds.");
+        }
+        int maxEntries = SystemPropertyUtils.getPositiveInt(Constants.READER_CACHE_MAX_ENTRIES_SYS_PROPERTY_KEY,
+                DEFAULT_CACHE_MAX_ENTRIES);
+        log.info("Caching up to {} decrypted secrets for {} seconds, refreshing {} seconds before expiry.",
+                maxEntries, ttlSeconds, refreshAheadSeconds);
+        return new SecretReader(AwsSecretsManagerUtils.createSecretsManagerClient(), true, decryptor, ttlSeconds,
+                refreshAheadSeconds, maxEntries, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Returns the plain text value of a secret, from the cache if it holds a fresh value. Safe to call from
+     * multiple threads.
+     *
+     * @param secretName Name or ARN of the secret.
+     * @return Plain text value.
+     * @throws EncryptionException if the secret cannot be fetched or decrypted.
+     */
+    public String get(String secretName) {
+        if (secretName == null || secretName.trim().isEmpty()) {
+            throw new IllegalArgumentException("Secret name cannot be null or empty.");
+        }
+        CacheEntry entry;
+        synchronized (entries) {
+            entry = entries.get(secretName);
+        }
+        long now = System.nanoTime();
+        if (entry != null && now - entry.expiresAt < 0) {
+            hitCount.increment();
+            if (refreshAheadNanos > 0 && now - entry.refreshAt >= 0 && entry.refreshing.compareAndSet(false, true)) {
+                refreshAsync(secretName);
+            }
+            return entry.value;
+        }
+        missCount.increment();
+        try {
+            return load(secretName).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EncryptionException("Error reading secret: " + secretName, e.getCause());
+        }
+    }
+
+    /**
+     * Drops a secret from the cache, so that the next read fetches it again.
+     *
+     * @param secretName Name or ARN of the secret.
+     */
+    public void invalidate(String secretName) {
+        synchronized (entries) {
+            entries.remove(secretName);
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getLoadCount() {
+        return loadCount.sum();
+    }
+
+    public long getLoadFailureCount() {
+        return loadFailureCount.sum();
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Stops background refreshes and drops every cached value. The client is closed too if the reader created it.
+     */
+    @Override
+    public void close() {
+        refreshExecutor.shutdownNow();
+        invalidateAll();
+        if (ownsClient) {
+            client.close();
+        }
+    }
+
+    /**
+     * Loads a secret on the calling thread, or joins the load another thread has already started for it.
+     */
+    private CompletableFuture<String> load(String secretName) {
+        CompletableFuture<String> load = new CompletableFuture<>();
+        CompletableFuture<String> inFlight = loads.putIfAbsent(secretName, load);
+        if (inFlight != null) {
+            return inFlight;
+        }
+        try {
+            long loadStart = System.nanoTime();
+            String value = decryptor.decrypt(AwsSecretsManagerUtils.getSecretStringValue(client, secretName));
+            long loadedAt = System.nanoTime();
+            synchronized (entries) {
+                entries.put(secretName, new CacheEntry(value, loadedAt + ttlNanos - refreshAheadNanos,
+                        loadedAt + ttlNanos));
+            }
+            loadCount.increment();
+            log.debug("Loaded secret '{}' in {} ms.", secretName,
+                    TimeUnit.NANOSECONDS.toMillis(loadedAt - loadStart));
+            load.complete(value);
+        } catch (RuntimeException e) {
+            loadFailureCount.increment();
+            load.completeExceptionally(e);
+        } finally {
+            loads.remove(secretName, load);
+        }
+        return load;
+    }
+
+    private void refreshAsync(String secretName) {
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    load(secretName).join();
+                } catch (CompletionException e) {
+                    // The cached value is served until it expires; the next read after that retries the load
+                    log.warn("Error refreshing secret '{}': {}", secretName, e.getCause().getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.debug("Reader is closed. Secret '{}' is not refreshed.", secretName);
+        }
+    }
+
+    private static final class CacheEntry {
+
+        private final String value;
+        private final long refreshAt;
+        private final long expiresAt;
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private CacheEntry(String value, long refreshAt, long expiresAt) {
+
+            this.value = value;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
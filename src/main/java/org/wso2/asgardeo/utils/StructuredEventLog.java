@@ -0,0 +1,486 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wso2.asgardeo.exception.EncryptionException;
+import org.wso2.asgardeo.model.Secret;
+import org.wso2.asgardeo.model.UpdateSummary;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * This Java Class records what happens to each secret as structured events, instead of free text log lines.
+ * <p>
+ * While a structured log is open, events are put into a bounded ring buffer and written as JSON lines by a single
+ * background thread, so that a thread processing a secret never formats a message, takes a lock or waits for I/O.
+ * Once the buffer is full, further events are dropped and counted rather than slowing the run down. Each line
+ * carries the id of the run and a correlation id derived from the run and the secret name, so that the fetch,
+ * encryption and update of a secret can be followed across the threads that performed them.
+ * <p>
+ * While no structured log is open, events are logged as DEBUG lines of this class, which cost no more than a level
+ * check unless DEBUG is enabled. Batch summaries are always logged at INFO.
+ * <p>
+ * Like {@link RunJournal}, the structured log is process wide.
+ */
+public class StructuredEventLog implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(StructuredEventLog.class);
+    private static final String STANDARD_OUTPUT = "-";
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final int MAX_BUFFER_SIZE = 1 << 20;
+    // How long the writer sleeps once the buffer is drained; producers never wake it, to keep recording cheap
+    private static final long WRITER_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static volatile StructuredEventLog activeLog;
+
+    private final String target;
+    private final Writer writer;
+    private final boolean closeWriter;
+    private final String runId;
+    private final long runSeed;
+    private final AtomicReferenceArray<Record> slots;
+    private final int mask;
+    // Sequence of the next slot producers claim, and of the next slot the writer reads
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final Thread writerThread;
+    // Only used by the writer thread; the date and time are formatted once per second
+    private final StringBuilder line = new StringBuilder(256);
+    private long formattedSecond = Long.MIN_VALUE;
+    private String formattedDateTime;
+    private volatile boolean closed;
+    private long writtenEvents;
+
+    private StructuredEventLog(String target, Writer writer, boolean closeWriter, int bufferSize) {
+
+        this.target = target;
+        this.writer = writer;
+        this.closeWriter = closeWriter;
+        this.runSeed = ThreadLocalRandom.current().nextLong();
+        this.runId = toHex(runSeed);
+        int capacity = Integer.highestOneBit(Math.min(bufferSize, MAX_BUFFER_SIZE) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(Math.max(capacity, 2));
+        this.mask = slots.length() - 1;
+        this.writerThread = new Thread(this::drainUntilClosed, "structured-event-writer");
+        this.writerThread.setDaemon(true);
+    }
+
+    /**
+     * Opens a structured log and makes it the active one.
+     *
+     * @param target     File the events are appended to, or "-" for standard output.
+     * @param bufferSize Number of events held for the writer; rounded up to a power of two.
+     * @return Opened structured log.
+     * @throws EncryptionException if the file cannot be opened.
+     */
+    public static StructuredEventLog open(String target, int bufferSize) {
+        Objects.requireNonNull(target, "Structured log target cannot be null");
+        StructuredEventLog eventLog;
+        if (STANDARD_OUTPUT.equals(target)) {
+            eventLog = new StructuredEventLog("standard output", new OutputStreamWriter(System.out,
+                    StandardCharsets.UTF_8), false, bufferSize);
+        } else {
+            try {
+                eventLog = new StructuredEventLog(target, new BufferedWriter(new OutputStreamWriter(
+                        new FileOutputStream(target, true), StandardCharsets.UTF_8)), true, bufferSize);
+            } catch (IOException e) {
+                log.error("Failed to open structured log {}: {}", target, e.getMessage(), e);
+                throw new EncryptionException("Could not open structured log: " + target, e);
+            }
+        }
+        eventLog.writerThread.start();
+        activeLog = eventLog;
+        log.info("Writing per-secret events to {} as JSON lines (run id: {}, buffer: {} events).", eventLog.target,
+                eventLog.runId, eventLog.slots.length());
+        return eventLog;
+    }
+
+    /**
+     * Opens the structured log configured with system properties.
+     *
+     * @return Opened structured log, or null if no structured log is configured.
+     * @throws EncryptionException if the configured file cannot be opened.
+     */
+    public static StructuredEventLog openConfigured() {
+        String target = SystemPropertyUtils.getString(Constants.STRUCTURED_LOG_FILE_SYS_PROPERTY_KEY);
+        if (target == null) {
+            return null;
+        }
+        return open(target, SystemPropertyUtils.getPositiveInt(Constants.STRUCTURED_LOG_BUFFER_SIZE_SYS_PROPERTY_KEY,
+                DEFAULT_BUFFER_SIZE));
+    }
+
+    public static void recordFetched(String secretName, String versionId) {
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            Record record = new Record(Event.FETCHED, secretName);
+            record.versionId = versionId;
+            eventLog.publish(record);
+        } else {
+            log.debug("Retrieved secret: {}", secretName);
+        }
+    }
+
+    public static void recordEncrypted(Secret secret, boolean rewrapped) {
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            eventLog.publish(new Record(rewrapped ? Event.REWRAPPED : Event.ENCRYPTED, secret.getIdentifier()));
+        } else {
+            log.debug("{} secret: {}", rewrapped ? "Re-wrapped" : "Encrypted", secret.getIdentifier());
+        }
+    }
+
+    public static void recordUpdated(Secret secret) {
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            Record record = new Record(Event.UPDATED, secret.getIdentifier());
+            record.versionId = secret.getUpdatedVersionId();
+            eventLog.publish(record);
+        } else {
+            log.debug("Updated secret: {}", secret.getIdentifier());
+        }
+    }
+
+    /**
+     * Records that a request for a secret did not succeed and is sent again after a backoff.
+     *
+     * @param action      What the request does, e.g. "Updating".
+     * @param attempt     Number of the attempt that did not succeed, starting at 1.
+     * @param delayMillis Backoff before the next attempt.
+     */
+    public static void recordRetry(Secret secret, String action, int attempt, long delayMillis) {
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            Record record = new Record(Event.RETRYING, secret.getIdentifier());
+            record.reason = action;
+            record.attempt = attempt;
+            record.delayMillis = delayMillis;
+            eventLog.publish(record);
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} secret '{}' did not succeed on attempt {}. Retrying in {} ms.", action,
+                    secret.getIdentifier(), attempt, delayMillis);
+        }
+    }
+
+    public static void recordSkipped(String secretName, String reason) {
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            Record record = new Record(Event.SKIPPED, secretName);
+            record.reason = reason;
+            eventLog.publish(record);
+        } else {
+            log.debug("Skipped secret '{}': {}", secretName, reason);
+        }
+    }
+
+    /**
+     * Records that a secret could not be processed. The failure itself is still logged at ERROR where it occurs;
+     * this event ties it to the other events of the secret.
+     */
+    public static void recordFailed(String secretName, String reason) {
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            Record record = new Record(Event.FAILED, secretName);
+            record.reason = reason;
+            eventLog.publish(record);
+        }
+    }
+
+    /**
+     * Logs a summary of a processed batch at INFO, and records it as an event while a structured log is open.
+     *
+     * @param scope         What the batch belongs to, e.g. a region or a manifest.
+     * @param batchNumber   Number of the batch within its scope, starting at 1.
+     * @param secretCount   Number of secrets in the batch.
+     * @param before        Summary of the updater before the batch.
+     * @param after         Summary of the updater after the batch.
+     * @param durationNanos Time taken to retrieve, encrypt and update the batch.
+     */
+    public static void logBatchSummary(String scope, int batchNumber, int secretCount, UpdateSummary before,
+                                       UpdateSummary after, long durationNanos) {
+        int updated = after.getUpdatedCount() - before.getUpdatedCount();
+        int skipped = after.getSkippedCount() - before.getSkippedCount();
+        int retries = after.getRetryCount() - before.getRetryCount();
+        int throttled = after.getThrottledCount() - before.getThrottledCount();
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+        log.info("Batch {} of {} completed in {} ms - secrets: {}, updated: {}, skipped: {}, retries: {}, "
+                + "throttled: {}, concurrency limit: {}", batchNumber, scope, durationMillis, secretCount, updated,
+                skipped, retries, throttled, after.getConcurrencyLimit());
+        StructuredEventLog eventLog = activeLog;
+        if (eventLog != null) {
+            Record record = new Record(Event.BATCH_COMPLETED, null);
+            record.scope = scope;
+            record.batch = batchNumber;
+            record.secrets = secretCount;
+            record.updated = updated;
+            record.skipped = skipped;
+            record.retries = retries;
+            record.throttled = throttled;
+            record.durationMillis = durationMillis;
+            eventLog.publish(record);
+        }
+    }
+
+    public String getRunId() {
+        return runId;
+    }
+
+    /**
+     * Returns the number of events dropped so far because the buffer was full.
+     */
+    public long getDroppedEventCount() {
+        return droppedEvents.get();
+    }
+
+    /**
+     * Writes the events still buffered, stops the writer and closes the file. Events recorded afterwards are
+     * logged as DEBUG lines again.
+     */
+    @Override
+    public void close() throws IOException {
+        if (activeLog == this) {
+            activeLog = null;
+        }
+        closed = true;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(CLOSE_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Structured log writer did not finish within {} ms. Buffered events may be lost.",
+                    CLOSE_TIMEOUT_MILLIS);
+        }
+        long dropped = droppedEvents.get();
+        if (dropped > 0) {
+            log.warn("Dropped {} events as the structured log buffer was full. Increase the buffer size to keep "
+                    + "them.", dropped);
+        }
+        log.info("Wrote {} events to structured log {}.", writtenEvents, target);
+        if (closeWriter) {
+            writer.close();
+        } else {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Claims the next free slot of the buffer for an event, or drops the event if the writer is a full buffer
+     * behind.
+     */
+    private void publish(Record record) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head.get() >= slots.length()) {
+                droppedEvents.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        slots.lazySet((int) sequence & mask, record);
+    }
+
+    private void drainUntilClosed() {
+        try {
+            while (true) {
+                // Read the flag first, so that events published before close are drained in the final pass
+                boolean finalPass = closed;
+                if (drain() == 0) {
+                    writer.flush();
+                    if (finalPass) {
+                        return;
+                    }
+                    LockSupport.parkNanos(this, WRITER_IDLE_NANOS);
+                }
+            }
+        } catch (IOException e) {
+            log.error("Failed to write to structured log {}: {}", target, e.getMessage(), e);
+            activeLog = null;
+        }
+    }
+
+    /**
+     * Writes the events published so far, stopping at a claimed slot whose event is not yet visible.
+     *
+     * @return Number of events written.
+     */
+    private int drain() throws IOException {
+        int count = 0;
+        long sequence = head.get();
+        while (true) {
+            int index = (int) sequence & mask;
+            Record record = slots.get(index);
+            if (record == null) {
+                break;
+            }
+            slots.lazySet(index, null);
+            head.lazySet(++sequence);
+            line.setLength(0);
+            line.append("{\"time\":\"");
+            appendTime(record.epochMillis);
+            line.append('"');
+            record.appendJson(line, runId, record.secret != null ? correlationId(record.secret) : null);
+            line.append('\n');
+            writer.append(line);
+            count++;
+        }
+        writtenEvents += count;
+        return count;
+    }
+
+    /**
+     * Appends a time in ISO-8601 format in UTC, always with milliseconds, e.g. 2025-01-31T10:15:30.042Z.
+     */
+    private void appendTime(long epochMillis) {
+        long second = Math.floorDiv(epochMillis, 1000L);
+        if (second != formattedSecond) {
+            String instant = Instant.ofEpochSecond(second).toString();
+            formattedDateTime = instant.substring(0, instant.length() - 1);
+            formattedSecond = second;
+        }
+        int millis = (int) Math.floorMod(epochMillis, 1000L);
+        line.append(formattedDateTime).append('.');
+        if (millis < 100) {
+            line.append(millis < 10 ? "00" : "0");
+        }
+        line.append(millis).append('Z');
+    }
+
+    /**
+     * Derives the correlation id of a secret with 64-bit FNV-1a over its name, seeded with the run, so that every
+     * event of the secret in this run carries the same id without any per-secret state being kept. The hash is
+     * mixed with the MurmurHash3 finalizer, so that similar names do not get similar looking ids.
+     */
+    private String correlationId(String secretName) {
+        long hash = runSeed;
+        for (int i = 0; i < secretName.length(); i++) {
+            hash ^= secretName.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return toHex(hash);
+    }
+
+    private static String toHex(long value) {
+        String hex = Long.toHexString(value);
+        return hex.length() < 16 ? "0000000000000000".substring(hex.length()) + hex : hex;
+    }
+
+    private enum Event {
+        FETCHED, ENCRYPTED, REWRAPPED, UPDATED, RETRYING, SKIPPED, FAILED, BATCH_COMPLETED
+    }
+
+    /**
+     * A single structured log line. Only the fields the event has are written; the time is taken when the event is
+     * recorded, and written first by the writer thread.
+     */
+    private static final class Record {
+
+        private final long epochMillis = System.currentTimeMillis();
+        private final Event event;
+        private final String secret;
+        private final String thread = Thread.currentThread().getName();
+        private String versionId;
+        private Integer attempt;
+        private Long delayMillis;
+        private String reason;
+        private String scope;
+        private Integer batch;
+        private Integer secrets;
+        private Integer updated;
+        private Integer skipped;
+        private Integer retries;
+        private Integer throttled;
+        private Long durationMillis;
+
+        private Record(Event event, String secret) {
+
+            this.event = event;
+            this.secret = secret;
+        }
+
+        /**
+         * Appends the fields following the time, and closes the JSON object.
+         */
+        private void appendJson(StringBuilder json, String runId, String correlationId) {
+
+            appendField(json, "run", runId);
+            appendField(json, "event", event.name());
+            appendField(json, "secret", secret);
+            appendField(json, "correlationId", correlationId);
+            appendField(json, "thread", thread);
+            appendField(json, "versionId", versionId);
+            appendField(json, "attempt", attempt);
+            appendField(json, "delayMillis", delayMillis);
+            appendField(json, "reason", reason);
+            appendField(json, "scope", scope);
+            appendField(json, "batch", batch);
+            appendField(json, "secrets", secrets);
+            appendField(json, "updated", updated);
+            appendField(json, "skipped", skipped);
+            appendField(json, "retries", retries);
+            appendField(json, "throttled", throttled);
+            appendField(json, "durationMillis", durationMillis);
+            json.append('}');
+        }
+
+        private static void appendField(StringBuilder json, String name, Number value) {
+
+            if (value != null) {
+                json.append(",\"").append(name).append("\":").append(value);
+            }
+        }
+
+        private static void appendField(StringBuilder json, String name, String value) {
+
+            if (value == null) {
+                return;
+            }
+            json.append(",\"").append(name).append("\":\"");
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    json.append('\\').append(c);
+                } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                    String hex = Integer.toHexString(c);
+                    json.append("\\u").append("0000", hex.length(), 4).append(hex);
+                } else {
+                    json.append(c);
+                }
+            }
+            json.append('"');
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+* -------------------------------------------------------------------------------------
+*
+* Copyright (c) 2025, WSO2 LLC. (http://www.wso2.com).
+*
+* This software is the property of WSO2 LLC. and its suppliers, if any.
+* Dissemination of any information or reproduction of any material contained
+* herein in any form is strictly forbidden, unless permitted by WSO2 expressly.
+* You may not alter or remove any copyright or other notice from copies of this content.
+*
+* --------------------------------------------------------------------------------------
+*/
+
+package org.wso2.asgardeo.utils;
+
+import org.wso2.asgardeo.exception.EncryptionException;
+
+/**
+ * This Java Class reads typed values from the system properties used to configure this application.
+ */
+public class SystemPropertyUtils {
+
+    private SystemPropertyUtils() {}
+
+    /**
+     * Reads a positive integer system property.
+     *
+     * @param key          System property key.
+     * @param defaultValue Value returned when the property is not set.
+     * @return Configured value, or the default if not set.
+     * @throws EncryptionException if the configured value is not a positive integer.
+     */
+    public static int getPositiveInt(String key, int defaultValue) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return defaultValue;
+        }
+        int parsedValue;
+        try {
+            parsedValue = Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new EncryptionException("Invalid value for system property " + key + ": " + value, e);
+        }
+        if (parsedValue < 1) {
+            throw new EncryptionException("Value must be at least 1. Invalid value for system property " + key + ": " + value);
+        }
+        return parsedValue;
+    }
+
+    /**
+     * Reads a boolean system property. Only "true" (ignoring case) enables the flag.
+     *
+     * @param key System property key.
+     * @return true if the property is set to "true".
+     */
+    public static boolean getBoolean(String key) {
+        return Boolean.parseBoolean(System.getProperty(key));
+    }
+
+    /**
+     * Reads a string system property, treating blank values as unset.
+     *
+     * @param key System property key.
+     * @return Trimmed value, or null if not set.
+     */
+    public static String getString(String key) {
+        String value = System.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        return value.trim();
+    }
+}